@@ -0,0 +1,47 @@
+#!/usr/bin/env bash
+# Measures time from JVM launch to the first successful (2xx) response.
+#
+#   mvn -Pfast-start package
+#   BENCH_AUTH=user:password scripts/startup-benchmark.sh            # AOT + CDS
+#   BENCH_MODE=plain BENCH_AUTH=user:password scripts/startup-benchmark.sh
+#
+# BENCH_URL defaults to an authenticated GET so the security chain, JPA and
+# the database are all exercised by the first request.
+set -euo pipefail
+
+BENCH_URL="${BENCH_URL:-http://localhost:8088/api/outbox/metrics}"
+BENCH_AUTH="${BENCH_AUTH:-}"
+BENCH_MODE="${BENCH_MODE:-fast}"
+BENCH_RUNS="${BENCH_RUNS:-5}"
+JAR="target/rummy-app-0.0.1-SNAPSHOT.jar"
+CDS_ARCHIVE="target/rummy-app.jsa"
+
+java_args=(-Dspring.profiles.active=prod)
+if [[ "$BENCH_MODE" == "fast" ]]; then
+    java_args+=(-Dspring.aot.enabled=true -XX:SharedArchiveFile="$CDS_ARCHIVE")
+fi
+
+curl_args=(-s -o /dev/null -w '%{http_code}')
+if [[ -n "$BENCH_AUTH" ]]; then
+    curl_args+=(-u "$BENCH_AUTH")
+fi
+
+for run in $(seq 1 "$BENCH_RUNS"); do
+    start=$(date +%s%N)
+    java "${java_args[@]}" -jar "$JAR" > /dev/null 2>&1 &
+    pid=$!
+    trap 'kill $pid 2>/dev/null || true' EXIT
+
+    until [[ "$(curl "${curl_args[@]}" "$BENCH_URL" || true)" == 2* ]]; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "application exited before serving a request" >&2
+            exit 1
+        fi
+        sleep 0.02
+    done
+    end=$(date +%s%N)
+    echo "run $run ($BENCH_MODE): $(( (end - start) / 1000000 )) ms to first successful request"
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+done
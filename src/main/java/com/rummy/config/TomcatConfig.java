@@ -0,0 +1,29 @@
+package com.rummy.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sizes the connector's per-socket read and write buffers. Every open push
+ * stream holds a set of them for as long as it lives, so at 50k streams each
+ * kilobyte here is about 50 MB of heap.
+ */
+@Configuration
+public class TomcatConfig {
+    @Value("${tomcat.socket.app-read-buffer-bytes:8192}")
+    private int appReadBufferBytes;
+
+    @Value("${tomcat.socket.app-write-buffer-bytes:8192}")
+    private int appWriteBufferBytes;
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> socketBufferCustomizer() {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            connector.setProperty("socket.appReadBufSize", Integer.toString(appReadBufferBytes));
+            connector.setProperty("socket.appWriteBufSize", Integer.toString(appWriteBufferBytes));
+        });
+    }
+}
@@ -0,0 +1,18 @@
+package com.rummy.controller;
+
+import com.rummy.service.ClusterCoordinator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/cluster")
+public class ClusterController {
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @GetMapping("/metrics")
+    public ResponseEntity<?> getMetrics() {
+        return ResponseEntity.ok(clusterCoordinator.getMetrics());
+    }
+}
@@ -0,0 +1,30 @@
+package com.rummy.controller;
+
+import com.rummy.service.StatusCounterService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+    @Autowired
+    private StatusCounterService statusCounterService;
+
+    @GetMapping("/status-counts")
+    public ResponseEntity<?> getStatusCounts() {
+        return ResponseEntity.ok(statusCounterService.getCounts());
+    }
+
+    @GetMapping("/transitions")
+    public ResponseEntity<?> getTransitions(
+            @RequestParam StatusCounterService.Category category,
+            @RequestParam(defaultValue = "60") int minutes) {
+        return ResponseEntity.ok(statusCounterService.getTransitions(category, minutes));
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<?> getMetrics() {
+        return ResponseEntity.ok(statusCounterService.getMetrics());
+    }
+}
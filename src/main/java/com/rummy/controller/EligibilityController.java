@@ -0,0 +1,30 @@
+package com.rummy.controller;
+
+import com.rummy.service.EligibilityIndexService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/eligibility")
+public class EligibilityController {
+    @Autowired
+    private EligibilityIndexService eligibilityIndexService;
+
+    // e.g. ?all=VERIFIED,KYC_APPROVED&none=OPEN_FRAUD_REPORT,BLOCKED_IP for cash-eligible users not flagged
+    @GetMapping("/users")
+    public ResponseEntity<?> queryUsers(
+            @RequestParam(defaultValue = "") List<EligibilityIndexService.Attribute> all,
+            @RequestParam(defaultValue = "") List<EligibilityIndexService.Attribute> any,
+            @RequestParam(defaultValue = "") List<EligibilityIndexService.Attribute> none,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(eligibilityIndexService.query(all, any, none, limit));
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<?> getMetrics() {
+        return ResponseEntity.ok(eligibilityIndexService.getMetrics());
+    }
+}
@@ -48,4 +48,14 @@ public class FraudDetectionController {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+
+    @GetMapping("/fraud-reports/hot")
+    public ResponseEntity<?> getHotUsers(@RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(fraudDetectionService.getHotUsers(limit));
+    }
+
+    @GetMapping("/fraud-reports/metrics")
+    public ResponseEntity<?> getAggregationMetrics() {
+        return ResponseEntity.ok(fraudDetectionService.getAggregationMetrics());
+    }
 }
\ No newline at end of file
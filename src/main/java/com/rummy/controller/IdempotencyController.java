@@ -0,0 +1,18 @@
+package com.rummy.controller;
+
+import com.rummy.service.IdempotencyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/idempotency")
+public class IdempotencyController {
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @GetMapping("/metrics")
+    public ResponseEntity<?> getMetrics() {
+        return ResponseEntity.ok(idempotencyService.getMetrics());
+    }
+}
@@ -2,18 +2,33 @@ package com.rummy.controller;
 
 import com.rummy.dto.KycDocumentDto;
 import com.rummy.model.KycStatus;
+import com.rummy.service.KycImageService;
 import com.rummy.service.KycService;
+import com.rummy.service.KycUploadService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.Duration;
+
 @RestController
 @RequestMapping("/api/kyc")
 public class KycController {
     @Autowired
     private KycService kycService;
 
+    @Autowired
+    private KycImageService kycImageService;
+
+    @Autowired
+    private KycUploadService kycUploadService;
+
     @PostMapping("/upload-aadhaar")
     public ResponseEntity<?> uploadAadhaar(@Valid @ModelAttribute KycDocumentDto documentDto) {
         try {
@@ -32,6 +47,60 @@ public class KycController {
         }
     }
 
+    @PostMapping("/uploads")
+    public ResponseEntity<?> initiateUpload(
+            @RequestParam Long userId,
+            @RequestParam String documentType,
+            @RequestParam String documentNumber,
+            @RequestParam String fileName,
+            @RequestParam long totalSize,
+            @RequestParam(required = false) Integer chunkSize,
+            @RequestParam(required = false) String sha256) {
+        try {
+            return ResponseEntity.ok(kycUploadService.initiate(userId, documentType, documentNumber, fileName,
+                    totalSize, chunkSize, sha256));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Raw chunk bytes, not multipart, so nothing is spooled to a temp file on the way in
+    @PutMapping(value = "/uploads/{uploadId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            @RequestHeader("X-Chunk-SHA256") String checksum,
+            HttpServletRequest request) throws IOException {
+        try {
+            return ResponseEntity.ok(kycUploadService.writeChunk(uploadId, index, checksum, request.getInputStream()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> getUploadProgress(@PathVariable String uploadId) {
+        try {
+            return ResponseEntity.ok(kycUploadService.getProgress(uploadId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable String uploadId) {
+        try {
+            return ResponseEntity.ok(kycUploadService.complete(uploadId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/uploads/metrics")
+    public ResponseEntity<?> getUploadMetrics() {
+        return ResponseEntity.ok(kycUploadService.getMetrics());
+    }
+
     @PostMapping("/verify")
     public ResponseEntity<?> verifyKyc(@RequestParam Long userId) {
         try {
@@ -60,4 +129,31 @@ public class KycController {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/documents/{documentId}/preview")
+    public ResponseEntity<?> getDocumentPreview(@PathVariable Long documentId) {
+        return rendition(documentId, false);
+    }
+
+    @GetMapping("/documents/{documentId}/thumbnail")
+    public ResponseEntity<?> getDocumentThumbnail(@PathVariable Long documentId) {
+        return rendition(documentId, true);
+    }
+
+    @GetMapping("/images/metrics")
+    public ResponseEntity<?> getImageMetrics() {
+        return ResponseEntity.ok(kycImageService.getMetrics());
+    }
+
+    private ResponseEntity<?> rendition(Long documentId, boolean thumbnail) {
+        try {
+            // Renditions are written once under a fresh name, so clients may cache them
+            return ResponseEntity.ok()
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .cacheControl(CacheControl.maxAge(Duration.ofDays(1)).cachePrivate())
+                    .body(new FileSystemResource(kycService.getDocumentRendition(documentId, thumbnail)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
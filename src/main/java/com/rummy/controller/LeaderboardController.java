@@ -0,0 +1,39 @@
+package com.rummy.controller;
+
+import com.rummy.service.LeaderboardService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/leaderboard")
+public class LeaderboardController {
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @GetMapping("/metrics")
+    public ResponseEntity<?> getMetrics() {
+        return ResponseEntity.ok(leaderboardService.getMetrics());
+    }
+
+    @GetMapping("/{board}")
+    public ResponseEntity<?> getTop(@PathVariable String board, @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(leaderboardService.getTop(LeaderboardService.Board.parse(board), limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{board}/users/{userId}")
+    public ResponseEntity<?> getRank(
+            @PathVariable String board,
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "5") int neighbors) {
+        try {
+            return ResponseEntity.ok(leaderboardService.getRank(LeaderboardService.Board.parse(board), userId, neighbors));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
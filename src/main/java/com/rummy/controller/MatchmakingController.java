@@ -0,0 +1,54 @@
+package com.rummy.controller;
+
+import com.rummy.service.MatchmakingService;
+import com.rummy.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+
+// Players join, cancel and check their own ticket only: the user is always the authenticated caller
+@RestController
+@RequestMapping("/api/matchmaking")
+public class MatchmakingController {
+    @Autowired
+    private MatchmakingService matchmakingService;
+
+    @Autowired
+    private UserService userService;
+
+    @PostMapping("/join")
+    public ResponseEntity<?> join(@RequestParam long stake, Principal principal) {
+        try {
+            Long userId = callerId(principal);
+            matchmakingService.join(userId, stake);
+            return ResponseEntity.ok(matchmakingService.getStatus(userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping
+    public ResponseEntity<?> cancel(Principal principal) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("cancelled", matchmakingService.cancel(callerId(principal)));
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getStatus(Principal principal) {
+        return ResponseEntity.ok(matchmakingService.getStatus(callerId(principal)));
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<?> getMetrics() {
+        return ResponseEntity.ok(matchmakingService.getMetrics());
+    }
+
+    private Long callerId(Principal principal) {
+        return userService.getUserByUsername(principal.getName()).getId();
+    }
+}
@@ -0,0 +1,18 @@
+package com.rummy.controller;
+
+import com.rummy.service.OutboxRelay;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/outbox")
+public class OutboxController {
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @GetMapping("/metrics")
+    public ResponseEntity<?> getMetrics() {
+        return ResponseEntity.ok(outboxRelay.getMetrics());
+    }
+}
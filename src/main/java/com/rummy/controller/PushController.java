@@ -0,0 +1,37 @@
+package com.rummy.controller;
+
+import com.rummy.model.User;
+import com.rummy.service.PushService;
+import com.rummy.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.security.Principal;
+
+@RestController
+@RequestMapping("/api/push")
+public class PushController {
+    @Autowired
+    private PushService pushService;
+
+    @Autowired
+    private UserService userService;
+
+    // Authenticated once when the stream opens; events are for the caller only
+    @GetMapping(value = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void subscribe(Principal principal, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        User user = userService.getUserByUsername(principal.getName());
+        pushService.subscribe(user.getId(), request, response);
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<?> getMetrics() {
+        return ResponseEntity.ok(pushService.getMetrics());
+    }
+}
@@ -0,0 +1,51 @@
+package com.rummy.controller;
+
+import com.rummy.service.SearchIndexService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @GetMapping("/fraud-reports")
+    public ResponseEntity<?> searchFraudReports(
+            @RequestParam String q,
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "50") int limit) {
+        return search(SearchIndexService.Source.FRAUD_REPORTS, q, status, from, to, limit);
+    }
+
+    @GetMapping("/kyc-remarks")
+    public ResponseEntity<?> searchKycRemarks(
+            @RequestParam String q,
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "50") int limit) {
+        return search(SearchIndexService.Source.KYC_REMARKS, q, status, from, to, limit);
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<?> getMetrics() {
+        return ResponseEntity.ok(searchIndexService.getMetrics());
+    }
+
+    private ResponseEntity<?> search(SearchIndexService.Source source, String q, List<String> status,
+                                     LocalDate from, LocalDate to, int limit) {
+        try {
+            return ResponseEntity.ok(searchIndexService.search(source, q, status, from, to, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.rummy.controller;
+
+import com.rummy.service.SqlMonitorService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@Profile("!prod")
+@RequestMapping("/api/sql")
+public class SqlMonitorController {
+    @Autowired
+    private SqlMonitorService sqlMonitorService;
+
+    @GetMapping("/metrics")
+    public ResponseEntity<?> getMetrics() {
+        return ResponseEntity.ok(sqlMonitorService.getMetrics());
+    }
+}
@@ -0,0 +1,83 @@
+package com.rummy.controller;
+
+import com.rummy.service.TableRuntimeService;
+import com.rummy.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+
+// Every call acts as the authenticated caller; callers not seated at the table are refused
+@RestController
+@RequestMapping("/api/tables")
+public class TableController {
+    @Autowired
+    private TableRuntimeService tableRuntimeService;
+
+    @Autowired
+    private UserService userService;
+
+    @GetMapping("/{tableId}")
+    public ResponseEntity<?> getTable(@PathVariable Long tableId, Principal principal) {
+        try {
+            return ResponseEntity.ok(tableRuntimeService.getTable(tableId, callerId(principal)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{tableId}/draw")
+    public ResponseEntity<?> draw(
+            @PathVariable Long tableId,
+            @RequestParam(defaultValue = "false") boolean fromDiscard,
+            Principal principal) {
+        try {
+            return ResponseEntity.ok(tableRuntimeService.draw(tableId, callerId(principal), fromDiscard));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{tableId}/discard")
+    public ResponseEntity<?> discard(
+            @PathVariable Long tableId,
+            @RequestParam String card,
+            Principal principal) {
+        try {
+            return ResponseEntity.ok(tableRuntimeService.discard(tableId, callerId(principal), card));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{tableId}/declare")
+    public ResponseEntity<?> declare(
+            @PathVariable Long tableId,
+            @RequestParam String card,
+            Principal principal) {
+        try {
+            return ResponseEntity.ok(tableRuntimeService.declare(tableId, callerId(principal), card));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{tableId}/drop")
+    public ResponseEntity<?> drop(@PathVariable Long tableId, Principal principal) {
+        try {
+            return ResponseEntity.ok(tableRuntimeService.drop(tableId, callerId(principal)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<?> getMetrics() {
+        return ResponseEntity.ok(tableRuntimeService.getMetrics());
+    }
+
+    private Long callerId(Principal principal) {
+        return userService.getUserByUsername(principal.getName()).getId();
+    }
+}
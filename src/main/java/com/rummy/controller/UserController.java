@@ -13,6 +13,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -66,9 +67,9 @@ public class UserController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody UserLoginDto loginDto) {
+    public ResponseEntity<?> login(@Valid @RequestBody UserLoginDto loginDto, HttpServletRequest request) {
         try {
-            Map<String, Object> response = userService.loginWithCredentials(loginDto);
+            Map<String, Object> response = userService.loginWithCredentials(loginDto, request);
             return ResponseEntity.ok(response);
         } catch (IllegalArgumentException | UserServiceException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -85,6 +86,15 @@ public class UserController {
         }
     }
 
+    @GetMapping("/profiles")
+    public ResponseEntity<?> getUserSummaries(@RequestParam List<Long> ids) {
+        try {
+            return ResponseEntity.ok(userService.getUserSummaries(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @PutMapping("/profile/{userId}")
     public ResponseEntity<?> updateUserProfile(
             @PathVariable Long userId,
@@ -0,0 +1,15 @@
+package com.rummy.exception;
+
+/** An Idempotency-Key that cannot be honoured; {@link #getStatus()} is the HTTP status to answer with. */
+public class IdempotencyConflictException extends RuntimeException {
+    private final int status;
+
+    public IdempotencyConflictException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,160 @@
+package com.rummy.filter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    @Value("${concurrency.limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${concurrency.limit.global.initial:100}")
+    private int globalInitialLimit;
+
+    @Value("${concurrency.limit.global.max:400}")
+    private int globalMaxLimit;
+
+    @Value("${concurrency.limit.endpoint.initial:40}")
+    private int endpointInitialLimit;
+
+    @Value("${concurrency.limit.endpoint.max:200}")
+    private int endpointMaxLimit;
+
+    @Value("${concurrency.limit.kyc-upload.max:20}")
+    private int kycUploadMaxLimit;
+
+    @Value("${concurrency.limit.min:4}")
+    private int minLimit;
+
+    @Value("${concurrency.limit.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
+    private AdaptiveConcurrencyLimiter globalLimiter;
+    private final Map<EndpointClass, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(EndpointClass.class);
+
+    @PostConstruct
+    public void init() {
+        globalLimiter = new AdaptiveConcurrencyLimiter("global", globalInitialLimit, minLimit, globalMaxLimit);
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            int max = endpointClass == EndpointClass.KYC_UPLOAD ? kycUploadMaxLimit : endpointMaxLimit;
+            limiters.put(endpointClass, new AdaptiveConcurrencyLimiter(
+                    endpointClass.name(), Math.min(endpointInitialLimit, max), Math.min(minLimit, max), max));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!enabled) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        EndpointClass endpointClass = EndpointClass.classify(request.getRequestURI());
+        AdaptiveConcurrencyLimiter limiter = limiters.get(endpointClass);
+
+        if (!globalLimiter.tryAcquire(endpointClass.getShare())) {
+            reject(response, endpointClass);
+            return;
+        }
+        if (!limiter.tryAcquire()) {
+            globalLimiter.releaseWithoutSample();
+            reject(response, endpointClass);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Long-lived streams say nothing about backend latency
+                limiter.releaseWithoutSample();
+                globalLimiter.releaseWithoutSample();
+            } else {
+                long rtt = System.nanoTime() - start;
+                boolean dropped = isOverload(request, response, failure);
+                limiter.release(rtt, dropped);
+                globalLimiter.release(rtt, dropped);
+            }
+        }
+    }
+
+    /**
+     * Only overload backs the limit off: a 503 or 504, or a request that failed
+     * on a timeout somewhere below, such as waiting for a pooled connection.
+     * Other errors, a 500 from a bug or bad input, are not relieved by shedding.
+     */
+    private static boolean isOverload(HttpServletRequest request, HttpServletResponse response, Throwable failure) {
+        int status = response.getStatus();
+        if (status == HttpStatus.SERVICE_UNAVAILABLE.value() || status == HttpStatus.GATEWAY_TIMEOUT.value()) {
+            return true;
+        }
+        if (failure == null) {
+            // Exceptions resolved into an error response by Spring MVC
+            Object resolved = request.getAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE);
+            if (resolved == null) {
+                resolved = request.getAttribute(WebUtils.ERROR_EXCEPTION_ATTRIBUTE);
+            }
+            failure = resolved instanceof Throwable ? (Throwable) resolved : null;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException
+                    || cause instanceof SocketTimeoutException
+                    || cause instanceof SQLTimeoutException
+                    || cause instanceof SQLTransientConnectionException
+                    || cause instanceof QueryTimeoutException
+                    || cause instanceof TransactionTimedOutException
+                    || cause instanceof jakarta.persistence.QueryTimeoutException
+                    || cause instanceof LockTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reject(HttpServletResponse response, EndpointClass endpointClass) throws IOException {
+        logger.debug("Shedding " + endpointClass + " request, global limit " + globalLimiter.getLimit()
+                + ", in flight " + globalLimiter.getInFlight());
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType("text/plain");
+        response.getWriter().write("Server busy, please retry later");
+    }
+
+    public AdaptiveConcurrencyLimiter getGlobalLimiter() {
+        return globalLimiter;
+    }
+
+    public AdaptiveConcurrencyLimiter getLimiter(EndpointClass endpointClass) {
+        return limiters.get(endpointClass);
+    }
+}
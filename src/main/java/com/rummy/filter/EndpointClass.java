@@ -0,0 +1,41 @@
+package com.rummy.filter;
+
+public enum EndpointClass {
+    // share = fraction of the global limit this class may occupy; lower share is shed first
+    AUTH(1.0),
+    PROFILE(0.9),
+    FRAUD(0.8),
+    OTHER(0.7),
+    KYC_UPLOAD(0.5);
+
+    private final double share;
+
+    EndpointClass(double share) {
+        this.share = share;
+    }
+
+    public double getShare() {
+        return share;
+    }
+
+    public static EndpointClass classify(String path) {
+        if (path == null) {
+            return OTHER;
+        }
+        if (path.startsWith("/api/users/login")
+                || path.equals("/api/users/register")
+                || path.equals("/api/users/verify-otp")) {
+            return AUTH;
+        }
+        if (path.startsWith("/api/kyc/upload")) {
+            return KYC_UPLOAD;
+        }
+        if (path.equals("/api/user/flag-fraud") || path.contains("fraud-reports")) {
+            return FRAUD;
+        }
+        if (path.startsWith("/api/users/profile")) {
+            return PROFILE;
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,225 @@
+package com.rummy.filter;
+
+import com.rummy.exception.IdempotencyConflictException;
+import com.rummy.service.IdempotencyService;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Honours the {@code Idempotency-Key} header on the configured POST endpoints
+ * through {@link IdempotencyService}: the first request executes and its
+ * response is captured, later ones get that response replayed with
+ * {@code Idempotent-Replayed: true}. Keys are scoped to the caller and path.
+ * Runs after Spring Security so unauthenticated requests never claim a key,
+ * and inside {@code SqlStatementFilter} so its statements count toward the endpoint.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 2)
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Value("${idempotency.paths:/api/users/register,/api/kyc/upload-aadhaar,/api/kyc/upload-pan,/api/user/flag-fraud}")
+    private String pathSpec;
+
+    private final Set<String> paths = new HashSet<>();
+
+    @PostConstruct
+    public void init() {
+        for (String path : pathSpec.split(",")) {
+            if (!path.isBlank()) {
+                paths.add(path.trim());
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || request.getHeader(HEADER) == null
+                || !paths.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpServletResponse.SC_BAD_REQUEST,
+                    HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        HttpServletRequest executed = request;
+        MessageDigest fingerprint = sha256();
+        update(fingerprint, request.getMethod());
+        update(fingerprint, request.getRequestURI());
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.toLowerCase().startsWith("multipart/")) {
+            // Files are not re-read here; form fields and the body length identify the upload
+            for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+                update(fingerprint, parameter.getKey() + "=" + Arrays.toString(parameter.getValue()));
+            }
+            update(fingerprint, Long.toString(request.getContentLengthLong()));
+        } else {
+            byte[] body = request.getInputStream().readAllBytes();
+            fingerprint.update(body);
+            executed = new CachedBodyRequest(request, body);
+        }
+        String caller = request.getUserPrincipal() != null ? request.getUserPrincipal().getName() : "";
+        MessageDigest id = sha256();
+        update(id, caller);
+        update(id, request.getRequestURI());
+        update(id, key);
+
+        IdempotencyService.Claim claim;
+        try {
+            claim = idempotencyService.claim(HexFormat.of().formatHex(id.digest()),
+                    HexFormat.of().formatHex(fingerprint.digest()));
+        } catch (IdempotencyConflictException e) {
+            writeError(response, e.getStatus(), e.getMessage());
+            return;
+        }
+        if (!claim.isOwner()) {
+            IdempotencyService.StoredResponse replay = claim.getReplay();
+            response.setStatus(replay.getStatus());
+            if (replay.getContentType() != null) {
+                response.setContentType(replay.getContentType());
+            }
+            response.setHeader("Idempotent-Replayed", "true");
+            byte[] body = replay.getBody() != null ? replay.getBody() : new byte[0];
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+            return;
+        }
+
+        ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(executed, captured);
+        } catch (IOException | ServletException | RuntimeException e) {
+            idempotencyService.fail(claim, e);
+            throw e;
+        }
+        idempotencyService.complete(claim, new IdempotencyService.StoredResponse(captured.getStatus(),
+                captured.getContentType(), captured.getContentAsByteArray()));
+        captured.copyBodyToResponse();
+    }
+
+    private static void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(message);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /** Replays a body that was read up front to fingerprint the request. */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    // The whole body is already in memory, so it is available at once
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
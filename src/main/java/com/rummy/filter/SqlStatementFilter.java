@@ -0,0 +1,50 @@
+package com.rummy.filter;
+
+import com.rummy.jdbc.StatementStats;
+import com.rummy.service.SqlMonitorService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Counts the JDBC statements each request runs on its own thread, including
+ * lazy loads during response serialization, and reports them to
+ * {@link SqlMonitorService}. Work handed to other threads is not attributed.
+ * Runs inside Spring Security, so the user lookup of HTTP Basic authentication
+ * is not charged to the endpoint, and outside {@link IdempotencyFilter}, whose
+ * claims are.
+ */
+@Component
+@Profile("!prod")
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 1)
+public class SqlStatementFilter extends OncePerRequestFilter {
+    @Autowired
+    private SqlMonitorService sqlMonitorService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementStats stats = StatementStats.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            StatementStats.end(stats);
+            sqlMonitorService.complete(endpoint(request), stats);
+        }
+    }
+
+    static String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : "unmapped");
+    }
+}
@@ -0,0 +1,51 @@
+package com.rummy.filter;
+
+import com.rummy.jdbc.StatementStats;
+import com.rummy.service.SqlMonitorService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds {@code X-SQL-Statements}, {@code X-SQL-Time-Ms} and {@code X-SQL-Repeated}
+ * (most runs of one statement shape) to controller responses. Headers must be
+ * set before the body is written, so they cover the handler but not lazy loads
+ * during serialization; the metrics from {@link SqlStatementFilter} cover both.
+ */
+@RestControllerAdvice
+@Profile("!prod")
+public class SqlStatementHeaderAdvice implements ResponseBodyAdvice<Object> {
+    @Autowired
+    private SqlMonitorService sqlMonitorService;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        StatementStats stats = StatementStats.current();
+        if (stats == null) {
+            return body;
+        }
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            HttpServletRequest servlet = servletRequest.getServletRequest();
+            sqlMonitorService.checkBudget(SqlStatementFilter.endpoint(servlet), stats);
+        }
+        response.getHeaders().set("X-SQL-Statements", Integer.toString(stats.getStatements()));
+        response.getHeaders().set("X-SQL-Time-Ms", Long.toString(stats.getNanos() / 1_000_000));
+        response.getHeaders().set("X-SQL-Repeated", Integer.toString(stats.getMostRepeatedCount()));
+        return body;
+    }
+}
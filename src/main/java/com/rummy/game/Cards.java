@@ -0,0 +1,70 @@
+package com.rummy.game;
+
+/**
+ * Cards are plain ints: {@code suit * 13 + rank} for the 52 regular cards
+ * (rank 0 is the ace, 12 the king) and {@link #JOKER} for a printed joker.
+ */
+public final class Cards {
+    public static final int SUITS = 4;
+    public static final int RANKS = 13;
+    public static final int DECK_SIZE = SUITS * RANKS;
+    public static final int JOKER = DECK_SIZE;
+    public static final int NO_WILD_RANK = -1;
+
+    private static final String RANK_NAMES = "A23456789TJQK";
+    private static final String SUIT_NAMES = "SHDC";
+
+    private Cards() {
+    }
+
+    public static int of(int suit, int rank) {
+        if (suit < 0 || suit >= SUITS || rank < 0 || rank >= RANKS) {
+            throw new IllegalArgumentException("Invalid card: suit " + suit + ", rank " + rank);
+        }
+        return suit * RANKS + rank;
+    }
+
+    public static int suit(int card) {
+        return card / RANKS;
+    }
+
+    public static int rank(int card) {
+        return card % RANKS;
+    }
+
+    public static boolean isJoker(int card) {
+        return card == JOKER;
+    }
+
+    /** Deadwood value of a rank: aces and face cards count 10, others their face value. */
+    public static int points(int rank) {
+        return rank == 0 || rank >= 9 ? 10 : rank + 1;
+    }
+
+    /** Parses cards such as "AS", "TH", "10D", "KC" or "JK" for a printed joker. */
+    public static int parse(String text) {
+        String value = text.trim().toUpperCase();
+        if (value.equals("JK")) {
+            return JOKER;
+        }
+        if (value.length() == 3 && value.startsWith("10")) {
+            value = "T" + value.charAt(2);
+        }
+        if (value.length() != 2) {
+            throw new IllegalArgumentException("Invalid card: " + text);
+        }
+        int rank = RANK_NAMES.indexOf(value.charAt(0));
+        int suit = SUIT_NAMES.indexOf(value.charAt(1));
+        if (rank < 0 || suit < 0) {
+            throw new IllegalArgumentException("Invalid card: " + text);
+        }
+        return of(suit, rank);
+    }
+
+    public static String toString(int card) {
+        if (card == JOKER) {
+            return "JK";
+        }
+        return "" + RANK_NAMES.charAt(rank(card)) + SUIT_NAMES.charAt(suit(card));
+    }
+}
@@ -0,0 +1,323 @@
+package com.rummy.game;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Hash-chained log of every deal, one tab-separated line per record. A deal
+ * commits to its seed without disclosing it:
+ * {@code seq, epochMillis, D, tableId, userIds, sha256(seed), deckHash, prevHash, hash}.
+ * Once the table is over, a reveal record publishes the seed:
+ * {@code seq, epochMillis, R, tableId, seed, prevHash, hash}, or for a table
+ * played to the end {@code seq, epochMillis, R, tableId, seed, winnerUserId, winnings, prevHash, hash},
+ * which is also where the winnings leaderboards are rebuilt from.
+ * Each hash covers its line's other fields including the previous hash, so
+ * removing or editing a record breaks the chain. {@link #verify(Path)} checks
+ * the chain offline and, for every revealed deal, that the seed matches the
+ * commitment and recomputes the deck.
+ */
+public final class DealAuditLog implements AutoCloseable {
+    private static final HexFormat HEX = HexFormat.of();
+    private static final String GENESIS = "0".repeat(64);
+    private static final String DEAL = "D";
+    private static final String REVEAL = "R";
+    private static final int DEAL_FIELDS = 9;
+    private static final int REVEAL_FIELDS = 7;
+    private static final int RESULT_REVEAL_FIELDS = 9;
+
+    public interface ResultHandler {
+        void onResult(long epochMillis, long tableId, long winnerUserId, long winnings);
+    }
+
+    private final BufferedWriter writer;
+    private final MessageDigest sha256 = newSha256();
+    private long seq;
+    private String lastHash;
+    private long lastTableId;
+
+    public DealAuditLog(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        seq = 0;
+        lastHash = GENESIS;
+        String[] tail = recoverTail(file);
+        if (tail[0] != null) {
+            String[] fields = parse(tail[0]);
+            if (fields == null) {
+                throw new IOException("Corrupt last record in deal audit log " + file);
+            }
+            seq = Long.parseLong(fields[0]);
+            lastHash = fields[fields.length - 1];
+        }
+        if (tail[1] != null) {
+            lastTableId = Long.parseLong(tail[1].split("\t")[3]);
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /** Appends a deal record committing to the seed and returns its chain hash. */
+    public synchronized String append(long tableId, long[] userIds, byte[] seed, byte[] deck) throws IOException {
+        String hash = write(DEAL + "\t" + tableId + "\t" + join(userIds) + "\t" + HEX.formatHex(sha256.digest(seed))
+                + "\t" + HEX.formatHex(sha256.digest(deck)));
+        lastTableId = tableId;
+        return hash;
+    }
+
+    /** Appends the reveal of a dealt table's seed and returns its chain hash. */
+    public synchronized String reveal(long tableId, byte[] seed) throws IOException {
+        return write(REVEAL + "\t" + tableId + "\t" + HEX.formatHex(seed));
+    }
+
+    /** Appends the reveal of a finished table's seed together with its result. */
+    public synchronized String reveal(long tableId, byte[] seed, long winnerUserId, long winnings) throws IOException {
+        return write(REVEAL + "\t" + tableId + "\t" + HEX.formatHex(seed) + "\t" + winnerUserId + "\t" + winnings);
+    }
+
+    private String write(String record) throws IOException {
+        String body = (seq + 1) + "\t" + System.currentTimeMillis() + "\t" + record + "\t" + lastHash;
+        String hash = HEX.formatHex(sha256.digest(body.getBytes(StandardCharsets.UTF_8)));
+        writer.write(body);
+        writer.write('\t');
+        writer.write(hash);
+        writer.newLine();
+        writer.flush();
+        seq++;
+        lastHash = hash;
+        return hash;
+    }
+
+    public synchronized long getSeq() {
+        return seq;
+    }
+
+    /** Table id of the newest deal, or 0 for an empty log; table ids only grow. */
+    public synchronized long getLastTableId() {
+        return lastTableId;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Checks every record: sequence continuity and the chain hash, and for each
+     * reveal that the seed matches its deal's commitment and reproduces the deck.
+     * Returns the number of deals verified; deals of tables still in play have no
+     * reveal yet and are only checked for their place in the chain.
+     *
+     * @throws IllegalStateException describing the first record that fails
+     */
+    public static long verify(Path file) throws IOException {
+        MessageDigest sha256 = newSha256();
+        DeckShuffler shuffler = new DeckShuffler();
+        byte[] deck = new byte[GameTable.DECK_SIZE];
+        // tableId -> [seed commitment, deck hash]; a crash can repeat a reveal, which must match too
+        Map<Long, String[]> deals = new HashMap<>();
+        Set<Long> revealed = new HashSet<>();
+        String previous = GENESIS;
+        long expectedSeq = 1;
+        long verified = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length < 4 || !isRecord(fields)) {
+                    throw new IllegalStateException("Malformed audit record at " + expectedSeq);
+                }
+                if (Long.parseLong(fields[0]) != expectedSeq) {
+                    throw new IllegalStateException("Missing or reordered record before " + fields[0]);
+                }
+                if (!fields[fields.length - 2].equals(previous)) {
+                    throw new IllegalStateException("Broken chain at record " + fields[0]);
+                }
+                String body = line.substring(0, line.lastIndexOf('\t'));
+                if (!HEX.formatHex(sha256.digest(body.getBytes(StandardCharsets.UTF_8))).equals(fields[fields.length - 1])) {
+                    throw new IllegalStateException("Tampered record " + fields[0]);
+                }
+                long tableId = Long.parseLong(fields[3]);
+                if (fields[2].equals(DEAL)) {
+                    if (deals.putIfAbsent(tableId, new String[] {fields[5], fields[6]}) != null) {
+                        throw new IllegalStateException("Table " + tableId + " dealt twice at record " + fields[0]);
+                    }
+                } else {
+                    String[] deal = deals.get(tableId);
+                    if (deal == null) {
+                        throw new IllegalStateException("Reveal without a deal at record " + fields[0]);
+                    }
+                    byte[] seed = HEX.parseHex(fields[4]);
+                    if (!HEX.formatHex(sha256.digest(seed)).equals(deal[0])) {
+                        throw new IllegalStateException("Seed does not match commitment at record " + fields[0]);
+                    }
+                    shuffler.shuffle(seed, deck);
+                    if (!HEX.formatHex(sha256.digest(deck)).equals(deal[1])) {
+                        throw new IllegalStateException("Deck does not match seed at record " + fields[0]);
+                    }
+                    if (revealed.add(tableId)) {
+                        verified++;
+                    }
+                }
+                previous = fields[fields.length - 1];
+                expectedSeq++;
+            }
+        }
+        return verified;
+    }
+
+    /** Offline verification: {@code java -cp <classpath> com.rummy.game.DealAuditLog <audit-file>}. */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: DealAuditLog <audit-file>");
+            System.exit(2);
+        }
+        try {
+            System.out.println("verified " + verify(Paths.get(args[0])) + " revealed deals");
+        } catch (IllegalStateException e) {
+            System.err.println("audit verification failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static String join(long[] userIds) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < userIds.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(userIds[i]);
+        }
+        return builder.toString();
+    }
+
+    /** The line's fields if it is a complete deal or reveal record with a matching hash, else null. */
+    private static String[] parse(String line) {
+        String[] fields = line.split("\t");
+        if (fields.length < 4 || !isRecord(fields)) {
+            return null;
+        }
+        String body = line.substring(0, line.lastIndexOf('\t'));
+        MessageDigest sha256 = newSha256();
+        return HEX.formatHex(sha256.digest(body.getBytes(StandardCharsets.UTF_8))).equals(fields[fields.length - 1])
+                ? fields : null;
+    }
+
+    private static boolean isRecord(String[] fields) {
+        return fields[2].equals(DEAL) && fields.length == DEAL_FIELDS
+                || fields[2].equals(REVEAL) && (fields.length == REVEAL_FIELDS || fields.length == RESULT_REVEAL_FIELDS);
+    }
+
+    /**
+     * Visits the results revealed at or after {@code sinceMillis}, newest first.
+     * The file is read backwards and the scan stops at the first older record,
+     * so the cost follows the span asked for rather than the age of the log. A
+     * crash can repeat a reveal, so a table may be visited more than once.
+     */
+    public static void readResultsSince(Path file, long sinceMillis, ResultHandler handler) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            scanBackwards(raf, raf.length(), line -> {
+                String[] fields = line.split("\t");
+                if (fields.length < 4 || !isRecord(fields)) {
+                    return true;
+                }
+                long epochMillis = Long.parseLong(fields[1]);
+                if (epochMillis < sinceMillis) {
+                    return false;
+                }
+                if (fields[2].equals(REVEAL) && fields.length == RESULT_REVEAL_FIELDS) {
+                    handler.onResult(epochMillis, Long.parseLong(fields[3]), Long.parseLong(fields[5]),
+                            Long.parseLong(fields[6]));
+                }
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Cuts off a torn last line left by a crash mid-append, then returns the last
+     * record and the last deal record, either null if there is none. A deal is
+     * usually a few lines from the end, so the file is read backwards in blocks.
+     */
+    private static String[] recoverTail(Path file) throws IOException {
+        String[] tail = new String[2];
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            return tail;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long end = raf.length();
+            long complete = end;
+            while (complete > 0) {
+                raf.seek(complete - 1);
+                if (raf.read() == '\n') {
+                    break;
+                }
+                complete--;
+            }
+            if (complete < end) {
+                // The append never returned, so its deal never reached a table
+                raf.setLength(complete);
+            }
+            scanBackwards(raf, complete, line -> {
+                if (tail[0] == null) {
+                    tail[0] = line;
+                }
+                String[] head = line.split("\t", 4);
+                if (head.length == 4 && head[2].equals(DEAL)) {
+                    tail[1] = line;
+                }
+                return tail[1] == null;
+            });
+        }
+        return tail;
+    }
+
+    /** Passes the lines before {@code end} to {@code visitor}, last first, until it returns false. */
+    private static void scanBackwards(RandomAccessFile raf, long end, Predicate<String> visitor) throws IOException {
+        // Records are ASCII, so splitting raw bytes on newlines is safe
+        String carry = "";
+        long position = end;
+        while (position > 0) {
+            int window = (int) Math.min(position, 65536);
+            byte[] block = new byte[window];
+            position -= window;
+            raf.seek(position);
+            raf.readFully(block);
+            String[] lines = (new String(block, StandardCharsets.US_ASCII) + carry).split("\n");
+            // Unless this block starts the file, its first line may continue in the block before
+            int first = position > 0 ? 1 : 0;
+            carry = position > 0 && lines.length > 0 ? lines[0] : "";
+            for (int i = lines.length - 1; i >= first; i--) {
+                if (!lines[i].isEmpty() && !visitor.test(lines[i])) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
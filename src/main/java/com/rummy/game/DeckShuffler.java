@@ -0,0 +1,95 @@
+package com.rummy.game;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Expands a seed into a Fisher-Yates shuffle of the {@link GameTable#DECK_SIZE}
+ * card deck. Random words come from SHA-256 in counter mode over the seed, so
+ * anyone holding the seed can recompute the exact deck, and bounded draws use
+ * rejection sampling so every permutation is equally likely.
+ *
+ * <p>Not thread-safe; each thread needs its own shuffler.
+ */
+public final class DeckShuffler {
+    public static final int SEED_BYTES = 32;
+
+    private final MessageDigest sha256;
+    private final byte[] block = new byte[32];
+    private final byte[] counterBytes = new byte[8];
+    private byte[] seed;
+    private long counter;
+    private int blockPosition;
+
+    public DeckShuffler() {
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** Fills {@code deck} with the shuffle determined by {@code seed}. */
+    public void shuffle(byte[] seed, byte[] deck) {
+        if (deck.length != GameTable.DECK_SIZE) {
+            throw new IllegalArgumentException("Deck must have " + GameTable.DECK_SIZE + " cards");
+        }
+        this.seed = seed;
+        this.counter = 0;
+        this.blockPosition = block.length;
+
+        int position = 0;
+        for (int copy = 0; copy < 2; copy++) {
+            for (int card = 0; card < Cards.DECK_SIZE; card++) {
+                deck[position++] = (byte) card;
+            }
+        }
+        while (position < deck.length) {
+            deck[position++] = (byte) Cards.JOKER;
+        }
+        for (int i = deck.length - 1; i > 0; i--) {
+            int j = nextInt(i + 1);
+            byte swap = deck[i];
+            deck[i] = deck[j];
+            deck[j] = swap;
+        }
+    }
+
+    private int nextInt(int bound) {
+        int bits;
+        int value;
+        do {
+            bits = next31();
+            value = bits % bound;
+        } while (bits - value + (bound - 1) < 0);
+        return value;
+    }
+
+    private int next31() {
+        if (blockPosition + 4 > block.length) {
+            refill();
+        }
+        int word = ((block[blockPosition] & 0xFF) << 24)
+                | ((block[blockPosition + 1] & 0xFF) << 16)
+                | ((block[blockPosition + 2] & 0xFF) << 8)
+                | (block[blockPosition + 3] & 0xFF);
+        blockPosition += 4;
+        return word >>> 1;
+    }
+
+    private void refill() {
+        long value = counter++;
+        for (int i = 7; i >= 0; i--) {
+            counterBytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        sha256.update(seed);
+        sha256.update(counterBytes);
+        try {
+            sha256.digest(block, 0, block.length);
+        } catch (java.security.DigestException e) {
+            throw new IllegalStateException("SHA-256 digest failed", e);
+        }
+        blockPosition = 0;
+    }
+}
@@ -0,0 +1,455 @@
+package com.rummy.game;
+
+import java.nio.ByteBuffer;
+
+/**
+ * State of one 13-card rummy table, changed only by applying events. Live moves
+ * validate, emit an event through an {@link EventSink} and then apply that same
+ * event, so replaying the log after a crash rebuilds exactly the same state.
+ *
+ * <p>A table is owned by a single event-loop thread and is not thread-safe.
+ */
+public final class GameTable {
+    public static final int DECK_SIZE = 2 * Cards.DECK_SIZE + 2;
+    public static final int HAND_SIZE = 13;
+    public static final int MAX_SEATS = 6;
+    public static final int FIRST_DROP_PENALTY = 20;
+    public static final int MIDDLE_DROP_PENALTY = 40;
+
+    public static final byte CREATED = 1;
+    public static final byte DEALT = 2;
+    public static final byte DRAW = 3;
+    public static final byte DISCARD = 4;
+    public static final byte DECLARE = 5;
+    public static final byte DROP = 6;
+
+    public static final int STATUS_WAITING_DEAL = 0;
+    public static final int STATUS_PLAYING = 1;
+    public static final int STATUS_FINISHED = 2;
+
+    /** Receives each event before it is applied; the payload is positioned at its start. */
+    public interface EventSink {
+        ByteBuffer begin();
+
+        void append(long tableId, long seq, byte type, ByteBuffer payload);
+    }
+
+    private final long tableId;
+    private final HandEvaluator[] evaluators;
+
+    private long seq;
+    private int status = STATUS_WAITING_DEAL;
+    private long stake;
+    private long[] userIds = new long[0];
+    private Hand[] hands = new Hand[0];
+    private boolean[] active = new boolean[0];
+    private boolean[] played = new boolean[0];
+    private int[] scores = new int[0];
+    private final byte[] deck = new byte[DECK_SIZE];
+    private int stockPosition;
+    private final byte[] discards = new byte[DECK_SIZE];
+    private int discardCount;
+    private int wildRank = Cards.NO_WILD_RANK;
+    private int currentSeat;
+    private boolean drawn;
+    private int winnerSeat = -1;
+    private int lastDrawnCard = -1;
+
+    /**
+     * @param evaluators one evaluator per wild rank, indexed by {@code wildRank + 1};
+     *                   see {@link #newEvaluators()}
+     */
+    public GameTable(long tableId, HandEvaluator[] evaluators) {
+        this.tableId = tableId;
+        this.evaluators = evaluators;
+    }
+
+    public static HandEvaluator[] newEvaluators() {
+        HandEvaluator[] evaluators = new HandEvaluator[Cards.RANKS + 1];
+        for (int rank = Cards.NO_WILD_RANK; rank < Cards.RANKS; rank++) {
+            evaluators[rank + 1] = new HandEvaluator(rank);
+        }
+        return evaluators;
+    }
+
+    // ---- commands: validate, then emit and apply ----
+
+    public void create(long stake, long[] userIds, EventSink sink) {
+        if (seq != 0) {
+            throw new IllegalStateException("Table " + tableId + " already created");
+        }
+        if (userIds.length < 2 || userIds.length > MAX_SEATS) {
+            throw new IllegalArgumentException("Tables seat between 2 and " + MAX_SEATS + " players");
+        }
+        ByteBuffer payload = sink.begin();
+        payload.putLong(stake);
+        payload.put((byte) userIds.length);
+        for (long userId : userIds) {
+            payload.putLong(userId);
+        }
+        emit(CREATED, payload, sink);
+    }
+
+    public void deal(byte[] deckOrder, EventSink sink) {
+        if (status != STATUS_WAITING_DEAL || userIds.length == 0) {
+            throw new IllegalArgumentException("Table is not waiting for a deal");
+        }
+        if (deckOrder.length != DECK_SIZE) {
+            throw new IllegalArgumentException("Deck must have " + DECK_SIZE + " cards");
+        }
+        ByteBuffer payload = sink.begin();
+        payload.put(deckOrder);
+        emit(DEALT, payload, sink);
+    }
+
+    /** Draws from the stock or the discard pile and returns the card drawn. */
+    public int draw(long userId, boolean fromDiscard, EventSink sink) {
+        int seat = requireTurn(userId);
+        if (drawn) {
+            throw new IllegalArgumentException("Card already drawn this turn");
+        }
+        if (fromDiscard ? discardCount == 0 : stockPosition == DECK_SIZE && discardCount < 2) {
+            throw new IllegalArgumentException("No card to draw");
+        }
+        ByteBuffer payload = sink.begin();
+        payload.put((byte) seat);
+        payload.put((byte) (fromDiscard ? 1 : 0));
+        emit(DRAW, payload, sink);
+        return lastDrawnCard;
+    }
+
+    public void discard(long userId, int card, EventSink sink) {
+        int seat = requireDrawn(userId, card);
+        ByteBuffer payload = sink.begin();
+        payload.put((byte) seat);
+        payload.put((byte) card);
+        emit(DISCARD, payload, sink);
+    }
+
+    /** Sets {@code card} aside and shows the remaining 13; returns whether the show was valid. */
+    public boolean declare(long userId, int card, EventSink sink) {
+        int seat = requireDrawn(userId, card);
+        ByteBuffer payload = sink.begin();
+        payload.put((byte) seat);
+        payload.put((byte) card);
+        emit(DECLARE, payload, sink);
+        return winnerSeat == seat;
+    }
+
+    public void drop(long userId, EventSink sink) {
+        if (status != STATUS_PLAYING) {
+            throw new IllegalArgumentException("Game is not in progress");
+        }
+        int seat = seatOf(userId);
+        if (!active[seat]) {
+            throw new IllegalArgumentException("Player already out");
+        }
+        ByteBuffer payload = sink.begin();
+        payload.put((byte) seat);
+        emit(DROP, payload, sink);
+    }
+
+    private void emit(byte type, ByteBuffer payload, EventSink sink) {
+        payload.flip();
+        sink.append(tableId, seq + 1, type, payload);
+        payload.rewind();
+        apply(seq + 1, type, payload);
+    }
+
+    // ---- event application ----
+
+    /** Applies an event; events at or below the current sequence are already reflected and skipped. */
+    public void apply(long eventSeq, byte type, ByteBuffer payload) {
+        if (eventSeq <= seq) {
+            return;
+        }
+        seq = eventSeq;
+        switch (type) {
+            case CREATED -> applyCreated(payload);
+            case DEALT -> applyDealt(payload);
+            case DRAW -> applyDraw(payload.get(), payload.get() != 0);
+            case DISCARD -> applyDiscard(payload.get(), payload.get());
+            case DECLARE -> applyDeclare(payload.get(), payload.get());
+            case DROP -> applyDrop(payload.get());
+            default -> throw new IllegalStateException("Unknown table event type " + type);
+        }
+    }
+
+    private void applyCreated(ByteBuffer payload) {
+        stake = payload.getLong();
+        int seats = payload.get();
+        userIds = new long[seats];
+        hands = new Hand[seats];
+        active = new boolean[seats];
+        played = new boolean[seats];
+        scores = new int[seats];
+        for (int seat = 0; seat < seats; seat++) {
+            userIds[seat] = payload.getLong();
+            hands[seat] = new Hand();
+            active[seat] = true;
+        }
+    }
+
+    private void applyDealt(ByteBuffer payload) {
+        payload.get(deck);
+        int position = 0;
+        int indicator = deck[position++];
+        // A printed joker as the indicator makes aces wild
+        wildRank = indicator == Cards.JOKER ? 0 : Cards.rank(indicator);
+        for (int round = 0; round < HAND_SIZE; round++) {
+            for (Hand hand : hands) {
+                hand.add(deck[position++]);
+            }
+        }
+        discards[0] = deck[position++];
+        discardCount = 1;
+        stockPosition = position;
+        currentSeat = 0;
+        drawn = false;
+        status = STATUS_PLAYING;
+    }
+
+    private void applyDraw(int seat, boolean fromDiscard) {
+        int card;
+        if (fromDiscard) {
+            card = discards[--discardCount];
+        } else {
+            if (stockPosition == DECK_SIZE) {
+                recycleDiscards();
+            }
+            card = deck[stockPosition++];
+        }
+        hands[seat].add(card);
+        lastDrawnCard = card;
+        drawn = true;
+        played[seat] = true;
+    }
+
+    /** Turns all but the top discard back into stock, in discard order, so replay stays deterministic. */
+    private void recycleDiscards() {
+        int recycled = discardCount - 1;
+        stockPosition = DECK_SIZE - recycled;
+        System.arraycopy(discards, 0, deck, stockPosition, recycled);
+        discards[0] = discards[discardCount - 1];
+        discardCount = 1;
+    }
+
+    private void applyDiscard(int seat, int card) {
+        hands[seat].remove(card);
+        discards[discardCount++] = (byte) card;
+        drawn = false;
+        advanceTurn();
+    }
+
+    private void applyDeclare(int seat, int card) {
+        hands[seat].remove(card);
+        discards[discardCount++] = (byte) card;
+        drawn = false;
+        HandEvaluator evaluator = evaluators[wildRank + 1];
+        if (evaluator.isValidDeclaration(hands[seat])) {
+            winnerSeat = seat;
+            scores[seat] = 0;
+            for (int other = 0; other < hands.length; other++) {
+                if (other != seat && active[other]) {
+                    scores[other] = evaluator.evaluate(hands[other]);
+                }
+            }
+            status = STATUS_FINISHED;
+            return;
+        }
+        scores[seat] = HandEvaluator.MAX_DEADWOOD;
+        active[seat] = false;
+        finishIfOneLeft();
+        if (status == STATUS_PLAYING) {
+            advanceTurn();
+        }
+    }
+
+    private void applyDrop(int seat) {
+        scores[seat] = played[seat] ? MIDDLE_DROP_PENALTY : FIRST_DROP_PENALTY;
+        active[seat] = false;
+        if (seat == currentSeat) {
+            if (drawn) {
+                // Return the drawn card so the discard pile stays consistent
+                discards[discardCount++] = (byte) lastDrawnCard;
+                hands[seat].remove(lastDrawnCard);
+                drawn = false;
+            }
+            finishIfOneLeft();
+            if (status == STATUS_PLAYING) {
+                advanceTurn();
+            }
+        } else {
+            finishIfOneLeft();
+        }
+    }
+
+    private void finishIfOneLeft() {
+        int remaining = 0;
+        int last = -1;
+        for (int seat = 0; seat < active.length; seat++) {
+            if (active[seat]) {
+                remaining++;
+                last = seat;
+            }
+        }
+        if (remaining == 1) {
+            winnerSeat = last;
+            scores[last] = 0;
+            status = STATUS_FINISHED;
+        }
+    }
+
+    private void advanceTurn() {
+        do {
+            currentSeat = (currentSeat + 1) % active.length;
+        } while (!active[currentSeat]);
+    }
+
+    private int requireTurn(long userId) {
+        if (status != STATUS_PLAYING) {
+            throw new IllegalArgumentException("Game is not in progress");
+        }
+        int seat = seatOf(userId);
+        if (seat != currentSeat) {
+            throw new IllegalArgumentException("Not your turn");
+        }
+        return seat;
+    }
+
+    private int requireDrawn(long userId, int card) {
+        int seat = requireTurn(userId);
+        if (!drawn) {
+            throw new IllegalArgumentException("Draw a card first");
+        }
+        if (card < 0 || card > Cards.JOKER || hands[seat].count(card) == 0) {
+            throw new IllegalArgumentException("Card not in hand");
+        }
+        return seat;
+    }
+
+    public int seatOf(long userId) {
+        for (int seat = 0; seat < userIds.length; seat++) {
+            if (userIds[seat] == userId) {
+                return seat;
+            }
+        }
+        throw new IllegalArgumentException("User is not seated at this table");
+    }
+
+    // ---- snapshots ----
+
+    public void writeSnapshot(ByteBuffer out) {
+        out.putLong(tableId);
+        out.putLong(seq);
+        out.put((byte) status);
+        out.putLong(stake);
+        out.put((byte) userIds.length);
+        for (int seat = 0; seat < userIds.length; seat++) {
+            out.putLong(userIds[seat]);
+            out.putLong(hands[seat].getFirst());
+            out.putLong(hands[seat].getSecond());
+            out.put((byte) hands[seat].getPrintedJokers());
+            out.put((byte) (active[seat] ? 1 : 0));
+            out.put((byte) (played[seat] ? 1 : 0));
+            out.putShort((short) scores[seat]);
+        }
+        out.put(deck);
+        out.put((byte) stockPosition);
+        out.put((byte) discardCount);
+        out.put(discards, 0, discardCount);
+        out.put((byte) wildRank);
+        out.put((byte) currentSeat);
+        out.put((byte) (drawn ? 1 : 0));
+        out.put((byte) winnerSeat);
+        out.put((byte) lastDrawnCard);
+    }
+
+    public static GameTable readSnapshot(ByteBuffer in, HandEvaluator[] evaluators) {
+        GameTable table = new GameTable(in.getLong(), evaluators);
+        table.seq = in.getLong();
+        table.status = in.get();
+        table.stake = in.getLong();
+        int seats = in.get();
+        table.userIds = new long[seats];
+        table.hands = new Hand[seats];
+        table.active = new boolean[seats];
+        table.played = new boolean[seats];
+        table.scores = new int[seats];
+        for (int seat = 0; seat < seats; seat++) {
+            table.userIds[seat] = in.getLong();
+            table.hands[seat] = Hand.fromBits(in.getLong(), in.getLong(), in.get());
+            table.active[seat] = in.get() != 0;
+            table.played[seat] = in.get() != 0;
+            table.scores[seat] = in.getShort();
+        }
+        in.get(table.deck);
+        table.stockPosition = in.get() & 0xFF;
+        table.discardCount = in.get() & 0xFF;
+        in.get(table.discards, 0, table.discardCount);
+        table.wildRank = in.get();
+        table.currentSeat = in.get();
+        table.drawn = in.get() != 0;
+        table.winnerSeat = in.get();
+        table.lastDrawnCard = in.get();
+        return table;
+    }
+
+    // ---- accessors ----
+
+    public long getTableId() {
+        return tableId;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean isFinished() {
+        return status == STATUS_FINISHED;
+    }
+
+    public long getStake() {
+        return stake;
+    }
+
+    public long[] getUserIds() {
+        return userIds.clone();
+    }
+
+    public Hand getHand(int seat) {
+        return hands[seat];
+    }
+
+    public int getScore(int seat) {
+        return scores[seat];
+    }
+
+    public boolean isActive(int seat) {
+        return active[seat];
+    }
+
+    public int getWildRank() {
+        return wildRank;
+    }
+
+    public int getCurrentSeat() {
+        return currentSeat;
+    }
+
+    public boolean hasDrawn() {
+        return drawn;
+    }
+
+    public int getTopDiscard() {
+        return discardCount == 0 ? -1 : discards[discardCount - 1];
+    }
+
+    public int getWinnerSeat() {
+        return winnerSeat;
+    }
+}
@@ -0,0 +1,122 @@
+package com.rummy.game;
+
+/**
+ * A hand drawn from two decks, held as bitsets: bit {@code suit * 13 + rank} of
+ * {@code first} is set when at least one copy is held and the same bit of
+ * {@code second} when both copies are. Printed jokers are only counted.
+ */
+public final class Hand {
+    private long first;
+    private long second;
+    private int printedJokers;
+    private int size;
+
+    public static Hand of(int... cards) {
+        Hand hand = new Hand();
+        for (int card : cards) {
+            hand.add(card);
+        }
+        return hand;
+    }
+
+    public static Hand fromBits(long first, long second, int printedJokers) {
+        if ((second & ~first) != 0) {
+            throw new IllegalArgumentException("Second copies must also be held as first copies");
+        }
+        Hand hand = new Hand();
+        hand.first = first;
+        hand.second = second;
+        hand.printedJokers = printedJokers;
+        hand.size = Long.bitCount(first) + Long.bitCount(second) + printedJokers;
+        return hand;
+    }
+
+    public static Hand parse(String cards) {
+        Hand hand = new Hand();
+        for (String card : cards.trim().split("\\s+")) {
+            hand.add(Cards.parse(card));
+        }
+        return hand;
+    }
+
+    public void add(int card) {
+        if (card == Cards.JOKER) {
+            printedJokers++;
+        } else {
+            long bit = 1L << card;
+            if ((second & bit) != 0) {
+                throw new IllegalArgumentException("More than two copies of " + Cards.toString(card));
+            }
+            if ((first & bit) != 0) {
+                second |= bit;
+            } else {
+                first |= bit;
+            }
+        }
+        size++;
+    }
+
+    public boolean remove(int card) {
+        if (card == Cards.JOKER) {
+            if (printedJokers == 0) {
+                return false;
+            }
+            printedJokers--;
+        } else {
+            long bit = 1L << card;
+            if ((second & bit) != 0) {
+                second &= ~bit;
+            } else if ((first & bit) != 0) {
+                first &= ~bit;
+            } else {
+                return false;
+            }
+        }
+        size--;
+        return true;
+    }
+
+    public int count(int card) {
+        if (card == Cards.JOKER) {
+            return printedJokers;
+        }
+        return (int) ((first >>> card) & 1L) + (int) ((second >>> card) & 1L);
+    }
+
+    public void clear() {
+        first = 0;
+        second = 0;
+        printedJokers = 0;
+        size = 0;
+    }
+
+    public long getFirst() {
+        return first;
+    }
+
+    public long getSecond() {
+        return second;
+    }
+
+    public int getPrintedJokers() {
+        return printedJokers;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int card = 0; card < Cards.DECK_SIZE; card++) {
+            for (int i = count(card); i > 0; i--) {
+                builder.append(Cards.toString(card)).append(' ');
+            }
+        }
+        for (int i = printedJokers; i > 0; i--) {
+            builder.append("JK ");
+        }
+        return builder.toString().trim();
+    }
+}
@@ -0,0 +1,322 @@
+package com.rummy.game;
+
+/**
+ * Scores rummy hands: finds the arrangement into pure sequences, impure
+ * sequences and sets that minimises deadwood, assigning printed and wild
+ * jokers optimally.
+ *
+ * <p>Scoring follows the usual 13-card rules: with a pure sequence and at least
+ * two sequences only unmelded cards count; with a pure sequence alone every
+ * card outside pure sequences counts; without a pure sequence every card counts.
+ * Jokers are worth nothing and the score is capped at {@link #MAX_DEADWOOD}.
+ *
+ * <p>Instances keep their search state in fields so evaluation does not allocate.
+ * They are not thread-safe; use one evaluator per thread.
+ */
+public final class HandEvaluator {
+    public static final int MAX_DEADWOOD = 80;
+    public static final int DECLARATION_SIZE = 13;
+
+    private static final int MIN_MELD = 3;
+    private static final int MAX_SET = 4;
+    // Extended sequence positions 0..13, where 13 is the ace played high
+    private static final int ACE_HIGH = Cards.RANKS;
+    private static final long SUIT_MASK = (1L << Cards.RANKS) - 1;
+
+    private final int wildRank;
+
+    private final int[] wild = new int[Cards.SUITS];
+    private int printed;
+    private int totalPoints;
+    private int best;
+    private boolean declarable;
+    private boolean done;
+
+    public HandEvaluator() {
+        this(Cards.NO_WILD_RANK);
+    }
+
+    /**
+     * @param wildRank rank whose cards act as jokers for this game, or
+     *                 {@link Cards#NO_WILD_RANK} when only printed jokers are wild
+     */
+    public HandEvaluator(int wildRank) {
+        if (wildRank < Cards.NO_WILD_RANK || wildRank >= Cards.RANKS) {
+            throw new IllegalArgumentException("Invalid wild rank: " + wildRank);
+        }
+        this.wildRank = wildRank;
+    }
+
+    /** Returns the minimum deadwood of the hand under optimal melding. */
+    public int evaluate(Hand hand) {
+        long first = hand.getFirst();
+        long second = hand.getSecond();
+        printed = hand.getPrintedJokers();
+        for (int suit = 0; suit < Cards.SUITS; suit++) {
+            wild[suit] = 0;
+        }
+        if (wildRank != Cards.NO_WILD_RANK) {
+            for (int suit = 0; suit < Cards.SUITS; suit++) {
+                long bit = 1L << (suit * Cards.RANKS + wildRank);
+                wild[suit] = ((first & bit) != 0 ? 1 : 0) + ((second & bit) != 0 ? 1 : 0);
+                first &= ~bit;
+                second &= ~bit;
+            }
+        }
+
+        totalPoints = pointsOf(first) + pointsOf(second);
+        best = Integer.MAX_VALUE;
+        declarable = false;
+        done = false;
+        // Without any pure sequence every card counts, so there is nothing to search
+        if (!hasPureSequence(first)) {
+            return Math.min(totalPoints, MAX_DEADWOOD);
+        }
+        search(first, second, totalPoints, 0, 0, 0, 0);
+        return Math.min(best, MAX_DEADWOOD);
+    }
+
+    /** Whether the most recently evaluated hand can be fully melded into a valid show. */
+    public boolean isDeclarable() {
+        return declarable;
+    }
+
+    /** A valid declaration melds all 13 cards with at least two sequences, one of them pure. */
+    public boolean isValidDeclaration(Hand hand) {
+        if (hand.size() != DECLARATION_SIZE) {
+            return false;
+        }
+        evaluate(hand);
+        return declarable;
+    }
+
+    public int getWildRank() {
+        return wildRank;
+    }
+
+    /**
+     * Assigns the lowest remaining natural card: to deadwood, to a set, or to a
+     * sequence. Cards with lower indexes are already placed, so melds only ever
+     * take naturals above it, and positions below it are filled by jokers.
+     */
+    private void search(long first, long second, int remaining, int pure, int sequences,
+                        int unmelded, int purePoints) {
+        if (done) {
+            return;
+        }
+        if (first == 0) {
+            leaf(pure, sequences, unmelded, purePoints);
+            return;
+        }
+        int lowerBound = Math.min(MAX_DEADWOOD, Math.min(unmelded, totalPoints - purePoints - remaining));
+        if (lowerBound >= best && (best > 0 || declarable)) {
+            return;
+        }
+
+        int card = Long.numberOfTrailingZeros(first);
+        int suit = card / Cards.RANKS;
+        int rank = card % Cards.RANKS;
+        int value = Cards.points(rank);
+        long bit = 1L << card;
+        long nextFirst = first;
+        long nextSecond = second;
+        if ((second & bit) != 0) {
+            nextSecond &= ~bit;
+        } else {
+            nextFirst &= ~bit;
+        }
+        int nextRemaining = remaining - value;
+
+        // Melds first so a tight bound is found early
+        if (rank == 0) {
+            trySequences(nextFirst, nextSecond, nextRemaining, suit, 0, value, pure, sequences, unmelded, purePoints);
+            trySequences(nextFirst, nextSecond, nextRemaining, suit, ACE_HIGH, value, pure, sequences, unmelded, purePoints);
+        } else {
+            trySequences(nextFirst, nextSecond, nextRemaining, suit, rank, value, pure, sequences, unmelded, purePoints);
+        }
+        trySets(nextFirst, nextSecond, nextRemaining, suit, rank, pure, sequences, unmelded, purePoints);
+        search(nextFirst, nextSecond, nextRemaining, pure, sequences, unmelded + value, purePoints);
+    }
+
+    private void leaf(int pure, int sequences, int unmelded, int purePoints) {
+        int score;
+        if (pure >= 1 && sequences >= 2) {
+            score = unmelded;
+        } else if (pure >= 1) {
+            score = totalPoints - purePoints;
+        } else {
+            score = totalPoints;
+        }
+        score = Math.min(score, MAX_DEADWOOD);
+        if (score < best) {
+            best = score;
+        }
+        // Leftover jokers are only melded if there are enough for a group of their own
+        int leftover = jokers();
+        if (pure >= 1 && sequences >= 2 && unmelded == 0 && (leftover == 0 || leftover >= MIN_MELD)) {
+            declarable = true;
+            done = true;
+        }
+    }
+
+    private void trySets(long first, long second, int remaining, int suit, int rank,
+                         int pure, int sequences, int unmelded, int purePoints) {
+        int others = 0;
+        for (int other = suit + 1; other < Cards.SUITS; other++) {
+            if ((first & (1L << (other * Cards.RANKS + rank))) != 0) {
+                others |= 1 << other;
+            }
+        }
+        int value = Cards.points(rank);
+        int available = jokers();
+        for (int subset = others; ; subset = (subset - 1) & others) {
+            int naturals = 1 + Integer.bitCount(subset);
+            if (naturals <= MAX_SET) {
+                long setFirst = first;
+                long setSecond = second;
+                for (int bits = subset; bits != 0; bits &= bits - 1) {
+                    long bit = 1L << (Integer.numberOfTrailingZeros(bits) * Cards.RANKS + rank);
+                    if ((setSecond & bit) != 0) {
+                        setSecond &= ~bit;
+                    } else {
+                        setFirst &= ~bit;
+                    }
+                }
+                int setRemaining = remaining - value * (naturals - 1);
+                int maxJokers = Math.min(available, MAX_SET - naturals);
+                for (int jokers = Math.max(0, MIN_MELD - naturals); jokers <= maxJokers; jokers++) {
+                    spendJokers(jokers, suit, setFirst, setSecond, setRemaining, pure, sequences, unmelded, purePoints);
+                }
+            }
+            if (subset == 0) {
+                break;
+            }
+        }
+    }
+
+    private void trySequences(long first, long second, int remaining, int suit, int position, int value,
+                              int pure, int sequences, int unmelded, int purePoints) {
+        int lowest = Math.max(0, position - (Cards.RANKS - 1));
+        for (int start = lowest; start <= position; start++) {
+            extend(first, second, remaining, suit, start, start, position, 0, false, value,
+                    pure, sequences, unmelded, purePoints);
+        }
+    }
+
+    /**
+     * Fills sequence positions {@code start..next-1}, branching at each position on
+     * the natural card, a wild card in its natural place, or a joker standing in.
+     * A joker in the lowest position could equally sit one past the top, so such
+     * windows are only completed when they already end on the high ace.
+     */
+    private void extend(long first, long second, int remaining, int suit, int start, int next, int position,
+                        int generic, boolean leadingJoker, int sequencePoints,
+                        int pure, int sequences, int unmelded, int purePoints) {
+        if (done) {
+            return;
+        }
+        if (next - start >= MIN_MELD && next > position && (!leadingJoker || next > ACE_HIGH)) {
+            boolean isPure = generic == 0;
+            spendJokers(generic, suit, first, second, remaining,
+                    isPure ? pure + 1 : pure, sequences + 1, unmelded,
+                    isPure ? purePoints + sequencePoints : purePoints);
+        }
+        if (next > ACE_HIGH || next - start >= Cards.RANKS) {
+            return;
+        }
+        if (next == position) {
+            extend(first, second, remaining, suit, start, next + 1, position, generic, leadingJoker, sequencePoints,
+                    pure, sequences, unmelded, purePoints);
+            return;
+        }
+
+        int rank = next % Cards.RANKS;
+        if (rank == wildRank) {
+            if (wild[suit] > 0) {
+                wild[suit]--;
+                extend(first, second, remaining, suit, start, next + 1, position, generic, leadingJoker,
+                        sequencePoints, pure, sequences, unmelded, purePoints);
+                wild[suit]++;
+            }
+        } else {
+            long bit = 1L << (suit * Cards.RANKS + rank);
+            if ((first & bit) != 0) {
+                int value = Cards.points(rank);
+                if ((second & bit) != 0) {
+                    extend(first, second & ~bit, remaining - value, suit, start, next + 1, position, generic,
+                            leadingJoker, sequencePoints + value, pure, sequences, unmelded, purePoints);
+                } else {
+                    extend(first & ~bit, second, remaining - value, suit, start, next + 1, position, generic,
+                            leadingJoker, sequencePoints + value, pure, sequences, unmelded, purePoints);
+                }
+            }
+        }
+        if (generic < jokers()) {
+            extend(first, second, remaining, suit, start, next + 1, position, generic + 1,
+                    leadingJoker || next == start, sequencePoints, pure, sequences, unmelded, purePoints);
+        }
+    }
+
+    /**
+     * Takes {@code count} jokers for a meld and continues the search. Printed jokers
+     * go first since wild cards can also play as naturals; which wild suit to give
+     * up is branched on, but wilds of suits already fully placed are interchangeable.
+     */
+    private void spendJokers(int count, int suit, long first, long second, int remaining,
+                             int pure, int sequences, int unmelded, int purePoints) {
+        int fromPrinted = Math.min(printed, count);
+        printed -= fromPrinted;
+        spendWild(count - fromPrinted, 0, suit, first, second, remaining, pure, sequences, unmelded, purePoints);
+        printed += fromPrinted;
+    }
+
+    private void spendWild(int count, int fromSuit, int suit, long first, long second, int remaining,
+                           int pure, int sequences, int unmelded, int purePoints) {
+        if (count == 0) {
+            search(first, second, remaining, pure, sequences, unmelded, purePoints);
+            return;
+        }
+        boolean triedPlaced = false;
+        for (int wildSuit = fromSuit; wildSuit < Cards.SUITS; wildSuit++) {
+            if (wild[wildSuit] == 0) {
+                continue;
+            }
+            if (wildSuit < suit) {
+                if (triedPlaced) {
+                    continue;
+                }
+                triedPlaced = true;
+            }
+            wild[wildSuit]--;
+            spendWild(count - 1, wildSuit, suit, first, second, remaining, pure, sequences, unmelded, purePoints);
+            wild[wildSuit]++;
+        }
+    }
+
+    private boolean hasPureSequence(long naturals) {
+        for (int suit = 0; suit < Cards.SUITS; suit++) {
+            // Ranks of this suit at positions 0..12, with the ace repeated at 13
+            long ranks = (naturals >>> (suit * Cards.RANKS)) & SUIT_MASK;
+            if (wild[suit] > 0) {
+                ranks |= 1L << wildRank;
+            }
+            ranks |= (ranks & 1L) << ACE_HIGH;
+            if ((ranks & (ranks >>> 1) & (ranks >>> 2)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int jokers() {
+        return printed + wild[0] + wild[1] + wild[2] + wild[3];
+    }
+
+    private static int pointsOf(long cards) {
+        int points = 0;
+        for (; cards != 0; cards &= cards - 1) {
+            points += Cards.points(Long.numberOfTrailingZeros(cards) % Cards.RANKS);
+        }
+        return points;
+    }
+}
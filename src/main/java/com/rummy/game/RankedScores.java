@@ -0,0 +1,419 @@
+package com.rummy.game;
+
+import java.util.Arrays;
+
+/**
+ * Order-statistic treap of user scores, ordered by score descending and then
+ * user id, kept in parallel primitive arrays so ten million users cost no
+ * per-entry objects. Updates, rank lookups and positional access run in
+ * logarithmic expected time; {@link #build} loads a whole board in one pass
+ * from sorted input.
+ *
+ * <p>Node 0 is the empty sentinel. Users are never removed, only re-scored.
+ * Not thread-safe; callers lock around it.
+ */
+public final class RankedScores {
+    public interface Visitor {
+        void visit(long rank, long userId, double score);
+    }
+
+    private static final int PRIORITY_SALT = 0x5bd1e995;
+
+    private double[] scores;
+    private long[] users;
+    private int[] left;
+    private int[] right;
+    private int[] counts;
+    private int nodes;
+    private int root;
+    private int[] buildStack = new int[128];
+    private final UserIndex index;
+
+    public RankedScores() {
+        this(16);
+    }
+
+    public RankedScores(int expectedUsers) {
+        int capacity = Math.max(16, expectedUsers + 1);
+        scores = new double[capacity];
+        users = new long[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        counts = new int[capacity];
+        index = new UserIndex(expectedUsers);
+    }
+
+    public int size() {
+        return nodes;
+    }
+
+    /** Sets the user's score, inserting the user on first sight. */
+    public void set(long userId, double score) {
+        int node = index.get(userId);
+        if (node == 0) {
+            node = allocate(userId, score);
+            index.put(userId, node);
+            root = insert(root, node);
+            return;
+        }
+        if (Double.compare(scores[node], score) == 0) {
+            return;
+        }
+        root = erase(root, node);
+        scores[node] = score;
+        left[node] = 0;
+        right[node] = 0;
+        counts[node] = 1;
+        root = insert(root, node);
+    }
+
+    /** Adds {@code delta} to the user's score (zero when unseen) and returns the new score. */
+    public double add(long userId, double delta) {
+        int node = index.get(userId);
+        double score = (node == 0 ? 0.0 : scores[node]) + delta;
+        set(userId, score);
+        return score;
+    }
+
+    public boolean contains(long userId) {
+        return index.get(userId) != 0;
+    }
+
+    public double score(long userId) {
+        int node = index.get(userId);
+        if (node == 0) {
+            throw new IllegalArgumentException("User not ranked");
+        }
+        return scores[node];
+    }
+
+    /** Zero-based rank of the user, or -1 when the user is not on the board. */
+    public long rank(long userId) {
+        int node = index.get(userId);
+        if (node == 0) {
+            return -1;
+        }
+        long rank = 0;
+        int t = root;
+        while (t != 0) {
+            if (t == node) {
+                return rank + counts[left[t]];
+            }
+            if (before(node, t)) {
+                t = left[t];
+            } else {
+                rank += counts[left[t]] + 1;
+                t = right[t];
+            }
+        }
+        throw new IllegalStateException("Ranked user missing from tree");
+    }
+
+    /**
+     * Visits up to {@code limit} entries in rank order starting at zero-based rank
+     * {@code from}. Read-only, so concurrent visits are safe under a shared lock.
+     */
+    public void visit(long from, int limit, Visitor visitor) {
+        if (from < 0 || from >= nodes || limit <= 0) {
+            return;
+        }
+        int[] path = new int[64];
+        int sp = 0;
+        int t = root;
+        long remaining = from;
+        while (t != 0) {
+            if (sp == path.length) {
+                path = Arrays.copyOf(path, sp * 2);
+            }
+            int leftCount = counts[left[t]];
+            if (remaining < leftCount) {
+                path[sp++] = t;
+                t = left[t];
+            } else if (remaining == leftCount) {
+                path[sp++] = t;
+                break;
+            } else {
+                remaining -= leftCount + 1;
+                t = right[t];
+            }
+        }
+        long rank = from;
+        for (int emitted = 0; emitted < limit && sp > 0; emitted++) {
+            int node = path[--sp];
+            visitor.visit(rank++, users[node], scores[node]);
+            for (t = right[node]; t != 0; t = left[t]) {
+                if (sp == path.length) {
+                    path = Arrays.copyOf(path, sp * 2);
+                }
+                path[sp++] = t;
+            }
+        }
+    }
+
+    /**
+     * Replaces the board with {@code count} entries. Sorting once and building
+     * the treap along its right spine is O(n log n) with no rebalancing,
+     * against n separate inserts.
+     */
+    public void build(long[] userIds, double[] userScores, int count) {
+        int capacity = Math.max(16, count + 1);
+        scores = new double[capacity];
+        users = new long[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        counts = new int[capacity];
+        index.clear(count);
+        nodes = 0;
+        root = 0;
+        for (int i = 0; i < count; i++) {
+            int node = allocate(userIds[i], userScores[i]);
+            index.put(userIds[i], node);
+        }
+
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i + 1;
+        }
+        sort(order, new int[count], 0, count);
+
+        int sp = 0;
+        for (int i = 0; i < count; i++) {
+            int node = order[i];
+            int last = 0;
+            while (sp > 0 && priority(buildStack[sp - 1]) < priority(node)) {
+                last = buildStack[--sp];
+            }
+            left[node] = last;
+            if (sp > 0) {
+                right[buildStack[sp - 1]] = node;
+            }
+            sp = push(sp, node);
+        }
+        root = sp > 0 ? buildStack[0] : 0;
+        fixCounts(root);
+    }
+
+    private int allocate(long userId, double score) {
+        int node = ++nodes;
+        if (node == scores.length) {
+            int capacity = scores.length * 2;
+            scores = Arrays.copyOf(scores, capacity);
+            users = Arrays.copyOf(users, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        scores[node] = score;
+        users[node] = userId;
+        left[node] = 0;
+        right[node] = 0;
+        counts[node] = 1;
+        return node;
+    }
+
+    private int insert(int t, int node) {
+        if (t == 0) {
+            return node;
+        }
+        if (priority(node) > priority(t)) {
+            split(t, node);
+            left[node] = splitLeft;
+            right[node] = splitRight;
+            counts[node] = counts[splitLeft] + counts[splitRight] + 1;
+            return node;
+        }
+        if (before(node, t)) {
+            left[t] = insert(left[t], node);
+        } else {
+            right[t] = insert(right[t], node);
+        }
+        counts[t]++;
+        return t;
+    }
+
+    private int erase(int t, int node) {
+        if (t == node) {
+            return merge(left[node], right[node]);
+        }
+        if (before(node, t)) {
+            left[t] = erase(left[t], node);
+        } else {
+            right[t] = erase(right[t], node);
+        }
+        counts[t]--;
+        return t;
+    }
+
+    private int splitLeft;
+    private int splitRight;
+
+    /** Splits {@code t} into the entries ranked before {@code key} and the rest. */
+    private void split(int t, int key) {
+        if (t == 0) {
+            splitLeft = 0;
+            splitRight = 0;
+            return;
+        }
+        if (before(t, key)) {
+            split(right[t], key);
+            right[t] = splitLeft;
+            splitLeft = t;
+        } else {
+            split(left[t], key);
+            left[t] = splitRight;
+            splitRight = t;
+        }
+        counts[t] = counts[left[t]] + counts[right[t]] + 1;
+    }
+
+    private int merge(int a, int b) {
+        if (a == 0) {
+            return b;
+        }
+        if (b == 0) {
+            return a;
+        }
+        if (priority(a) > priority(b)) {
+            right[a] = merge(right[a], b);
+            counts[a] = counts[left[a]] + counts[right[a]] + 1;
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        counts[b] = counts[left[b]] + counts[right[b]] + 1;
+        return b;
+    }
+
+    private int fixCounts(int t) {
+        if (t == 0) {
+            return 0;
+        }
+        counts[t] = fixCounts(left[t]) + fixCounts(right[t]) + 1;
+        return counts[t];
+    }
+
+    private boolean before(int a, int b) {
+        int byScore = Double.compare(scores[b], scores[a]);
+        return byScore < 0 || (byScore == 0 && users[a] < users[b]);
+    }
+
+    /** Heap priority derived from the node slot, so it needs no storage of its own. */
+    private static int priority(int node) {
+        int h = node * PRIORITY_SALT;
+        h ^= h >>> 15;
+        h *= 0x2c1b3c6d;
+        h ^= h >>> 12;
+        return h;
+    }
+
+    private int push(int sp, int node) {
+        if (sp == buildStack.length) {
+            buildStack = Arrays.copyOf(buildStack, buildStack.length * 2);
+        }
+        buildStack[sp] = node;
+        return sp + 1;
+    }
+
+    private void sort(int[] a, int[] scratch, int from, int to) {
+        if (to - from < 32) {
+            for (int i = from + 1; i < to; i++) {
+                int node = a[i];
+                int j = i - 1;
+                while (j >= from && before(node, a[j])) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = node;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(a, scratch, from, mid);
+        sort(a, scratch, mid, to);
+        if (!before(a[mid], a[mid - 1])) {
+            return;
+        }
+        System.arraycopy(a, from, scratch, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && !before(scratch[j], scratch[i]))) {
+                a[k] = scratch[i++];
+            } else {
+                a[k] = scratch[j++];
+            }
+        }
+    }
+
+    /** Open-addressing user id to node map; user ids are positive, so 0 marks a free slot. */
+    private static final class UserIndex {
+        private long[] keys;
+        private int[] values;
+        private int size;
+        private int mask;
+
+        UserIndex(int expected) {
+            clear(expected);
+        }
+
+        void clear(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            size = 0;
+        }
+
+        int get(long key) {
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                long k = keys[slot];
+                if (k == key) {
+                    return values[slot];
+                }
+                if (k == 0) {
+                    return 0;
+                }
+            }
+        }
+
+        void put(long key, int value) {
+            if (key <= 0) {
+                throw new IllegalArgumentException("User ids must be positive");
+            }
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                size++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = hash(oldKeys[i]) & mask;
+                    while (keys[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.rummy.game;
+
+import java.util.Arrays;
+
+/** A table formed by matchmaking: the stake and the users seated at it, in seat order. */
+public final class SeatedTable {
+    private final long tableId;
+    private final long stake;
+    private final long[] userIds;
+    private final long formedAtMillis;
+
+    public SeatedTable(long tableId, long stake, long[] userIds, long formedAtMillis) {
+        this.tableId = tableId;
+        this.stake = stake;
+        this.userIds = userIds;
+        this.formedAtMillis = formedAtMillis;
+    }
+
+    public long getTableId() {
+        return tableId;
+    }
+
+    public long getStake() {
+        return stake;
+    }
+
+    public long[] getUserIds() {
+        return userIds.clone();
+    }
+
+    public int getPlayerCount() {
+        return userIds.length;
+    }
+
+    public long getFormedAtMillis() {
+        return formedAtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "SeatedTable{" + tableId + ", stake=" + stake + ", users=" + Arrays.toString(userIds) + "}";
+    }
+}
@@ -0,0 +1,249 @@
+package com.rummy.game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only event log for the tables owned by one event loop, split into
+ * numbered segments. A snapshot numbered {@code n} holds every table's state as
+ * of the start of segment {@code n}, so recovery loads the newest snapshot and
+ * replays segments from {@code n} on.
+ *
+ * <p>Records are {@code [int length][long tableId][long seq][byte type][payload][int crc32]};
+ * replay stops at the first torn or corrupt record.
+ *
+ * <p>With {@code fsync} each {@link #flush()} forces the segment to disk, so a
+ * flushed record survives power loss. Without it a flushed record is only in
+ * the page cache: it survives the process dying, but a machine crash loses
+ * whatever the OS had not yet written back, up to about 30 seconds with the
+ * Linux defaults, and replay resumes at the last record that made it.
+ */
+public final class TableEventLog implements Closeable {
+    public interface RecordHandler {
+        void onRecord(long tableId, long seq, byte type, ByteBuffer payload);
+    }
+
+    private static final int RECORD_HEADER = 8 + 8 + 1;
+    private static final int SNAPSHOT_MAGIC = 0x52544231;
+    private static final int MAX_TABLE_SNAPSHOT = 1024;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private final Path directory;
+    private final boolean fsync;
+    private final ByteBuffer buffer;
+    private final ByteBuffer crcView;
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private long segment = -1;
+
+    public TableEventLog(Path directory, int bufferSize, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.crcView = buffer.duplicate();
+        Files.createDirectories(directory);
+    }
+
+    /** Number of the newest complete snapshot, or -1 when there is none. */
+    public long latestSnapshot() throws IOException {
+        TreeSet<Long> snapshots = list(SNAPSHOT_PREFIX, ".bin");
+        return snapshots.isEmpty() ? -1 : snapshots.last();
+    }
+
+    public List<GameTable> readSnapshot(long number, HandEvaluator[] evaluators) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file(SNAPSHOT_PREFIX, number, ".bin")));
+        if (in.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Corrupt table snapshot " + number + " in " + directory);
+        }
+        int count = in.getInt();
+        List<GameTable> tables = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tables.add(GameTable.readSnapshot(in, evaluators));
+        }
+        return tables;
+    }
+
+    /** Replays all segments numbered {@code fromSegment} or above; returns the number of records read. */
+    public long replay(long fromSegment, RecordHandler handler) throws IOException {
+        long records = 0;
+        for (long number : list(SEGMENT_PREFIX, ".log")) {
+            if (number < fromSegment) {
+                continue;
+            }
+            byte[] data = Files.readAllBytes(file(SEGMENT_PREFIX, number, ".log"));
+            ByteBuffer in = ByteBuffer.wrap(data);
+            ByteBuffer payload = ByteBuffer.wrap(data);
+            while (in.remaining() >= 4) {
+                int length = in.getInt();
+                if (length < RECORD_HEADER || in.remaining() < length + 4) {
+                    break;
+                }
+                int bodyStart = in.position();
+                crc.reset();
+                crc.update(data, bodyStart, length);
+                if (in.getInt(bodyStart + length) != (int) crc.getValue()) {
+                    break;
+                }
+                long tableId = in.getLong();
+                long seq = in.getLong();
+                byte type = in.get();
+                payload.limit(bodyStart + length).position(in.position());
+                handler.onRecord(tableId, seq, type, payload);
+                in.position(bodyStart + length + 4);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    /** Starts a fresh segment after everything on disk, never appending behind a torn tail. */
+    public long openNextSegment() throws IOException {
+        if (channel != null) {
+            flush();
+            channel.close();
+        }
+        TreeSet<Long> segments = list(SEGMENT_PREFIX, ".log");
+        long next = Math.max(segment, Math.max(segments.isEmpty() ? -1 : segments.last(), latestSnapshot())) + 1;
+        channel = FileChannel.open(file(SEGMENT_PREFIX, next, ".log"),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        if (fsync) {
+            // Forcing the segment does not persist its directory entry
+            syncDirectory();
+        }
+        segment = next;
+        return segment;
+    }
+
+    public void append(long tableId, long seq, byte type, ByteBuffer payload) {
+        int length = RECORD_HEADER + payload.remaining();
+        if (buffer.remaining() < length + 8) {
+            try {
+                write();
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write table event log", e);
+            }
+        }
+        buffer.putInt(length);
+        int bodyStart = buffer.position();
+        buffer.putLong(tableId);
+        buffer.putLong(seq);
+        buffer.put(type);
+        buffer.put(payload);
+        crcView.limit(buffer.position()).position(bodyStart);
+        crc.reset();
+        crc.update(crcView);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    /** Writes buffered records and, when configured, forces them to disk. */
+    public void flush() throws IOException {
+        write();
+        if (fsync && channel != null) {
+            channel.force(false);
+        }
+    }
+
+    private void write() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Rolls to a new segment and snapshots {@code tables} as of its start, then
+     * deletes the segments and snapshots it supersedes.
+     */
+    public long snapshot(Collection<GameTable> tables) throws IOException {
+        long number = openNextSegment();
+        Path temp = file(SNAPSHOT_PREFIX, number, ".tmp");
+        ByteBuffer out = ByteBuffer.allocate(1 << 20);
+        try (FileChannel snapshot = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            out.putInt(SNAPSHOT_MAGIC);
+            out.putInt(tables.size());
+            for (GameTable table : tables) {
+                if (out.remaining() < MAX_TABLE_SNAPSHOT) {
+                    drain(out, snapshot);
+                }
+                table.writeSnapshot(out);
+            }
+            drain(out, snapshot);
+            snapshot.force(true);
+        }
+        Files.move(temp, file(SNAPSHOT_PREFIX, number, ".bin"), StandardCopyOption.ATOMIC_MOVE);
+        if (fsync) {
+            // The rename must be durable before the segments it replaces are deleted
+            syncDirectory();
+        }
+
+        for (long old : list(SEGMENT_PREFIX, ".log")) {
+            if (old < number) {
+                Files.deleteIfExists(file(SEGMENT_PREFIX, old, ".log"));
+            }
+        }
+        for (long old : list(SNAPSHOT_PREFIX, ".bin")) {
+            if (old < number) {
+                Files.deleteIfExists(file(SNAPSHOT_PREFIX, old, ".bin"));
+            }
+        }
+        return number;
+    }
+
+    private void syncDirectory() throws IOException {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+    }
+
+    private static void drain(ByteBuffer out, FileChannel target) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            target.write(out);
+        }
+        out.clear();
+    }
+
+    public long getSegment() {
+        return segment;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            flush();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private Path file(String prefix, long number, String suffix) {
+        return directory.resolve(prefix + String.format("%016d", number) + suffix);
+    }
+
+    private TreeSet<Long> list(String prefix, String suffix) throws IOException {
+        TreeSet<Long> numbers = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path path : files) {
+                String name = path.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+            }
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,361 @@
+package com.rummy.game;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A single thread that owns a shard of tables. Every operation on those tables
+ * runs on this thread, so table state needs no locks. Operations are drained in
+ * batches; the events of a batch are written to the log together (group commit)
+ * before any caller in the batch sees its result, and actions an operation
+ * registers with {@link OperationSink#afterFlush} run only once that write succeeded.
+ * A failed flush stops the loop: its tables may now hold moves the log does
+ * not, so they stay unavailable until a restart recovers them from the log.
+ */
+public final class TableEventLoop implements GameTable.EventSink {
+    private static final Logger logger = LoggerFactory.getLogger(TableEventLoop.class);
+
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    public interface TableOperation<T> {
+        T apply(GameTable table, OperationSink sink);
+    }
+
+    /** Where an operation writes its events and defers whatever must wait until they are durable. */
+    public interface OperationSink extends GameTable.EventSink {
+        /** Runs {@code action} on the loop thread after the operation's events are flushed; never if they are not. */
+        void afterFlush(Runnable action);
+    }
+
+    /** The operation ran but its events may not have reached the log, so its outcome is unknown until recovery. */
+    public static final class NotPersistedException extends IllegalStateException {
+        NotPersistedException(IOException cause) {
+            super("Move not persisted", cause);
+        }
+    }
+
+    public interface Listener {
+        void onRecovered(TableEventLoop loop, GameTable table);
+
+        void onTableEvicted(TableEventLoop loop, GameTable table);
+    }
+
+    private final int index;
+    private final TableEventLog log;
+    private final Listener listener;
+    private final long snapshotEveryEvents;
+    private final long snapshotEveryNanos;
+    private final HandEvaluator[] evaluators = GameTable.newEvaluators();
+    private final Map<Long, GameTable> tables = new HashMap<>();
+    private final ConcurrentLinkedQueue<Task<?>> inbox = new ConcurrentLinkedQueue<>();
+    private final Task<?>[] batch = new Task<?>[MAX_BATCH];
+    private final ByteBuffer scratch = ByteBuffer.allocate(1024);
+    private final Thread thread;
+
+    private volatile boolean running = true;
+    private volatile boolean parked;
+    private volatile long operationsProcessed;
+    private volatile long eventsWritten;
+    private volatile long recoveryMillis;
+    private volatile int tableCount;
+    private long eventsSinceSnapshot;
+    private long lastSnapshotNanos;
+    private final CompletableFuture<Void> started = new CompletableFuture<>();
+
+    public TableEventLoop(int index, TableEventLog log, Listener listener,
+                          long snapshotEveryEvents, long snapshotEveryMillis) {
+        this.index = index;
+        this.log = log;
+        this.listener = listener;
+        this.snapshotEveryEvents = snapshotEveryEvents;
+        this.snapshotEveryNanos = TimeUnit.MILLISECONDS.toNanos(snapshotEveryMillis);
+        this.thread = new Thread(this::run, "table-loop-" + index);
+    }
+
+    /** Starts the loop; the returned future completes once its tables are recovered. */
+    public CompletableFuture<Void> start() {
+        thread.start();
+        return started;
+    }
+
+    /**
+     * Runs {@code operation} on the loop thread against the table. Only a submit with
+     * {@code create} set may bring a new table into existence.
+     */
+    public <T> CompletableFuture<T> submit(long tableId, boolean create, TableOperation<T> operation) {
+        Task<T> task = new Task<>(tableId, create, operation);
+        if (!running) {
+            task.future.completeExceptionally(new IllegalStateException("Table loop " + index + " is stopped"));
+            return task.future;
+        }
+        inbox.offer(task);
+        if (!running && inbox.remove(task)) {
+            // Stopped after the check above, possibly after the loop's last look at its inbox
+            task.future.completeExceptionally(new IllegalStateException("Table loop " + index + " is stopped"));
+            return task.future;
+        }
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+        return task.future;
+    }
+
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    private void run() {
+        try {
+            recover();
+            started.complete(null);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Table loop {} failed to recover", index, e);
+            running = false;
+            started.completeExceptionally(e);
+            return;
+        }
+        lastSnapshotNanos = System.nanoTime();
+        while (running || !inbox.isEmpty()) {
+            int count = 0;
+            Task<?> task;
+            while (count < MAX_BATCH && (task = inbox.poll()) != null) {
+                task.execute(this);
+                batch[count++] = task;
+            }
+            if (count == 0) {
+                maybeSnapshot();
+                parked = true;
+                if (inbox.isEmpty() && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked = false;
+                continue;
+            }
+            IOException failure = null;
+            try {
+                log.flush();
+            } catch (IOException e) {
+                logger.error("Table loop {} could not flush its event log and is stopping", index, e);
+                failure = e;
+            }
+            for (int i = 0; i < count; i++) {
+                if (failure == null) {
+                    batch[i].runAfterFlush();
+                }
+                batch[i].complete(failure);
+                batch[i] = null;
+            }
+            operationsProcessed += count;
+            if (failure != null) {
+                running = false;
+                break;
+            }
+            maybeSnapshot();
+        }
+        Task<?> task;
+        while ((task = inbox.poll()) != null) {
+            task.future.completeExceptionally(new IllegalStateException("Table loop " + index + " is stopped"));
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            logger.error("Table loop {} could not close its event log", index, e);
+        }
+    }
+
+    private void recover() throws IOException {
+        long start = System.nanoTime();
+        long snapshot = log.latestSnapshot();
+        if (snapshot >= 0) {
+            for (GameTable table : log.readSnapshot(snapshot, evaluators)) {
+                tables.put(table.getTableId(), table);
+            }
+        }
+        long replayed = log.replay(Math.max(snapshot, 0), (tableId, seq, type, payload) ->
+                tables.computeIfAbsent(tableId, id -> new GameTable(id, evaluators)).apply(seq, type, payload));
+        log.openNextSegment();
+        tableCount = tables.size();
+        for (GameTable table : tables.values()) {
+            listener.onRecovered(this, table);
+        }
+        recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("Table loop {} recovered {} tables ({} events replayed) in {} ms",
+                index, tables.size(), replayed, recoveryMillis);
+    }
+
+    private void maybeSnapshot() {
+        if (eventsSinceSnapshot == 0) {
+            return;
+        }
+        if (eventsSinceSnapshot < snapshotEveryEvents && System.nanoTime() - lastSnapshotNanos < snapshotEveryNanos) {
+            return;
+        }
+        // Finished tables are left out of the snapshot and dropped from memory
+        List<GameTable> evicted = new ArrayList<>();
+        for (Iterator<GameTable> it = tables.values().iterator(); it.hasNext(); ) {
+            GameTable table = it.next();
+            if (table.isFinished()) {
+                evicted.add(table);
+                it.remove();
+            }
+        }
+        try {
+            log.snapshot(tables.values());
+        } catch (IOException e) {
+            logger.error("Table loop {} could not write a snapshot", index, e);
+            for (GameTable table : evicted) {
+                tables.put(table.getTableId(), table);
+            }
+            return;
+        }
+        for (GameTable table : evicted) {
+            listener.onTableEvicted(this, table);
+        }
+        tableCount = tables.size();
+        eventsSinceSnapshot = 0;
+        lastSnapshotNanos = System.nanoTime();
+    }
+
+    @Override
+    public ByteBuffer begin() {
+        scratch.clear();
+        return scratch;
+    }
+
+    @Override
+    public void append(long tableId, long seq, byte type, ByteBuffer payload) {
+        log.append(tableId, seq, type, payload);
+        eventsSinceSnapshot++;
+        eventsWritten++;
+    }
+
+    private GameTable table(long tableId, boolean create) {
+        GameTable table = tables.get(tableId);
+        if (table == null) {
+            if (!create) {
+                throw new IllegalArgumentException("Table not found");
+            }
+            table = new GameTable(tableId, evaluators);
+            tables.put(tableId, table);
+            tableCount = tables.size();
+        }
+        return table;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getTableCount() {
+        return tableCount;
+    }
+
+    public long getOperationsProcessed() {
+        return operationsProcessed;
+    }
+
+    public long getEventsWritten() {
+        return eventsWritten;
+    }
+
+    public long getRecoveryMillis() {
+        return recoveryMillis;
+    }
+
+    private static final class Task<T> implements OperationSink {
+        final long tableId;
+        final boolean create;
+        final TableOperation<T> operation;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        RuntimeException error;
+        List<Runnable> afterFlush;
+        TableEventLoop loop;
+
+        Task(long tableId, boolean create, TableOperation<T> operation) {
+            this.tableId = tableId;
+            this.create = create;
+            this.operation = operation;
+        }
+
+        void execute(TableEventLoop loop) {
+            this.loop = loop;
+            try {
+                GameTable table = loop.table(tableId, create);
+                try {
+                    result = operation.apply(table, this);
+                } catch (RuntimeException e) {
+                    if (table.getSeq() == 0) {
+                        loop.tables.remove(tableId);
+                        loop.tableCount = loop.tables.size();
+                    }
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                error = e;
+                afterFlush = null;
+            }
+        }
+
+        @Override
+        public ByteBuffer begin() {
+            return loop.begin();
+        }
+
+        @Override
+        public void append(long tableId, long seq, byte type, ByteBuffer payload) {
+            loop.append(tableId, seq, type, payload);
+        }
+
+        @Override
+        public void afterFlush(Runnable action) {
+            if (afterFlush == null) {
+                afterFlush = new ArrayList<>(2);
+            }
+            afterFlush.add(action);
+        }
+
+        void runAfterFlush() {
+            if (afterFlush == null) {
+                return;
+            }
+            for (Runnable action : afterFlush) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    logger.error("Table loop {} failed a post-flush action for table {}", loop.index, tableId, e);
+                }
+            }
+            afterFlush = null;
+        }
+
+        void complete(IOException flushFailure) {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else if (flushFailure != null) {
+                future.completeExceptionally(new NotPersistedException(flushFailure));
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.rummy.jdbc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * JDBC statements executed on the current thread between {@link #begin()} and
+ * {@link #end(StatementStats)}. Statements are grouped by shape, the SQL with
+ * literals and IN lists collapsed, so a query issued once per row of an earlier
+ * result (N+1) shows up as one shape with a high count.
+ *
+ * <p>Tests can bound what a call costs:
+ * <pre>
+ * StatementStats stats = StatementStats.capture(() -> kycService.getUserDocuments(userId));
+ * stats.assertWithin(2);
+ * stats.assertNoRepeats(3);
+ * </pre>
+ * Only statements run through {@link StatementCountingDataSource} are seen.
+ */
+public final class StatementStats {
+    private static final ThreadLocal<StatementStats> CURRENT = new ThreadLocal<>();
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final StatementStats previous;
+    private final Map<String, int[]> shapes = new HashMap<>();
+    private int statements;
+    private long nanos;
+    private String mostRepeatedShape;
+    private int mostRepeatedCount;
+
+    private StatementStats(StatementStats previous) {
+        this.previous = previous;
+    }
+
+    /** Starts counting on this thread; scopes nest and each sees only its own statements. */
+    public static StatementStats begin() {
+        StatementStats stats = new StatementStats(CURRENT.get());
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static void end(StatementStats stats) {
+        if (stats.previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(stats.previous);
+        }
+    }
+
+    public static StatementStats current() {
+        return CURRENT.get();
+    }
+
+    public static StatementStats capture(Runnable work) {
+        StatementStats stats = begin();
+        try {
+            work.run();
+        } finally {
+            end(stats);
+        }
+        return stats;
+    }
+
+    static void record(String sql, long elapsedNanos) {
+        StatementStats stats = CURRENT.get();
+        if (stats == null) {
+            return;
+        }
+        stats.statements++;
+        stats.nanos += elapsedNanos;
+        String shape = sql == null ? "<unknown>" : shape(sql);
+        int count = ++stats.shapes.computeIfAbsent(shape, s -> new int[1])[0];
+        if (count > stats.mostRepeatedCount) {
+            stats.mostRepeatedCount = count;
+            stats.mostRepeatedShape = shape;
+        }
+    }
+
+    /** SQL with string and numeric literals replaced by {@code ?} and IN lists reduced to one element. */
+    public static String shape(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("in (?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public int getDistinctShapes() {
+        return shapes.size();
+    }
+
+    /** Highest number of times one shape ran; 1 when nothing repeated, 0 when nothing ran. */
+    public int getMostRepeatedCount() {
+        return mostRepeatedCount;
+    }
+
+    public String getMostRepeatedShape() {
+        return mostRepeatedShape;
+    }
+
+    /** Shapes that ran at least {@code threshold} times, most frequent first. */
+    public List<String> repeatedShapes(int threshold) {
+        List<Map.Entry<String, int[]>> entries = new ArrayList<>();
+        for (Map.Entry<String, int[]> entry : shapes.entrySet()) {
+            if (entry.getValue()[0] >= threshold) {
+                entries.add(entry);
+            }
+        }
+        entries.sort((a, b) -> Integer.compare(b.getValue()[0], a.getValue()[0]));
+        List<String> repeated = new ArrayList<>(entries.size());
+        for (Map.Entry<String, int[]> entry : entries) {
+            repeated.add(entry.getValue()[0] + "x " + entry.getKey());
+        }
+        return repeated;
+    }
+
+    public void assertWithin(int maxStatements) {
+        if (statements > maxStatements) {
+            throw new AssertionError("Expected at most " + maxStatements + " statements but " + statements
+                    + " ran: " + repeatedShapes(1));
+        }
+    }
+
+    public void assertNoRepeats(int threshold) {
+        if (mostRepeatedCount >= threshold) {
+            throw new AssertionError("Statements repeated " + threshold + " or more times: " + repeatedShapes(threshold));
+        }
+    }
+}
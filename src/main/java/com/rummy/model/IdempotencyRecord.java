@@ -0,0 +1,35 @@
+package com.rummy.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "idempotency_keys")
+public class IdempotencyRecord {
+    // SHA-256 of caller, path and Idempotency-Key
+    @Id
+    private String id;
+
+    // SHA-256 of the request, so a key reused for a different request is refused
+    @Column(name = "fingerprint", nullable = false)
+    private String fingerprint;
+
+    // Null while the first request is still running
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "response_body")
+    private byte[] responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
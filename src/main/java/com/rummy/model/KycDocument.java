@@ -3,11 +3,13 @@ package com.rummy.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 
 @Data
 @Entity
+@DynamicUpdate
 @Table(name = "kyc_documents")
 public class KycDocument {
     @Id
@@ -34,6 +36,23 @@ public class KycDocument {
     @Column(name = "verification_remarks")
     private String verificationRemarks;
 
+    // Written by KycImageService with targeted updates; @DynamicUpdate keeps entity saves from overwriting them
+    @Column(name = "processing_status")
+    @Enumerated(EnumType.STRING)
+    private KycProcessingStatus processingStatus = KycProcessingStatus.PENDING;
+
+    @Column(name = "preview_path")
+    private String previewPath;
+
+    @Column(name = "thumbnail_path")
+    private String thumbnailPath;
+
+    @Column(name = "processing_error")
+    private String processingError;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -0,0 +1,9 @@
+package com.rummy.model;
+
+public enum KycProcessingStatus {
+    PENDING,
+    PROCESSING,
+    COMPLETED,
+    SKIPPED,
+    FAILED
+}
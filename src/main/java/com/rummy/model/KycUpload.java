@@ -0,0 +1,47 @@
+package com.rummy.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "kyc_uploads")
+public class KycUpload {
+    @Id
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "document_type", nullable = false)
+    private String documentType;
+
+    @Column(name = "document_number", nullable = false)
+    private String documentNumber;
+
+    // Sanitized client file name, kept for the stored document's name
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+
+    @Column(name = "chunk_size", nullable = false)
+    private Integer chunkSize;
+
+    @Column(name = "chunk_count", nullable = false)
+    private Integer chunkCount;
+
+    // Optional SHA-256 of the whole file, checked on completion
+    @Column(name = "sha256")
+    private String sha256;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Moved by every chunk, so only uploads that have gone quiet are garbage-collected
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,10 @@
+package com.rummy.model;
+
+public enum OutboxEventType {
+    USER_REGISTERED,
+    KYC_DOCUMENT_UPLOADED,
+    KYC_DOCUMENT_VERIFIED,
+    KYC_STATUS_CHANGED,
+    FRAUD_REPORTED,
+    FRAUD_REPORT_STATUS_CHANGED
+}
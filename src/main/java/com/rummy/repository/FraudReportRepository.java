@@ -1,14 +1,61 @@
 package com.rummy.repository;
 
 import com.rummy.model.FraudReport;
+import com.rummy.model.FraudReportStatus;
 import com.rummy.model.User;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface FraudReportRepository extends JpaRepository<FraudReport, Long> {
 
     List<FraudReport> findByUser(User user);
-    // Add custom query methods if needed
-}
\ No newline at end of file
+
+    // [userId, reason, evidence, createdAt] of recent reports for the aggregation warm-up
+    @Query("select r.user.id, r.reason, r.evidence, r.createdAt from FraudReport r where r.createdAt >= :since order by r.createdAt")
+    List<Object[]> findAggregationRowsSince(@Param("since") LocalDateTime since);
+
+    // [status, count] for status counter reconciliation
+    @Query("select r.status, count(r) from FraudReport r group by r.status")
+    List<Object[]> countGroupedByStatus();
+
+    @Query("select max(r.id) from FraudReport r")
+    Long findMaxId();
+
+    // Keyset page of [id, reason, evidence, additionalDetails, status, createdAt] within an id range for the search rebuild
+    @Query("select r.id, r.reason, r.evidence, r.additionalDetails, r.status, r.createdAt from FraudReport r "
+            + "where r.id > :afterId and r.id <= :toId order by r.id")
+    List<Object[]> findSearchPage(@Param("afterId") Long afterId, @Param("toId") Long toId, Pageable pageable);
+
+    // [id, reason, evidence, additionalDetails, status, createdAt] of the given reports
+    @Query("select r.id, r.reason, r.evidence, r.additionalDetails, r.status, r.createdAt from FraudReport r where r.id in :ids")
+    List<Object[]> findSearchRowsByIds(@Param("ids") Collection<Long> ids);
+
+    // Ids of users with a report in one of the statuses, ascending, for the eligibility index build
+    @Query("select distinct r.user.id from FraudReport r where r.status in :statuses order by r.user.id")
+    List<Long> findUserIdsWithStatusIn(@Param("statuses") Collection<FraudReportStatus> statuses);
+
+    // [userId, count] of the users' reports in one of the statuses
+    @Query("select r.user.id, count(r) from FraudReport r where r.user.id in :userIds and r.status in :statuses group by r.user.id")
+    List<Object[]> countByUserIdsAndStatusIn(@Param("userIds") Collection<Long> userIds,
+                                             @Param("statuses") Collection<FraudReportStatus> statuses);
+
+    @Query("select distinct r.user.id from FraudReport r where r.id in :ids")
+    List<Long> findUserIdsByIds(@Param("ids") Collection<Long> ids);
+
+    // [id, userId, reason] of the reports moved, at most :limit of them. Only reports still in the
+    // expected status move, so a concurrent admin change wins
+    @Query(value = "update fraud_reports set report_status = :status, updated_at = :updatedAt "
+            + "where id in (select id from fraud_reports where user_id in :userIds and report_status = :expected "
+            + "order by id limit :limit) and report_status = :expected "
+            + "returning id, user_id, reason", nativeQuery = true)
+    List<Object[]> moveStatusOfUsers(@Param("userIds") Collection<Long> userIds, @Param("expected") String expected,
+                                     @Param("status") String status, @Param("updatedAt") LocalDateTime updatedAt,
+                                     @Param("limit") int limit);
+}
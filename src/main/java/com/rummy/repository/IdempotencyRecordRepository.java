@@ -0,0 +1,47 @@
+package com.rummy.repository;
+
+import com.rummy.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    // 1 when this caller claimed the key, 0 when a row already exists
+    @Modifying
+    @Transactional
+    @Query(value = "insert into idempotency_keys (id, fingerprint, created_at, expires_at) "
+            + "values (:id, :fingerprint, :now, :expiresAt) on conflict (id) do nothing", nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id, @Param("fingerprint") String fingerprint,
+                       @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Takes over a claim whose request never finished, e.g. because its node died
+    @Modifying
+    @Transactional
+    @Query("update IdempotencyRecord r set r.createdAt = :now, r.expiresAt = :expiresAt "
+            + "where r.id = :id and r.responseStatus is null and r.createdAt = :claimedAt")
+    int takeOver(@Param("id") String id, @Param("claimedAt") LocalDateTime claimedAt,
+                 @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("update IdempotencyRecord r set r.responseStatus = :status, r.contentType = :contentType, "
+            + "r.responseBody = :body where r.id = :id")
+    int complete(@Param("id") String id, @Param("status") int status, @Param("contentType") String contentType,
+                 @Param("body") byte[] body);
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.id = :id")
+    int release(@Param("id") String id);
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
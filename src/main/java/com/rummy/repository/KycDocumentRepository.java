@@ -1,14 +1,62 @@
 package com.rummy.repository;
 
 import com.rummy.model.KycDocument;
+import com.rummy.model.KycProcessingStatus;
 import com.rummy.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface KycDocumentRepository extends JpaRepository<KycDocument, Long> {
     List<KycDocument> findByUser(User user);
     List<KycDocument> findByUserAndDocumentType(User user, String documentType);
-}
\ No newline at end of file
+
+    // [verificationStatus, count] for status counter reconciliation
+    @Query("select d.verificationStatus, count(d) from KycDocument d group by d.verificationStatus")
+    List<Object[]> countGroupedByVerificationStatus();
+
+    @Query("select max(d.id) from KycDocument d")
+    Long findMaxId();
+
+    // Keyset page of [id, verificationRemarks, verificationStatus, createdAt] within an id range for the search rebuild
+    @Query("select d.id, d.verificationRemarks, d.verificationStatus, d.createdAt from KycDocument d "
+            + "where d.verificationRemarks is not null and d.id > :afterId and d.id <= :toId order by d.id")
+    List<Object[]> findRemarksPage(@Param("afterId") Long afterId, @Param("toId") Long toId, Pageable pageable);
+
+    // [id, verificationRemarks, verificationStatus, createdAt] of the given documents
+    @Query("select d.id, d.verificationRemarks, d.verificationStatus, d.createdAt from KycDocument d where d.id in :ids")
+    List<Object[]> findRemarksRowsByIds(@Param("ids") Collection<Long> ids);
+
+    // [id, documentPath] of documents in `pending`, plus `processing` claims taken before staleBefore
+    @Query("select d.id, d.documentPath from KycDocument d where d.processingStatus = :pending "
+            + "or (d.processingStatus = :processing and d.processedAt < :staleBefore) order by d.id")
+    List<Object[]> findUnprocessed(@Param("pending") KycProcessingStatus pending,
+                                   @Param("processing") KycProcessingStatus processing,
+                                   @Param("staleBefore") LocalDateTime staleBefore, Pageable pageable);
+
+    // While a document is being processed, processedAt holds the claim time so a stale claim can be taken over
+    @Modifying
+    @Transactional
+    @Query("update KycDocument d set d.processingStatus = :processing, d.processedAt = :now where d.id = :id "
+            + "and (d.processingStatus = :pending or (d.processingStatus = :processing and d.processedAt < :staleBefore))")
+    int claimProcessing(@Param("id") Long id, @Param("pending") KycProcessingStatus pending,
+                        @Param("processing") KycProcessingStatus processing,
+                        @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Transactional
+    @Query("update KycDocument d set d.processingStatus = :status, d.previewPath = :previewPath, "
+            + "d.thumbnailPath = :thumbnailPath, d.processingError = :error, d.processedAt = :now where d.id = :id")
+    int finishProcessing(@Param("id") Long id, @Param("status") KycProcessingStatus status,
+                         @Param("previewPath") String previewPath, @Param("thumbnailPath") String thumbnailPath,
+                         @Param("error") String error, @Param("now") LocalDateTime now);
+}
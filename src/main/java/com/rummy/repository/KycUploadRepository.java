@@ -0,0 +1,52 @@
+package com.rummy.repository;
+
+import com.rummy.model.KycUpload;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface KycUploadRepository extends JpaRepository<KycUpload, String> {
+    long countByUserId(Long userId);
+
+    // Re-sent chunks are recorded once
+    @Modifying
+    @Transactional
+    @Query(value = "insert into kyc_upload_chunks (upload_id, chunk_index) values (:uploadId, :chunkIndex) "
+            + "on conflict do nothing", nativeQuery = true)
+    int insertChunk(@Param("uploadId") String uploadId, @Param("chunkIndex") int chunkIndex);
+
+    @Query(value = "select count(*) from kyc_upload_chunks where upload_id = :uploadId", nativeQuery = true)
+    long countChunks(@Param("uploadId") String uploadId);
+
+    @Query(value = "select chunk_index from kyc_upload_chunks where upload_id = :uploadId order by chunk_index",
+            nativeQuery = true)
+    List<Integer> findChunkIndexes(@Param("uploadId") String uploadId);
+
+    @Modifying
+    @Transactional
+    @Query("update KycUpload u set u.updatedAt = :now where u.id = :id")
+    int touch(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    // 1 for the one caller that gets to complete the upload; its chunks go with it
+    @Modifying
+    @Transactional
+    @Query("delete from KycUpload u where u.id = :id")
+    int claim(@Param("id") String id);
+
+    @Query("select u.id from KycUpload u where u.updatedAt < :before")
+    List<String> findStaleIds(@Param("before") LocalDateTime before, Pageable pageable);
+
+    // Only deletes the upload if no chunk arrived since it was found stale
+    @Modifying
+    @Transactional
+    @Query("delete from KycUpload u where u.id = :id and u.updatedAt < :before")
+    int deleteStale(@Param("id") String id, @Param("before") LocalDateTime before);
+}
@@ -1,9 +1,14 @@
 package com.rummy.repository;
 
 import com.rummy.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +17,28 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByMobileNumber(String mobileNumber);
     boolean existsByUsername(String username);
     boolean existsByMobileNumber(String mobileNumber);
-}
\ No newline at end of file
+
+    // Keyset page of [id, isVerified, kycStatus, balance] for bulk snapshot loads
+    @Query("select u.id, u.isVerified, u.kycStatus, u.balance from User u where u.id > :afterId order by u.id")
+    List<Object[]> findEligibilityPage(@Param("afterId") Long afterId, Pageable pageable);
+
+    // [id, isVerified, kycStatus, balance] of the given users, for cluster invalidations
+    @Query("select u.id, u.isVerified, u.kycStatus, u.balance from User u where u.id in :ids")
+    List<Object[]> findEligibilityByIds(@Param("ids") Collection<Long> ids);
+
+    // [id, username, isVerified, kycStatus, balance] of the given users, for batch profile lookups
+    @Query("select u.id, u.username, u.isVerified, u.kycStatus, u.balance from User u where u.id in :ids")
+    List<Object[]> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    // [kycStatus, count] for status counter reconciliation
+    @Query("select u.kycStatus, count(u) from User u group by u.kycStatus")
+    List<Object[]> countGroupedByKycStatus();
+
+    // Keyset page of [id, balance] for the leaderboard rebuild
+    @Query("select u.id, u.balance from User u where u.id > :afterId order by u.id")
+    List<Object[]> findBalancePage(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Ids of users whose last login came from one of the addresses, ascending
+    @Query("select u.id from User u where u.lastLoginIp in :ips order by u.id")
+    List<Long> findIdsByLastLoginIpIn(@Param("ips") Collection<String> ips);
+}
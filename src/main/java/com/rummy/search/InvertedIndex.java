@@ -0,0 +1,528 @@
+package com.rummy.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory inverted index over short free-text fields. Documents are keyed by
+ * their positive int id and carry a status byte and a creation minute for
+ * filtering. Each term's postings are a sorted int array; a per-document token
+ * sequence (the forward index) lets phrase queries be checked and re-indexing
+ * remove a document's old postings.
+ *
+ * <p>Not thread-safe; callers lock around it. Bulk loads go through
+ * {@link #newShard()} so id ranges can be tokenized in parallel and merged.
+ */
+public final class InvertedIndex {
+    private static final int FIELD_BREAK = -1;
+    private static final int MAX_TOKEN_LENGTH = 64;
+    private static final int[] NO_DOCS = new int[0];
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<Postings> postings = new ArrayList<>();
+    private int[][] forward;
+    private byte[] statuses;
+    private int[] createdMinutes;
+    private int documents;
+    private long postingCount;
+
+    public InvertedIndex(int expectedMaxDocId) {
+        int capacity = Math.max(16, expectedMaxDocId + 1);
+        forward = new int[capacity][];
+        statuses = new byte[capacity];
+        createdMinutes = new int[capacity];
+    }
+
+    /** Indexes or re-indexes a document; null fields are skipped. */
+    public void put(int docId, byte status, int createdMinute, String... fields) {
+        ensureCapacity(docId);
+        int[] previous = forward[docId];
+        if (previous != null) {
+            for (int term : distinct(previous)) {
+                postings.get(term).remove(docId);
+                postingCount--;
+            }
+        } else {
+            documents++;
+        }
+        int[] tokens = tokenize(fields, this::internTerm);
+        forward[docId] = tokens;
+        statuses[docId] = status;
+        createdMinutes[docId] = createdMinute;
+        for (int term : distinct(tokens)) {
+            postings.get(term).add(docId);
+            postingCount++;
+        }
+    }
+
+    /** Changes a document's status filter value; unknown documents are ignored. */
+    public void setStatus(int docId, byte status) {
+        if (docId < forward.length && forward[docId] != null) {
+            statuses[docId] = status;
+        }
+    }
+
+    /**
+     * Runs the query and returns the matching ids, newest (highest id) first.
+     *
+     * @param statusMask bit {@code 1 << status} set for each allowed status, or -1 for all
+     * @param fromMinute inclusive lower bound on the creation minute
+     * @param toMinute   exclusive upper bound on the creation minute
+     */
+    public Hits search(Query query, int statusMask, int fromMinute, int toMinute, int limit) {
+        int[] matches = NO_DOCS;
+        for (Clause clause : query.clauses) {
+            matches = union(matches, evaluate(clause, statusMask, fromMinute, toMinute));
+        }
+        int count = Math.min(limit, matches.length);
+        int[] newest = new int[count];
+        for (int i = 0; i < count; i++) {
+            newest[i] = matches[matches.length - 1 - i];
+        }
+        return new Hits(matches.length, newest);
+    }
+
+    public byte getStatus(int docId) {
+        return statuses[docId];
+    }
+
+    public int getCreatedMinute(int docId) {
+        return createdMinutes[docId];
+    }
+
+    public int getDocumentCount() {
+        return documents;
+    }
+
+    public int getTermCount() {
+        return termIds.size();
+    }
+
+    public long getPostingCount() {
+        return postingCount;
+    }
+
+    private int[] evaluate(Clause clause, int statusMask, int fromMinute, int toMinute) {
+        int[][] phraseTerms = new int[clause.phrases.size()][];
+        List<Postings> lists = new ArrayList<>();
+        for (String term : clause.terms) {
+            Integer id = termIds.get(term);
+            if (id == null) {
+                return NO_DOCS;
+            }
+            lists.add(postings.get(id));
+        }
+        for (int p = 0; p < phraseTerms.length; p++) {
+            String[] phrase = clause.phrases.get(p);
+            phraseTerms[p] = new int[phrase.length];
+            for (int i = 0; i < phrase.length; i++) {
+                Integer id = termIds.get(phrase[i]);
+                if (id == null) {
+                    return NO_DOCS;
+                }
+                phraseTerms[p][i] = id;
+                lists.add(postings.get(id));
+            }
+        }
+        if (lists.isEmpty()) {
+            return NO_DOCS;
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        Postings smallest = lists.get(0);
+        int[] candidates = Arrays.copyOf(smallest.docs, smallest.size);
+        int size = candidates.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            size = intersect(candidates, size, lists.get(i));
+        }
+
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int doc = candidates[i];
+            if (statusMask != -1 && (statusMask & (1 << statuses[doc])) == 0) {
+                continue;
+            }
+            int minute = createdMinutes[doc];
+            if (minute < fromMinute || minute >= toMinute) {
+                continue;
+            }
+            if (!containsPhrases(forward[doc], phraseTerms)) {
+                continue;
+            }
+            candidates[kept++] = doc;
+        }
+        return Arrays.copyOf(candidates, kept);
+    }
+
+    /** Keeps the candidates present in {@code list}, galloping through the longer list. */
+    private static int intersect(int[] candidates, int size, Postings list) {
+        int kept = 0;
+        int low = 0;
+        for (int i = 0; i < size && low < list.size; i++) {
+            int doc = candidates[i];
+            int step = 1;
+            int high = low;
+            while (high < list.size && list.docs[high] < doc) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int found = Arrays.binarySearch(list.docs, low, Math.min(high + 1, list.size), doc);
+            if (found >= 0) {
+                candidates[kept++] = doc;
+                low = found + 1;
+            } else {
+                low = -found - 1;
+            }
+        }
+        return kept;
+    }
+
+    private static boolean containsPhrases(int[] tokens, int[][] phrases) {
+        for (int[] phrase : phrases) {
+            if (!containsSequence(tokens, phrase)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsSequence(int[] tokens, int[] phrase) {
+        outer:
+        for (int start = 0; start + phrase.length <= tokens.length; start++) {
+            for (int i = 0; i < phrase.length; i++) {
+                if (tokens[start + i] != phrase[i]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] merged = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                merged[k++] = a[i++];
+            } else if (a[i] > b[j]) {
+                merged[k++] = b[j++];
+            } else {
+                merged[k++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            merged[k++] = a[i++];
+        }
+        while (j < b.length) {
+            merged[k++] = b[j++];
+        }
+        return Arrays.copyOf(merged, k);
+    }
+
+    private int internTerm(String term) {
+        Integer id = termIds.get(term);
+        if (id == null) {
+            id = postings.size();
+            termIds.put(term, id);
+            postings.add(new Postings());
+        }
+        return id;
+    }
+
+    private void ensureCapacity(int docId) {
+        if (docId <= 0) {
+            throw new IllegalArgumentException("Document ids must be positive");
+        }
+        if (docId >= forward.length) {
+            int capacity = Math.max(docId + 1, forward.length * 2);
+            forward = Arrays.copyOf(forward, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            createdMinutes = Arrays.copyOf(createdMinutes, capacity);
+        }
+    }
+
+    /** Term ids of {@code tokens} without repeats or field breaks. */
+    private static int[] distinct(int[] tokens) {
+        int[] sorted = tokens.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] != FIELD_BREAK && (count == 0 || sorted[count - 1] != sorted[i])) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    private interface TermInterner {
+        int intern(String term);
+    }
+
+    private static int[] tokenize(String[] fields, TermInterner interner) {
+        int[] tokens = new int[16];
+        int count = 0;
+        StringBuilder token = new StringBuilder();
+        for (String field : fields) {
+            if (field == null || field.isEmpty()) {
+                continue;
+            }
+            if (count > 0) {
+                tokens = append(tokens, count++, FIELD_BREAK);
+            }
+            for (String term : terms(field, token)) {
+                tokens = append(tokens, count++, interner.intern(term));
+            }
+        }
+        return Arrays.copyOf(tokens, count);
+    }
+
+    private static int[] append(int[] tokens, int at, int value) {
+        if (at == tokens.length) {
+            tokens = Arrays.copyOf(tokens, tokens.length * 2);
+        }
+        tokens[at] = value;
+        return tokens;
+    }
+
+    /** Lower-cased runs of letters and digits, cut at {@value #MAX_TOKEN_LENGTH} characters. */
+    static List<String> terms(String text, StringBuilder scratch) {
+        List<String> terms = new ArrayList<>();
+        scratch.setLength(0);
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (scratch.length() < MAX_TOKEN_LENGTH) {
+                    scratch.append(Character.toLowerCase(c));
+                }
+            } else if (scratch.length() > 0) {
+                terms.add(scratch.toString());
+                scratch.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    /** A slice of a bulk load with its own term dictionary, so slices can be built on separate threads. */
+    public Shard newShard() {
+        return new Shard();
+    }
+
+    /**
+     * Merges shards built over ascending, disjoint id ranges into this empty
+     * index. Postings stay sorted because each shard's ids follow the previous
+     * shard's.
+     */
+    public void merge(List<Shard> shards) {
+        if (documents != 0) {
+            throw new IllegalStateException("Shards can only be merged into an empty index");
+        }
+        for (Shard shard : shards) {
+            int[] globalIds = new int[shard.terms.size()];
+            for (int local = 0; local < globalIds.length; local++) {
+                int global = internTerm(shard.terms.get(local));
+                globalIds[local] = global;
+                Postings target = postings.get(global);
+                Postings source = shard.postings.get(local);
+                target.appendAll(source);
+                postingCount += source.size;
+            }
+            for (int i = 0; i < shard.docCount; i++) {
+                int[] tokens = forward[shard.docIds[i]];
+                for (int t = 0; t < tokens.length; t++) {
+                    if (tokens[t] != FIELD_BREAK) {
+                        tokens[t] = globalIds[tokens[t]];
+                    }
+                }
+            }
+            documents += shard.docCount;
+        }
+    }
+
+    public final class Shard {
+        private final Map<String, Integer> localIds = new HashMap<>();
+        private final List<String> terms = new ArrayList<>();
+        private final List<Postings> postings = new ArrayList<>();
+        private int[] docIds = new int[1024];
+        private int docCount;
+        private int lastDocId;
+
+        /**
+         * Adds a document; ids must ascend within the shard and be below the
+         * index's expected maximum, since shards write the document arrays directly.
+         */
+        public void add(int docId, byte status, int createdMinute, String... fields) {
+            if (docId <= lastDocId || docId >= forward.length) {
+                throw new IllegalArgumentException("Shard document ids must ascend within the expected range");
+            }
+            lastDocId = docId;
+            int[] tokens = tokenize(fields, this::intern);
+            forward[docId] = tokens;
+            statuses[docId] = status;
+            createdMinutes[docId] = createdMinute;
+            for (int term : distinct(tokens)) {
+                postings.get(term).append(docId);
+            }
+            if (docCount == docIds.length) {
+                docIds = Arrays.copyOf(docIds, docCount * 2);
+            }
+            docIds[docCount++] = docId;
+        }
+
+        private int intern(String term) {
+            Integer id = localIds.get(term);
+            if (id == null) {
+                id = terms.size();
+                localIds.put(term, id);
+                terms.add(term);
+                postings.add(new Postings());
+            }
+            return id;
+        }
+    }
+
+    private static final class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void append(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        void appendAll(Postings other) {
+            if (size + other.size > docs.length) {
+                docs = Arrays.copyOf(docs, Math.max(size + other.size, docs.length * 2));
+            }
+            System.arraycopy(other.docs, 0, docs, size, other.size);
+            size += other.size;
+        }
+
+        void add(int doc) {
+            if (size == 0 || docs[size - 1] < doc) {
+                append(doc);
+                return;
+            }
+            int at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            System.arraycopy(docs, at, docs, at + 1, size - at);
+            docs[at] = doc;
+            size++;
+        }
+
+        void remove(int doc) {
+            int at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at >= 0) {
+                System.arraycopy(docs, at + 1, docs, at, size - at - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * A parsed query: whitespace-separated terms are ANDed, quoted text is a
+     * phrase, and {@code OR} separates alternative clauses.
+     */
+    public static final class Query {
+        private final List<Clause> clauses;
+
+        private Query(List<Clause> clauses) {
+            this.clauses = clauses;
+        }
+
+        public static Query parse(String text) {
+            List<Clause> clauses = new ArrayList<>();
+            Clause current = new Clause();
+            StringBuilder scratch = new StringBuilder();
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '"') {
+                    int end = text.indexOf('"', i + 1);
+                    if (end < 0) {
+                        end = text.length();
+                    }
+                    List<String> phrase = terms(text.substring(i + 1, end), scratch);
+                    if (phrase.size() == 1) {
+                        current.terms.add(phrase.get(0));
+                    } else if (phrase.size() > 1) {
+                        current.phrases.add(phrase.toArray(new String[0]));
+                    }
+                    i = end + 1;
+                } else {
+                    int end = i;
+                    while (end < text.length() && !Character.isWhitespace(text.charAt(end)) && text.charAt(end) != '"') {
+                        end++;
+                    }
+                    String word = text.substring(i, end);
+                    if (word.equals("OR")) {
+                        if (!current.isEmpty()) {
+                            clauses.add(current);
+                        }
+                        current = new Clause();
+                    } else {
+                        current.terms.addAll(terms(word, scratch));
+                    }
+                    i = end;
+                }
+            }
+            if (!current.isEmpty()) {
+                clauses.add(current);
+            }
+            if (clauses.isEmpty()) {
+                throw new IllegalArgumentException("Query must contain at least one term");
+            }
+            return new Query(clauses);
+        }
+    }
+
+    private static final class Clause {
+        final List<String> terms = new ArrayList<>();
+        final List<String[]> phrases = new ArrayList<>();
+
+        boolean isEmpty() {
+            return terms.isEmpty() && phrases.isEmpty();
+        }
+    }
+
+    public static final class Hits {
+        private final int total;
+        private final int[] docIds;
+
+        Hits(int total, int[] docIds) {
+            this.total = total;
+            this.docIds = docIds;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int[] getDocIds() {
+            return docIds;
+        }
+    }
+}
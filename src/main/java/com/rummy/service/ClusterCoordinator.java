@@ -0,0 +1,420 @@
+package com.rummy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coordinates app nodes through Postgres LISTEN/NOTIFY, so no extra
+ * infrastructure is needed. Nodes broadcast two kinds of state:
+ * <ul>
+ *   <li>entity invalidations, so per-node caches reload changed users and documents</li>
+ *   <li>deltas of windowed counters, so throttles count attempts made on every node</li>
+ * </ul>
+ * Outgoing state is queued and flushed as a few NOTIFY payloads per interval;
+ * a batch that cannot be sent stays queued for the next flush.
+ * While the listen connection is up, remote changes arrive within roughly one
+ * flush interval plus one poll. When it drops, notifications may be lost, so
+ * every subscriber is told to reload everything once it reconnects.
+ */
+@Service
+public class ClusterCoordinator {
+    private static final Logger logger = LoggerFactory.getLogger(ClusterCoordinator.class);
+
+    // NOTIFY payloads must stay below 8000 bytes
+    private static final int MAX_PAYLOAD_CHARS = 7000;
+
+    public interface Subscriber {
+        void onInvalidate(List<Long> ids);
+
+        /** Called after notifications may have been missed; reload everything. */
+        void onReset();
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${cluster.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cluster.channel:rummy_cluster}")
+    private String channel;
+
+    @Value("${cluster.poll-timeout-ms:500}")
+    private int pollTimeoutMillis;
+
+    @Value("${cluster.reconnect-delay-ms:2000}")
+    private long reconnectDelayMillis;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final ConcurrentHashMap<String, CopyOnWriteArrayList<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Invalidation> outgoing = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final AtomicLong notificationsSent = new AtomicLong();
+    private final AtomicLong notificationsReceived = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private volatile boolean running = true;
+    private volatile boolean listening;
+    private volatile long lastDisconnectMillis;
+    private Thread listener;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        listener = new Thread(this::listen, "cluster-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public void subscribe(String entity, Subscriber subscriber) {
+        subscribers.computeIfAbsent(entity, e -> new CopyOnWriteArrayList<>()).add(subscriber);
+    }
+
+    /** Tells the other nodes the entity changed, once the surrounding transaction commits. */
+    public void invalidateAfterCommit(String entity, Long id) {
+        if (!enabled || id == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            outgoing.add(new Invalidation(entity, id));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outgoing.add(new Invalidation(entity, id));
+            }
+        });
+    }
+
+    /**
+     * Counts one event against {@code key} in the current fixed window and
+     * returns the cluster-wide count, which trails other nodes by at most a
+     * flush interval.
+     */
+    public long increment(String key, long windowMillis) {
+        long window = System.currentTimeMillis() / windowMillis;
+        Counter counter = counters.computeIfAbsent(key, k -> new Counter(windowMillis));
+        synchronized (counter) {
+            counter.roll(window);
+            counter.local++;
+            counter.unsent++;
+            return counter.local + counter.remote;
+        }
+    }
+
+    /** The cluster-wide count for {@code key} in the current window, without counting. */
+    public long count(String key, long windowMillis) {
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            return 0;
+        }
+        synchronized (counter) {
+            counter.roll(System.currentTimeMillis() / windowMillis);
+            return counter.local + counter.remote;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.flush-interval-ms:50}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        Batch batch = new Batch(nodeId);
+        int size = 0;
+        Invalidation invalidation;
+        while ((invalidation = outgoing.poll()) != null) {
+            batch.invalidations.computeIfAbsent(invalidation.entity, e -> new ArrayList<>()).add(invalidation.id);
+            size += 21;
+            if (size > MAX_PAYLOAD_CHARS) {
+                if (!send(batch)) {
+                    return;
+                }
+                batch = new Batch(nodeId);
+                size = 0;
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            synchronized (counter) {
+                if (counter.window < now / counter.windowMillis - 1) {
+                    counters.remove(entry.getKey(), counter);
+                    continue;
+                }
+                if (counter.unsent == 0) {
+                    continue;
+                }
+                batch.counters.add(new CounterDelta(entry.getKey(), counter.windowMillis, counter.window, counter.unsent));
+                counter.unsent = 0;
+            }
+            size += entry.getKey().length() + 80;
+            if (size > MAX_PAYLOAD_CHARS) {
+                if (!send(batch)) {
+                    return;
+                }
+                batch = new Batch(nodeId);
+                size = 0;
+            }
+        }
+        if (!batch.invalidations.isEmpty() || !batch.counters.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("nodeId", nodeId);
+        metrics.put("listening", listening);
+        metrics.put("pendingInvalidations", outgoing.size());
+        metrics.put("counters", counters.size());
+        metrics.put("notificationsSent", notificationsSent.get());
+        metrics.put("notificationsReceived", notificationsReceived.get());
+        metrics.put("resets", resets.get());
+        metrics.put("lastDisconnectMillis", lastDisconnectMillis);
+        return metrics;
+    }
+
+    /**
+     * Broadcasts the batch, or puts it back in the queue when the database is unreachable. Other nodes
+     * only reset when their own listen connection drops, so a batch dropped here would never reach them.
+     */
+    private boolean send(Batch batch) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(batch);
+        } catch (JsonProcessingException e) {
+            logger.error("Could not serialize cluster batch, dropping it", e);
+            return true;
+        }
+        try {
+            jdbcTemplate.query("select pg_notify(?, ?)", rs -> null, channel, payload);
+            notificationsSent.incrementAndGet();
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Could not broadcast cluster batch, retrying on the next flush", e);
+            requeue(batch);
+            return false;
+        }
+    }
+
+    private void requeue(Batch batch) {
+        batch.invalidations.forEach((entity, ids) -> ids.forEach(id -> outgoing.add(new Invalidation(entity, id))));
+        for (CounterDelta delta : batch.counters) {
+            Counter counter = counters.get(delta.key);
+            if (counter == null) {
+                continue;
+            }
+            synchronized (counter) {
+                // A delta for a window that has since rolled over no longer matters to anyone
+                if (counter.window == delta.window) {
+                    counter.unsent += delta.count;
+                }
+            }
+        }
+    }
+
+    private void listen() {
+        // Anything broadcast while this node was not listening is lost, so subscribers reload after a gap
+        boolean missedNotifications = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                listening = true;
+                if (missedNotifications) {
+                    resetSubscribers();
+                    missedNotifications = false;
+                }
+                logger.info("Cluster node {} listening on {}", nodeId, channel);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMillis);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        receive(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Cluster listener lost its connection, retrying in {} ms", reconnectDelayMillis, e);
+            }
+            missedNotifications = true;
+            if (listening) {
+                listening = false;
+                lastDisconnectMillis = System.currentTimeMillis();
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(reconnectDelayMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        Batch batch;
+        try {
+            batch = objectMapper.readValue(payload, Batch.class);
+        } catch (JsonProcessingException e) {
+            logger.warn("Ignoring malformed cluster batch", e);
+            return;
+        }
+        if (nodeId.equals(batch.node)) {
+            return;
+        }
+        notificationsReceived.incrementAndGet();
+        for (Map.Entry<String, List<Long>> entry : batch.invalidations.entrySet()) {
+            List<Subscriber> targets = subscribers.get(entry.getKey());
+            if (targets == null) {
+                continue;
+            }
+            for (Subscriber subscriber : targets) {
+                try {
+                    subscriber.onInvalidate(entry.getValue());
+                } catch (RuntimeException e) {
+                    logger.warn("Cluster subscriber for {} failed", entry.getKey(), e);
+                }
+            }
+        }
+        for (CounterDelta delta : batch.counters) {
+            Counter counter = counters.computeIfAbsent(delta.key, k -> new Counter(delta.windowMillis));
+            synchronized (counter) {
+                counter.roll(delta.window);
+                if (counter.window == delta.window) {
+                    counter.remote += delta.count;
+                }
+            }
+        }
+    }
+
+    private void resetSubscribers() {
+        resets.incrementAndGet();
+        subscribers.forEach((entity, list) -> list.forEach(subscriber -> {
+            try {
+                subscriber.onReset();
+            } catch (RuntimeException e) {
+                logger.warn("Cluster subscriber for {} failed to reset", entity, e);
+            }
+        }));
+    }
+
+    private static final class Invalidation {
+        final String entity;
+        final Long id;
+
+        Invalidation(String entity, Long id) {
+            this.entity = entity;
+            this.id = id;
+        }
+    }
+
+    private static final class Counter {
+        final long windowMillis;
+        long window;
+        long local;
+        long remote;
+        long unsent;
+
+        Counter(long windowMillis) {
+            this.windowMillis = windowMillis;
+        }
+
+        /** Moves to {@code current} if it is newer, dropping the old window's counts. */
+        void roll(long current) {
+            if (current > window) {
+                window = current;
+                local = 0;
+                remote = 0;
+                unsent = 0;
+            }
+        }
+    }
+
+    /** Wire format of one NOTIFY payload. */
+    public static final class Batch {
+        public String node;
+        public Map<String, List<Long>> invalidations = new HashMap<>();
+        public List<CounterDelta> counters = new ArrayList<>();
+
+        public Batch() {
+        }
+
+        Batch(String node) {
+            this.node = node;
+        }
+    }
+
+    public static final class CounterDelta {
+        public String key;
+        public long windowMillis;
+        public long window;
+        public long count;
+
+        public CounterDelta() {
+        }
+
+        CounterDelta(String key, long windowMillis, long window, long count) {
+            this.key = key;
+            this.windowMillis = windowMillis;
+            this.window = window;
+            this.count = count;
+        }
+    }
+}
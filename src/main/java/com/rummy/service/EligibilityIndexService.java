@@ -0,0 +1,406 @@
+package com.rummy.service;
+
+import com.rummy.model.FraudReportStatus;
+import com.rummy.model.KycStatus;
+import com.rummy.repository.FraudReportRepository;
+import com.rummy.repository.UserRepository;
+import com.rummy.search.CompressedBitmap;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * One compressed bitmap of user ids per eligibility attribute, so questions like
+ * "verified, KYC approved, no open fraud report and not on a blocked address"
+ * are answered with a few AND/OR/ANDNOT passes over the bitmaps instead of a
+ * scan of the users table. Built in bulk at startup and kept current from the
+ * user, fraud report and login lockout write paths; other nodes' user and fraud
+ * report writes arrive through the cluster invalidations.
+ *
+ * <p>Addresses are blocked by {@code eligibility.index.blocked-ips} and by login
+ * lockouts on this node, which lapse after their lockout window.
+ */
+@Service
+public class EligibilityIndexService {
+    private static final Logger logger = LoggerFactory.getLogger(EligibilityIndexService.class);
+
+    private static final Set<FraudReportStatus> OPEN_REPORT_STATUSES =
+            EnumSet.of(FraudReportStatus.PENDING, FraudReportStatus.UNDER_REVIEW);
+    private static final long PERMANENT = Long.MAX_VALUE;
+
+    public enum Attribute {
+        REGISTERED,
+        VERIFIED,
+        KYC_APPROVED,
+        OPEN_FRAUD_REPORT,
+        BLOCKED_IP
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FraudReportRepository fraudReportRepository;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Value("${eligibility.load.page-size:10000}")
+    private int pageSize;
+
+    @Value("${eligibility.index.blocked-ips:}")
+    private List<String> configuredBlockedIps;
+
+    @Value("${eligibility.index.max-results:1000}")
+    private int maxResults;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Updates that land while a rebuild is reading the tables, replayed onto the rebuilt bitmaps
+    private final ConcurrentLinkedQueue<Consumer<CompressedBitmap[]>> pending = new ConcurrentLinkedQueue<>();
+    // Blocked address -> epoch millis the block lapses at
+    private final ConcurrentHashMap<String, Long> blockedIps = new ConcurrentHashMap<>();
+    private CompressedBitmap[] bitmaps = emptyBitmaps();
+    private boolean rebuilding;
+    private volatile long lastBuildMillis;
+    private final AtomicLong queries = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        for (String ip : configuredBlockedIps) {
+            if (!ip.isBlank()) {
+                blockedIps.put(ip.trim(), PERMANENT);
+            }
+        }
+        clusterCoordinator.subscribe("fraud-report", new ClusterCoordinator.Subscriber() {
+            @Override
+            public void onInvalidate(List<Long> ids) {
+                refreshOpenReports(fraudReportRepository.findUserIdsByIds(ids));
+            }
+
+            @Override
+            public void onReset() {
+                rebuild();
+            }
+        });
+    }
+
+    /** Reads every user, open fraud report and blocked address into fresh bitmaps and swaps them in. */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        CompressedBitmap.Builder registered = new CompressedBitmap.Builder();
+        CompressedBitmap.Builder verified = new CompressedBitmap.Builder();
+        CompressedBitmap.Builder approved = new CompressedBitmap.Builder();
+        long afterId = 0;
+        while (true) {
+            List<Object[]> page = userRepository.findEligibilityPage(afterId, PageRequest.of(0, pageSize));
+            for (Object[] row : page) {
+                afterId = (Long) row[0];
+                int userId = bit(afterId);
+                registered.add(userId);
+                if (Boolean.TRUE.equals(row[1])) {
+                    verified.add(userId);
+                }
+                if (row[2] == KycStatus.APPROVED) {
+                    approved.add(userId);
+                }
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+        CompressedBitmap[] rebuilt = emptyBitmaps();
+        rebuilt[Attribute.REGISTERED.ordinal()] = registered.build();
+        rebuilt[Attribute.VERIFIED.ordinal()] = verified.build();
+        rebuilt[Attribute.KYC_APPROVED.ordinal()] = approved.build();
+        rebuilt[Attribute.OPEN_FRAUD_REPORT.ordinal()] =
+                build(fraudReportRepository.findUserIdsWithStatusIn(OPEN_REPORT_STATUSES));
+        List<String> ips = new ArrayList<>(blockedIps.keySet());
+        rebuilt[Attribute.BLOCKED_IP.ordinal()] = ips.isEmpty()
+                ? new CompressedBitmap() : build(userRepository.findIdsByLastLoginIpIn(ips));
+
+        int replayed = 0;
+        lock.writeLock().lock();
+        try {
+            Consumer<CompressedBitmap[]> update;
+            while ((update = pending.poll()) != null) {
+                update.accept(rebuilt);
+                replayed++;
+            }
+            bitmaps = rebuilt;
+            rebuilding = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        lastBuildMillis = System.currentTimeMillis() - start;
+        logger.info("Built eligibility bitmaps for {} users in {} ms, replayed {} concurrent updates",
+                rebuilt[Attribute.REGISTERED.ordinal()].cardinality(), lastBuildMillis, replayed);
+    }
+
+    /**
+     * Sets the user's bits from their current state. Called from the eligibility
+     * cache for local and remote user writes; {@code lastLoginIp} is null when the
+     * caller does not have it, leaving the address bit alone.
+     */
+    public void updateUser(Long userId, boolean verified, KycStatus kycStatus, String lastLoginIp) {
+        int id = bit(userId);
+        boolean approved = kycStatus == KycStatus.APPROVED;
+        Boolean blocked = lastLoginIp == null ? null : isBlocked(lastLoginIp);
+        apply(maps -> {
+            maps[Attribute.REGISTERED.ordinal()].add(id);
+            maps[Attribute.VERIFIED.ordinal()].set(id, verified);
+            maps[Attribute.KYC_APPROVED.ordinal()].set(id, approved);
+            if (blocked != null) {
+                maps[Attribute.BLOCKED_IP.ordinal()].set(id, blocked);
+            }
+        });
+    }
+
+    /** Records a report changing status after commit; {@code from} is null for a new report. */
+    public void fraudReportChangedAfterCommit(Long userId, FraudReportStatus from, FraudReportStatus to) {
+        boolean wasOpen = from != null && OPEN_REPORT_STATUSES.contains(from);
+        boolean isOpen = to != null && OPEN_REPORT_STATUSES.contains(to);
+        if (wasOpen == isOpen) {
+            return;
+        }
+        int id = bit(userId);
+        // Opening a report flags the user outright; closing one needs a count of what else is open
+        Runnable update = isOpen
+                ? () -> apply(maps -> maps[Attribute.OPEN_FRAUD_REPORT.ordinal()].add(id))
+                : () -> refreshOpenReports(List.of(userId));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
+    /** Blocks the address for {@code millis}, flagging every user whose last login came from it. */
+    public void blockIp(String ip, long millis) {
+        long until = System.currentTimeMillis() + millis;
+        if (blockedIps.putIfAbsent(ip, until) != null) {
+            // Already blocked and its users flagged; just extend the block
+            blockedIps.merge(ip, until, Math::max);
+            return;
+        }
+        int[] ids = bits(userRepository.findIdsByLastLoginIpIn(List.of(ip)));
+        apply(maps -> {
+            for (int id : ids) {
+                maps[Attribute.BLOCKED_IP.ordinal()].add(id);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${eligibility.index.unblock-interval-ms:60000}")
+    public void expireBlocks() {
+        long now = System.currentTimeMillis();
+        List<String> expired = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : blockedIps.entrySet()) {
+            if (entry.getValue() <= now && blockedIps.remove(entry.getKey(), entry.getValue())) {
+                expired.add(entry.getKey());
+            }
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+        int[] ids = bits(userRepository.findIdsByLastLoginIpIn(expired));
+        apply(maps -> {
+            for (int id : ids) {
+                maps[Attribute.BLOCKED_IP.ordinal()].remove(id);
+            }
+        });
+    }
+
+    /**
+     * Users having every attribute in {@code all}, at least one in {@code any} and
+     * none in {@code none}; each list may be empty. With neither {@code all} nor
+     * {@code any} the query starts from every registered user. Returns the total
+     * and up to {@code limit} ids in ascending order.
+     */
+    public Map<String, Object> query(Collection<Attribute> all, Collection<Attribute> any,
+                                     Collection<Attribute> none, int limit) {
+        int size = Math.max(0, Math.min(limit, maxResults));
+        long start = System.nanoTime();
+        long total;
+        int[] ids;
+        lock.readLock().lock();
+        try {
+            CompressedBitmap result = evaluate(all, any, none);
+            total = result.cardinality();
+            ids = result.toArray(size);
+        } finally {
+            lock.readLock().unlock();
+        }
+        queries.incrementAndGet();
+        List<Long> userIds = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            userIds.add((long) id);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("total", total);
+        response.put("userIds", userIds);
+        response.put("tookMicros", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        return response;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        Map<String, Object> cardinalities = new LinkedHashMap<>();
+        long bytes = 0;
+        lock.readLock().lock();
+        try {
+            for (Attribute attribute : Attribute.values()) {
+                cardinalities.put(attribute.name(), bitmaps[attribute.ordinal()].cardinality());
+                bytes += bitmaps[attribute.ordinal()].sizeInBytes();
+            }
+            metrics.put("rebuilding", rebuilding);
+        } finally {
+            lock.readLock().unlock();
+        }
+        metrics.put("cardinalities", cardinalities);
+        metrics.put("bytes", bytes);
+        metrics.put("blockedIps", blockedIps.size());
+        metrics.put("lastBuildMillis", lastBuildMillis);
+        metrics.put("queries", queries.get());
+        return metrics;
+    }
+
+    private CompressedBitmap evaluate(Collection<Attribute> all, Collection<Attribute> any,
+                                      Collection<Attribute> none) {
+        // Intersect the smallest bitmaps first so later passes touch fewer chunks
+        List<CompressedBitmap> required = new ArrayList<>();
+        for (Attribute attribute : new HashSet<>(all)) {
+            required.add(bitmaps[attribute.ordinal()]);
+        }
+        required.sort(Comparator.comparingLong(CompressedBitmap::cardinality));
+        CompressedBitmap result = null;
+        for (CompressedBitmap bitmap : required) {
+            result = result == null ? bitmap : CompressedBitmap.and(result, bitmap);
+        }
+        if (!any.isEmpty()) {
+            CompressedBitmap union = null;
+            for (Attribute attribute : new HashSet<>(any)) {
+                CompressedBitmap bitmap = bitmaps[attribute.ordinal()];
+                union = union == null ? bitmap : CompressedBitmap.or(union, bitmap);
+            }
+            result = result == null ? union : CompressedBitmap.and(result, union);
+        }
+        if (result == null) {
+            result = bitmaps[Attribute.REGISTERED.ordinal()];
+        }
+        for (Attribute attribute : new HashSet<>(none)) {
+            result = CompressedBitmap.andNot(result, bitmaps[attribute.ordinal()]);
+        }
+        return result;
+    }
+
+    private void refreshOpenReports(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Set<Long> open = new HashSet<>();
+        for (Object[] row : fraudReportRepository.countByUserIdsAndStatusIn(userIds, OPEN_REPORT_STATUSES)) {
+            if ((Long) row[1] > 0) {
+                open.add((Long) row[0]);
+            }
+        }
+        int[] ids = bits(userIds);
+        boolean[] flagged = new boolean[ids.length];
+        int i = 0;
+        for (Long userId : userIds) {
+            flagged[i++] = open.contains(userId);
+        }
+        apply(maps -> {
+            for (int j = 0; j < ids.length; j++) {
+                maps[Attribute.OPEN_FRAUD_REPORT.ordinal()].set(ids[j], flagged[j]);
+            }
+        });
+    }
+
+    private boolean isBlocked(String ip) {
+        Long until = blockedIps.get(ip);
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    private void apply(Consumer<CompressedBitmap[]> update) {
+        lock.writeLock().lock();
+        try {
+            update.accept(bitmaps);
+            if (rebuilding) {
+                pending.add(update);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static CompressedBitmap build(List<Long> ascendingIds) {
+        CompressedBitmap.Builder builder = new CompressedBitmap.Builder();
+        for (Long id : ascendingIds) {
+            builder.add(bit(id));
+        }
+        return builder.build();
+    }
+
+    private static int[] bits(Collection<Long> ids) {
+        int[] bits = new int[ids.size()];
+        int i = 0;
+        for (Long id : ids) {
+            bits[i++] = bit(id);
+        }
+        return bits;
+    }
+
+    private static int bit(Long id) {
+        if (id == null || id <= 0 || id > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("User id outside the indexable range: " + id);
+        }
+        return id.intValue();
+    }
+
+    private static CompressedBitmap[] emptyBitmaps() {
+        CompressedBitmap[] empty = new CompressedBitmap[Attribute.values().length];
+        for (int i = 0; i < empty.length; i++) {
+            empty[i] = new CompressedBitmap();
+        }
+        return empty;
+    }
+}
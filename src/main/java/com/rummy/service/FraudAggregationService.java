@@ -0,0 +1,408 @@
+package com.rummy.service;
+
+import com.rummy.model.FraudReport;
+import com.rummy.model.FraudReportStatus;
+import com.rummy.model.OutboxEventType;
+import com.rummy.repository.FraudReportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user fraud report aggregates kept in memory and updated as each report
+ * commits: a per-minute count over a sliding window, a linear-counting sketch
+ * of distinct reasons and a bounded set of evidence fingerprints. Users whose
+ * aggregate crosses the escalation thresholds are queued, and their pending
+ * reports are moved to {@link FraudReportStatus#UNDER_REVIEW} in batches.
+ * Reasons and evidence are kept per minute like the counts, so all three
+ * thresholds look at the same window.
+ */
+@Service
+public class FraudAggregationService {
+    private static final Logger logger = LoggerFactory.getLogger(FraudAggregationService.class);
+
+    @Autowired
+    private FraudReportRepository fraudReportRepository;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private PushService pushService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private StatusCounterService statusCounterService;
+
+    @Value("${fraud.aggregation.window-minutes:60}")
+    private int windowMinutes;
+
+    @Value("${fraud.escalation.min-reports:20}")
+    private int minReports;
+
+    @Value("${fraud.escalation.min-distinct-reasons:3}")
+    private int minDistinctReasons;
+
+    @Value("${fraud.escalation.min-distinct-evidence:3}")
+    private int minDistinctEvidence;
+
+    @Value("${fraud.escalation.batch-size:200}")
+    private int batchSize;
+
+    @Value("${fraud.escalation.max-reports-per-batch:5000}")
+    private int maxReportsPerBatch;
+
+    @Value("${fraud.hot-users.max-results:100}")
+    private int maxHotUsers;
+
+    private final ConcurrentHashMap<Long, Aggregate> aggregates = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Boolean> pendingEscalations = new ConcurrentHashMap<>();
+    private final AtomicLong reportsAggregated = new AtomicLong();
+    private final AtomicLong reportsEscalated = new AtomicLong();
+    private final AtomicLong usersEscalated = new AtomicLong();
+
+    /** Rebuilds the aggregates from the reports still inside the window. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        LocalDateTime since = LocalDateTime.now().minusMinutes(windowMinutes);
+        List<Object[]> rows = fraudReportRepository.findAggregationRowsSince(since);
+        for (Object[] row : rows) {
+            record((Long) row[0], (String) row[1], (String) row[2], toMinute((LocalDateTime) row[3]));
+        }
+        logger.info("Aggregated {} recent fraud reports for {} users in {} ms",
+                rows.size(), aggregates.size(), System.currentTimeMillis() - start);
+    }
+
+    /** Counts the report once the surrounding transaction commits, or now if there is none. */
+    public void recordAfterCommit(FraudReport report) {
+        Long userId = report.getUser().getId();
+        String reason = report.getReason();
+        String evidence = report.getEvidence();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(userId, reason, evidence, currentMinute());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(userId, reason, evidence, currentMinute());
+            }
+        });
+    }
+
+    private void record(Long userId, String reason, String evidence, long minute) {
+        Aggregate aggregate = aggregates.computeIfAbsent(userId, id -> new Aggregate(windowMinutes));
+        boolean crossed;
+        synchronized (aggregate) {
+            aggregate.add(minute, normalize(reason), normalize(evidence));
+            crossed = crossesThresholds(aggregate, minute);
+        }
+        reportsAggregated.incrementAndGet();
+        if (crossed) {
+            pendingEscalations.put(userId, Boolean.TRUE);
+        }
+    }
+
+    private boolean crossesThresholds(Aggregate aggregate, long minute) {
+        return aggregate.count(minute) >= minReports
+                || (aggregate.distinctReasons(minute) >= minDistinctReasons
+                && aggregate.distinctEvidence(minute) >= minDistinctEvidence);
+    }
+
+    /** Moves the pending reports of queued users to UNDER_REVIEW, a batch of users at a time. */
+    @Scheduled(fixedDelayString = "${fraud.escalation.interval-ms:5000}")
+    @Transactional
+    public void escalate() {
+        if (pendingEscalations.isEmpty()) {
+            return;
+        }
+        List<Long> userIds = new ArrayList<>(batchSize);
+        for (Iterator<Long> it = pendingEscalations.keySet().iterator(); it.hasNext() && userIds.size() < batchSize; ) {
+            userIds.add(it.next());
+            it.remove();
+        }
+        // A rolled back batch goes back on the queue instead of being lost until the next report
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    requeue(userIds);
+                }
+            }
+        });
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = fraudReportRepository.moveStatusOfUsers(userIds, FraudReportStatus.PENDING.name(),
+                FraudReportStatus.UNDER_REVIEW.name(), now, maxReportsPerBatch);
+        if (rows.size() >= maxReportsPerBatch) {
+            // These users may have more pending reports than one batch moves; the next run takes the rest
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    requeue(userIds);
+                }
+            });
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> escalatedPerUser = new HashMap<>();
+        List<Long> escalatedIds = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            escalatedIds.add((Long) row[0]);
+            Long userId = (Long) row[1];
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("reportId", row[0]);
+            payload.put("userId", userId);
+            payload.put("reason", row[2]);
+            payload.put("status", FraudReportStatus.UNDER_REVIEW);
+            payload.put("previousStatus", FraudReportStatus.PENDING);
+            payload.put("autoEscalated", true);
+            outboxService.record(userId, OutboxEventType.FRAUD_REPORT_STATUS_CHANGED, payload);
+            escalatedPerUser.merge(userId, 1, Integer::sum);
+        }
+        for (Map.Entry<Long, Integer> entry : escalatedPerUser.entrySet()) {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("userId", entry.getKey());
+            payload.put("status", FraudReportStatus.UNDER_REVIEW);
+            payload.put("reports", entry.getValue());
+            payload.put("autoEscalated", true);
+            pushService.publishAfterCommit(entry.getKey(), OutboxEventType.FRAUD_REPORT_STATUS_CHANGED.name(), payload);
+        }
+        searchIndexService.updateStatusAfterCommit(escalatedIds, FraudReportStatus.UNDER_REVIEW);
+        statusCounterService.reportsChangedAfterCommit(FraudReportStatus.PENDING, FraudReportStatus.UNDER_REVIEW,
+                rows.size());
+        reportsEscalated.addAndGet(rows.size());
+        usersEscalated.addAndGet(escalatedPerUser.size());
+        logger.info("Escalated {} fraud reports for {} users", rows.size(), escalatedPerUser.size());
+    }
+
+    private void requeue(List<Long> userIds) {
+        for (Long userId : userIds) {
+            pendingEscalations.put(userId, Boolean.TRUE);
+        }
+    }
+
+    /** Drops aggregates whose user has had no report for a full window. */
+    @Scheduled(fixedDelayString = "${fraud.aggregation.sweep-interval-ms:60000}")
+    public void sweep() {
+        long minute = currentMinute();
+        aggregates.entrySet().removeIf(entry -> {
+            Aggregate aggregate = entry.getValue();
+            synchronized (aggregate) {
+                return aggregate.isIdle(minute);
+            }
+        });
+    }
+
+    /** The most reported users in the current window, highest count first. */
+    public List<Map<String, Object>> getHotUsers(int limit) {
+        int size = Math.max(1, Math.min(limit, maxHotUsers));
+        long minute = currentMinute();
+        PriorityQueue<long[]> top = new PriorityQueue<>(size + 1, (a, b) -> Long.compare(a[1], b[1]));
+        for (Map.Entry<Long, Aggregate> entry : aggregates.entrySet()) {
+            int count;
+            synchronized (entry.getValue()) {
+                count = entry.getValue().count(minute);
+            }
+            if (count == 0) {
+                continue;
+            }
+            if (top.size() < size) {
+                top.add(new long[]{entry.getKey(), count});
+            } else if (count > top.peek()[1]) {
+                top.poll();
+                top.add(new long[]{entry.getKey(), count});
+            }
+        }
+        List<long[]> ordered = new ArrayList<>(top);
+        ordered.sort((a, b) -> Long.compare(b[1], a[1]));
+
+        List<Map<String, Object>> hotUsers = new ArrayList<>(ordered.size());
+        for (long[] candidate : ordered) {
+            Aggregate aggregate = aggregates.get(candidate[0]);
+            if (aggregate == null) {
+                continue;
+            }
+            Map<String, Object> entry = new HashMap<>();
+            synchronized (aggregate) {
+                entry.put("userId", candidate[0]);
+                entry.put("reportsInWindow", aggregate.count(minute));
+                entry.put("distinctReasons", aggregate.distinctReasons(minute));
+                entry.put("distinctEvidence", aggregate.distinctEvidence(minute));
+                entry.put("escalationThresholdCrossed", crossesThresholds(aggregate, minute));
+            }
+            hotUsers.add(entry);
+        }
+        return hotUsers;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("trackedUsers", aggregates.size());
+        metrics.put("pendingEscalations", pendingEscalations.size());
+        metrics.put("reportsAggregated", reportsAggregated.get());
+        metrics.put("reportsEscalated", reportsEscalated.get());
+        metrics.put("usersEscalated", usersEscalated.get());
+        metrics.put("windowMinutes", windowMinutes);
+        return metrics;
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static long currentMinute() {
+        return TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+    }
+
+    private static long toMinute(LocalDateTime time) {
+        return TimeUnit.MILLISECONDS.toMinutes(time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    /** 64-bit FNV-1a; good enough to tell reasons and evidence apart, not a security hash. */
+    private static long fingerprint(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static final class Aggregate {
+        private static final int MAX_EVIDENCE = 32;
+
+        private final int[] counts;
+        private final long[] minutes;
+        private final long[] reasonBits;
+        private long lastMinute = Long.MIN_VALUE;
+        private final long[] evidence = new long[MAX_EVIDENCE];
+        private final long[] evidenceMinutes = new long[MAX_EVIDENCE];
+        private int evidenceCount;
+
+        Aggregate(int windowMinutes) {
+            counts = new int[windowMinutes];
+            minutes = new long[windowMinutes];
+            reasonBits = new long[windowMinutes];
+            Arrays.fill(minutes, Long.MIN_VALUE);
+        }
+
+        void add(long minute, String reason, String evidenceText) {
+            int slot = (int) Math.floorMod(minute, (long) counts.length);
+            if (minutes[slot] != minute) {
+                minutes[slot] = minute;
+                counts[slot] = 0;
+                reasonBits[slot] = 0;
+            }
+            counts[slot]++;
+            lastMinute = Math.max(lastMinute, minute);
+            if (reason != null) {
+                reasonBits[slot] |= 1L << (fingerprint(reason) >>> 58);
+            }
+            if (evidenceText != null) {
+                addEvidence(fingerprint(evidenceText), minute);
+            }
+        }
+
+        /**
+         * Keeps the minute each fingerprint was last seen. A full set reuses the
+         * entry seen longest ago, which has left the window or soon will.
+         */
+        private void addEvidence(long print, long minute) {
+            int oldest = 0;
+            for (int i = 0; i < evidenceCount; i++) {
+                if (evidence[i] == print) {
+                    evidenceMinutes[i] = Math.max(evidenceMinutes[i], minute);
+                    return;
+                }
+                if (evidenceMinutes[i] < evidenceMinutes[oldest]) {
+                    oldest = i;
+                }
+            }
+            if (evidenceCount < MAX_EVIDENCE) {
+                evidence[evidenceCount] = print;
+                evidenceMinutes[evidenceCount++] = minute;
+            } else if (evidenceMinutes[oldest] < minute) {
+                evidence[oldest] = print;
+                evidenceMinutes[oldest] = minute;
+            }
+        }
+
+        private boolean inWindow(long seen, long minute) {
+            return seen > minute - counts.length && seen <= minute;
+        }
+
+        int count(long minute) {
+            int total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (inWindow(minutes[i], minute)) {
+                    total += counts[i];
+                }
+            }
+            return total;
+        }
+
+        boolean isIdle(long minute) {
+            return lastMinute <= minute - counts.length;
+        }
+
+        /**
+         * Linear counting over the reasons seen in the window's minutes; accurate to a
+         * few dozen distinct reasons, which is all a threshold needs.
+         */
+        int distinctReasons(long minute) {
+            long bits = 0;
+            for (int i = 0; i < reasonBits.length; i++) {
+                if (inWindow(minutes[i], minute)) {
+                    bits |= reasonBits[i];
+                }
+            }
+            int zeros = Long.SIZE - Long.bitCount(bits);
+            if (zeros == 0) {
+                return (int) Math.round(Long.SIZE * Math.log(Long.SIZE));
+            }
+            return (int) Math.round(-Long.SIZE * Math.log((double) zeros / Long.SIZE));
+        }
+
+        /** Exact up to {@link #MAX_EVIDENCE} fingerprints seen in the window, where it saturates. */
+        int distinctEvidence(long minute) {
+            int distinct = 0;
+            for (int i = 0; i < evidenceCount; i++) {
+                if (inWindow(evidenceMinutes[i], minute)) {
+                    distinct++;
+                }
+            }
+            return distinct;
+        }
+    }
+}
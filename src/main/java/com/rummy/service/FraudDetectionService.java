@@ -3,13 +3,17 @@ package com.rummy.service;
 import com.rummy.dto.FraudReportDto;
 import com.rummy.model.FraudReport;
 import com.rummy.model.FraudReportStatus;
+import com.rummy.model.OutboxEventType;
 import com.rummy.model.User;
 import com.rummy.repository.FraudReportRepository;
 import com.rummy.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class FraudDetectionService {
@@ -19,6 +23,25 @@ public class FraudDetectionService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private PushService pushService;
+
+    @Autowired
+    private FraudAggregationService fraudAggregationService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private StatusCounterService statusCounterService;
+
+    @Autowired
+    private EligibilityIndexService eligibilityIndexService;
+
+    @Transactional
     public FraudReport reportFraud(FraudReportDto reportDto) {
         User user = userRepository.findById(reportDto.getUserId())
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
@@ -29,7 +52,13 @@ public class FraudDetectionService {
         report.setEvidence(reportDto.getEvidence());
         report.setAdditionalDetails(reportDto.getAdditionalDetails());
 
-        return fraudReportRepository.save(report);
+        FraudReport savedReport = fraudReportRepository.save(report);
+        outboxService.record(user.getId(), OutboxEventType.FRAUD_REPORTED, reportPayload(savedReport));
+        fraudAggregationService.recordAfterCommit(savedReport);
+        searchIndexService.indexAfterCommit(savedReport);
+        statusCounterService.reportsChangedAfterCommit(null, savedReport.getStatus(), 1);
+        eligibilityIndexService.fraudReportChangedAfterCommit(user.getId(), null, savedReport.getStatus());
+        return savedReport;
     }
 
     public List<FraudReport> getUserFraudReports(Long userId) {
@@ -38,11 +67,40 @@ public class FraudDetectionService {
         return fraudReportRepository.findByUser(user);
     }
 
+    @Transactional
     public FraudReport updateFraudReportStatus(Long reportId, FraudReportStatus status) {
         FraudReport report = fraudReportRepository.findById(reportId)
                 .orElseThrow(() -> new IllegalArgumentException("Fraud report not found"));
         
+        FraudReportStatus previousStatus = report.getStatus();
         report.setStatus(status);
-        return fraudReportRepository.save(report);
+        FraudReport savedReport = fraudReportRepository.save(report);
+
+        Map<String, Object> payload = reportPayload(savedReport);
+        payload.put("previousStatus", previousStatus);
+        outboxService.record(savedReport.getUser().getId(), OutboxEventType.FRAUD_REPORT_STATUS_CHANGED, payload);
+        pushService.publishAfterCommit(savedReport.getUser().getId(),
+                OutboxEventType.FRAUD_REPORT_STATUS_CHANGED.name(), payload);
+        searchIndexService.updateStatusAfterCommit(List.of(savedReport.getId()), status);
+        statusCounterService.reportsChangedAfterCommit(previousStatus, status, 1);
+        eligibilityIndexService.fraudReportChangedAfterCommit(savedReport.getUser().getId(), previousStatus, status);
+        return savedReport;
+    }
+
+    public List<Map<String, Object>> getHotUsers(int limit) {
+        return fraudAggregationService.getHotUsers(limit);
+    }
+
+    public Map<String, Object> getAggregationMetrics() {
+        return fraudAggregationService.getMetrics();
+    }
+
+    private Map<String, Object> reportPayload(FraudReport report) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("reportId", report.getId());
+        payload.put("userId", report.getUser().getId());
+        payload.put("reason", report.getReason());
+        payload.put("status", report.getStatus());
+        return payload;
     }
 }
\ No newline at end of file
@@ -0,0 +1,284 @@
+package com.rummy.service;
+
+import com.rummy.exception.IdempotencyConflictException;
+import com.rummy.model.IdempotencyRecord;
+import com.rummy.repository.IdempotencyRecordRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs each Idempotency-Key once. The first request for a key claims it with a
+ * row in {@code idempotency_keys} and executes; its response is stored there for
+ * {@code idempotency.retention-hours} and kept in a bounded in-memory cache.
+ *
+ * <p>Duplicates arriving on the same node while the first request runs wait on
+ * its in-memory entry; duplicates on other nodes poll the row. Either way they
+ * replay the first response instead of executing again. 5xx responses are not
+ * kept, so the client's next retry executes afresh.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Value("${idempotency.retention-hours:24}")
+    private long retentionHours;
+
+    @Value("${idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${idempotency.wait-timeout-ms:10000}")
+    private long waitTimeoutMillis;
+
+    @Value("${idempotency.poll-interval-ms:100}")
+    private long pollIntervalMillis;
+
+    @Value("${idempotency.stale-claim-ms:60000}")
+    private long staleClaimMillis;
+
+    private Map<String, Entry> cache;
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong replays = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                // An evicted running entry is still guarded by its row
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Claims the key for this request. The returned claim either owns the key,
+     * and the caller must execute and then {@link #complete} or {@link #fail} it,
+     * or carries the response to replay.
+     */
+    public Claim claim(String id, String fingerprint) {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        boolean created = false;
+        synchronized (cache) {
+            entry = cache.get(id);
+            if (entry == null || entry.expiresAtMillis < now) {
+                entry = new Entry(fingerprint, now + TimeUnit.HOURS.toMillis(retentionHours));
+                cache.put(id, entry);
+                created = true;
+            }
+        }
+        if (!entry.fingerprint.equals(fingerprint)) {
+            conflicts.incrementAndGet();
+            throw new IdempotencyConflictException(422, "Idempotency-Key was already used for a different request");
+        }
+        if (!created) {
+            if (!entry.future.isDone()) {
+                coalesced.incrementAndGet();
+            }
+            return new Claim(id, null, await(entry.future));
+        }
+
+        try {
+            StoredResponse stored = claimRow(id, fingerprint);
+            if (stored == null) {
+                executions.incrementAndGet();
+                return new Claim(id, entry, null);
+            }
+            entry.future.complete(stored);
+            replays.incrementAndGet();
+            return new Claim(id, null, stored);
+        } catch (RuntimeException e) {
+            forget(id, entry);
+            entry.future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /** Stores the owner's response and hands it to every waiting duplicate. */
+    public void complete(Claim claim, StoredResponse response) {
+        try {
+            if (response.getStatus() >= 500) {
+                idempotencyRecordRepository.release(claim.id);
+                forget(claim.id, claim.entry);
+            } else {
+                idempotencyRecordRepository.complete(claim.id, response.getStatus(), response.getContentType(),
+                        response.getBody());
+            }
+        } catch (RuntimeException e) {
+            // The row stays claimed until it goes stale; duplicates on this node still get the response
+            logger.warn("Could not store response for idempotency key {}", claim.id, e);
+        }
+        claim.entry.future.complete(response);
+    }
+
+    /** Releases the key after the owner failed without a response, so a retry executes again. */
+    public void fail(Claim claim, Throwable cause) {
+        try {
+            idempotencyRecordRepository.release(claim.id);
+        } catch (RuntimeException e) {
+            logger.warn("Could not release idempotency key {}", claim.id, e);
+        }
+        forget(claim.id, claim.entry);
+        claim.entry.future.completeExceptionally(cause);
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:600000}")
+    public void purge() {
+        int deleted = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        synchronized (cache) {
+            metrics.put("cachedKeys", cache.size());
+        }
+        metrics.put("executions", executions.get());
+        metrics.put("replays", replays.get());
+        metrics.put("coalesced", coalesced.get());
+        metrics.put("conflicts", conflicts.get());
+        return metrics;
+    }
+
+    /** Null when this request now owns the key, otherwise the stored response of the request that did. */
+    private StoredResponse claimRow(String id, String fingerprint) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMillis;
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = now.plusHours(retentionHours);
+            if (idempotencyRecordRepository.insertIfAbsent(id, fingerprint, now, expiresAt) == 1) {
+                return null;
+            }
+            IdempotencyRecord record = idempotencyRecordRepository.findById(id).orElse(null);
+            if (record == null) {
+                continue;
+            }
+            if (!record.getFingerprint().equals(fingerprint)) {
+                conflicts.incrementAndGet();
+                throw new IdempotencyConflictException(422, "Idempotency-Key was already used for a different request");
+            }
+            if (record.getExpiresAt().isBefore(now)) {
+                idempotencyRecordRepository.release(id);
+                continue;
+            }
+            if (record.getResponseStatus() != null) {
+                return new StoredResponse(record.getResponseStatus(), record.getContentType(), record.getResponseBody());
+            }
+            LocalDateTime staleBefore = now.minusNanos(TimeUnit.MILLISECONDS.toNanos(staleClaimMillis));
+            if (record.getCreatedAt().isBefore(staleBefore)
+                    && idempotencyRecordRepository.takeOver(id, record.getCreatedAt(), now, expiresAt) == 1) {
+                return null;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IdempotencyConflictException(409, "A request with this Idempotency-Key is still in progress");
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(pollIntervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotencyConflictException(409, "A request with this Idempotency-Key is still in progress");
+            }
+        }
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> future) {
+        try {
+            StoredResponse response = future.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+            replays.incrementAndGet();
+            return response;
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException(409, "A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException(409, "A request with this Idempotency-Key is still in progress");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IdempotencyConflictException conflict) {
+                throw conflict;
+            }
+            throw new IdempotencyConflictException(409, "The request with this Idempotency-Key failed; retry it");
+        }
+    }
+
+    private void forget(String id, Entry entry) {
+        synchronized (cache) {
+            cache.remove(id, entry);
+        }
+    }
+
+    private static final class Entry {
+        final String fingerprint;
+        final long expiresAtMillis;
+        final CompletableFuture<StoredResponse> future = new CompletableFuture<>();
+
+        Entry(String fingerprint, long expiresAtMillis) {
+            this.fingerprint = fingerprint;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    public static final class Claim {
+        private final String id;
+        private final Entry entry;
+        private final StoredResponse replay;
+
+        private Claim(String id, Entry entry, StoredResponse replay) {
+            this.id = id;
+            this.entry = entry;
+            this.replay = replay;
+        }
+
+        public boolean isOwner() {
+            return entry != null;
+        }
+
+        public StoredResponse getReplay() {
+            return replay;
+        }
+    }
+
+    public static final class StoredResponse {
+        private final int status;
+        private final String contentType;
+        private final byte[] body;
+
+        public StoredResponse(int status, String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.rummy.service;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Decodes, orients, downscales and re-encodes document photos. Large images are
+ * decoded with source subsampling, so a 12 MP photo never exists in memory at
+ * full size; orientation comes from the JPEG EXIF block, which ImageIO ignores.
+ */
+public final class KycImageRenderer {
+    private final int previewEdge;
+    private final int thumbnailEdge;
+    private final float previewQuality;
+    private final float thumbnailQuality;
+    private final long maxPixels;
+
+    public KycImageRenderer(int previewEdge, int thumbnailEdge, float previewQuality, float thumbnailQuality,
+                            long maxPixels) {
+        this.previewEdge = previewEdge;
+        this.thumbnailEdge = thumbnailEdge;
+        this.previewQuality = previewQuality;
+        this.thumbnailQuality = thumbnailQuality;
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * Reads the image at a resolution just above the preview size and returns it
+     * upright at preview size, or null when the file is not a readable image.
+     */
+    public BufferedImage decodePreview(Path source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, false);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("Image of " + width + "x" + height + " exceeds the pixel limit");
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / previewEdge);
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+                int orientation = exifOrientation(reader.getImageMetadata(0));
+                return orient(fit(decoded, previewEdge), orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public BufferedImage thumbnail(BufferedImage preview) {
+        return fit(preview, thumbnailEdge);
+    }
+
+    public void writePreview(BufferedImage image, Path target) throws IOException {
+        writeJpeg(image, target, previewQuality);
+    }
+
+    public void writeThumbnail(BufferedImage image, Path target) throws IOException {
+        writeJpeg(image, target, thumbnailQuality);
+    }
+
+    /** Scales down so the long edge is at most {@code maxEdge}, halving first to keep bilinear sampling sharp. */
+    static BufferedImage fit(BufferedImage image, int maxEdge) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        BufferedImage current = image;
+        do {
+            int stepWidth = Math.max(targetWidth, current.getWidth() / 2);
+            int stepHeight = Math.max(targetHeight, current.getHeight() / 2);
+            if (current != image && stepWidth == current.getWidth() && stepHeight == current.getHeight()) {
+                break;
+            }
+            BufferedImage next = new BufferedImage(stepWidth, stepHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.setBackground(Color.WHITE);
+                graphics.clearRect(0, 0, stepWidth, stepHeight);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (current.getWidth() > targetWidth || current.getHeight() > targetHeight);
+        return current;
+    }
+
+    /** Applies EXIF orientation 2-8; 1 and unknown values leave the image as is. */
+    static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation < 2 || orientation > 8) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swap = orientation >= 5;
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2:
+                transform.translate(width, 0);
+                transform.scale(-1, 1);
+                break;
+            case 3:
+                transform.translate(width, height);
+                transform.rotate(Math.PI);
+                break;
+            case 4:
+                transform.translate(0, height);
+                transform.scale(1, -1);
+                break;
+            case 5:
+                transform.rotate(Math.PI / 2);
+                transform.scale(1, -1);
+                break;
+            case 6:
+                transform.translate(height, 0);
+                transform.rotate(Math.PI / 2);
+                break;
+            case 7:
+                transform.scale(-1, 1);
+                transform.translate(-height, 0);
+                transform.translate(0, width);
+                transform.rotate(3 * Math.PI / 2);
+                break;
+            default:
+                transform.translate(0, width);
+                transform.rotate(3 * Math.PI / 2);
+                break;
+        }
+        BufferedImage oriented = new BufferedImage(swap ? height : width, swap ? width : height,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = oriented.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return oriented;
+    }
+
+    /** Orientation tag (0x0112) from the EXIF APP1 segment of JPEG metadata, or 1 when absent. */
+    static int exifOrientation(IIOMetadata metadata) {
+        if (metadata == null) {
+            return 1;
+        }
+        try {
+            Node root = metadata.getAsTree("javax_imageio_jpeg_image_1.0");
+            for (Node sequence = root.getFirstChild(); sequence != null; sequence = sequence.getNextSibling()) {
+                if (!"markerSequence".equals(sequence.getNodeName())) {
+                    continue;
+                }
+                for (Node marker = sequence.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+                    if (marker instanceof IIOMetadataNode node
+                            && "unknown".equals(node.getNodeName())
+                            && "225".equals(node.getAttribute("MarkerTag"))
+                            && node.getUserObject() instanceof byte[] data) {
+                        int orientation = parseOrientation(data);
+                        if (orientation > 0) {
+                            return orientation;
+                        }
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Not a JPEG; other formats carry no EXIF block here
+        }
+        return 1;
+    }
+
+    static int parseOrientation(byte[] app1) {
+        if (app1.length < 14 || app1[0] != 'E' || app1[1] != 'x' || app1[2] != 'i' || app1[3] != 'f') {
+            return 0;
+        }
+        int tiff = 6;
+        boolean little = app1[tiff] == 'I';
+        int ifd = tiff + readInt(app1, tiff + 4, little);
+        if (ifd < tiff || ifd + 2 > app1.length) {
+            return 0;
+        }
+        int entries = readShort(app1, ifd, little);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > app1.length) {
+                return 0;
+            }
+            if (readShort(app1, entry, little) == 0x0112) {
+                return readShort(app1, entry + 8, little);
+            }
+        }
+        return 0;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean little) {
+        int a = data[offset] & 0xFF;
+        int b = data[offset + 1] & 0xFF;
+        return little ? (b << 8) | a : (a << 8) | b;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean little) {
+        int high = readShort(data, little ? offset + 2 : offset, little);
+        int low = readShort(data, little ? offset : offset + 2, little);
+        return (high << 16) | low;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (OutputStream out = Files.newOutputStream(target);
+             ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DISABLED);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.rummy.service;
+
+import com.rummy.model.KycProcessingStatus;
+import com.rummy.repository.KycDocumentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Turns uploaded KYC photos into a reviewer preview and a thumbnail, stored
+ * next to the original as {@code <name>.preview.jpg} and {@code <name>.thumb.jpg}.
+ *
+ * <p>Documents are processed on a bounded fork-join pool once their upload
+ * commits; within a document the thumbnail is encoded on a forked task while
+ * the preview is written. At most {@code max-queued} documents wait for the
+ * pool at a time. Anything over that, anything left behind by a restart and
+ * anything whose claim went stale is picked up by the sweeper from
+ * {@code processing_status}, so uploads never block on image work.
+ */
+@Service
+public class KycImageService {
+    private static final Logger logger = LoggerFactory.getLogger(KycImageService.class);
+
+    private static final String PREVIEW_SUFFIX = ".preview.jpg";
+    private static final String THUMBNAIL_SUFFIX = ".thumb.jpg";
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    @Autowired
+    private KycDocumentRepository kycDocumentRepository;
+
+    @Value("${kyc.storage-dir:uploads/kyc}")
+    private String storageDir;
+
+    @Value("${kyc.images.parallelism:4}")
+    private int parallelism;
+
+    @Value("${kyc.images.max-queued:256}")
+    private int maxQueued;
+
+    @Value("${kyc.images.preview-edge:1600}")
+    private int previewEdge;
+
+    @Value("${kyc.images.thumbnail-edge:320}")
+    private int thumbnailEdge;
+
+    @Value("${kyc.images.preview-quality:0.8}")
+    private float previewQuality;
+
+    @Value("${kyc.images.thumbnail-quality:0.7}")
+    private float thumbnailQuality;
+
+    @Value("${kyc.images.max-pixels:100000000}")
+    private long maxPixels;
+
+    @Value("${kyc.images.stale-claim-ms:600000}")
+    private long staleClaimMillis;
+
+    private Path storagePath;
+    private KycImageRenderer renderer;
+    private ForkJoinPool pool;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong previewBytesOut = new AtomicLong();
+    private final AtomicLong thumbnailBytesOut = new AtomicLong();
+    private final AtomicLong processingNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        storagePath = Paths.get(storageDir);
+        renderer = new KycImageRenderer(previewEdge, thumbnailEdge, previewQuality, thumbnailQuality, maxPixels);
+        // Each worker holds one subsampled decode of at most 2 x preview-edge on its long side
+        pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("kyc-image-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, true);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /** Queues renditions for the document once the surrounding transaction commits, or now if there is none. */
+    public void processAfterCommit(Long documentId, String documentPath) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(documentId, documentPath);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(documentId, documentPath);
+            }
+        });
+    }
+
+    /** Queues documents the pipeline has not finished: backlog, overflow and claims abandoned by a dead node. */
+    @Scheduled(fixedDelayString = "${kyc.images.sweep-interval-ms:30000}")
+    public void sweep() {
+        int capacity = maxQueued - inFlight.size();
+        if (capacity <= 0) {
+            return;
+        }
+        LocalDateTime staleBefore = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(staleClaimMillis));
+        List<Object[]> rows = kycDocumentRepository.findUnprocessed(KycProcessingStatus.PENDING,
+                KycProcessingStatus.PROCESSING, staleBefore, PageRequest.of(0, capacity));
+        for (Object[] row : rows) {
+            submit((Long) row[0], (String) row[1]);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        long done = completed.get();
+        long in = bytesIn.get();
+        long previewOut = previewBytesOut.get();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("parallelism", parallelism);
+        metrics.put("inFlight", inFlight.size());
+        metrics.put("maxQueued", maxQueued);
+        metrics.put("activeWorkers", pool.getActiveThreadCount());
+        metrics.put("completed", done);
+        metrics.put("skipped", skipped.get());
+        metrics.put("failed", failed.get());
+        metrics.put("deferred", deferred.get());
+        metrics.put("originalBytes", in);
+        metrics.put("previewBytes", previewOut);
+        metrics.put("thumbnailBytes", thumbnailBytesOut.get());
+        metrics.put("previewReduction", previewOut == 0 ? 0.0 : (double) in / previewOut);
+        metrics.put("avgProcessingMillis", done == 0 ? 0.0 : processingNanos.get() / 1e6 / done);
+        return metrics;
+    }
+
+    private void submit(Long documentId, String documentPath) {
+        if (!inFlight.add(documentId)) {
+            return;
+        }
+        if (inFlight.size() > maxQueued) {
+            // Left PENDING; the sweeper queues it once the backlog drains
+            inFlight.remove(documentId);
+            deferred.incrementAndGet();
+            return;
+        }
+        try {
+            pool.execute(() -> {
+                try {
+                    process(documentId, documentPath);
+                } catch (RuntimeException e) {
+                    // Status could not be written; a stale claim is retried by the sweeper
+                    logger.error("Image processing of KYC document {} did not finish", documentId, e);
+                } finally {
+                    inFlight.remove(documentId);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(documentId);
+            logger.warn("Could not queue KYC document {} for image processing", documentId, e);
+        }
+    }
+
+    private void process(Long documentId, String documentPath) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusNanos(TimeUnit.MILLISECONDS.toNanos(staleClaimMillis));
+        if (kycDocumentRepository.claimProcessing(documentId, KycProcessingStatus.PENDING,
+                KycProcessingStatus.PROCESSING, now, staleBefore) == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        Path source = storagePath.resolve(documentPath);
+        try {
+            BufferedImage preview = renderer.decodePreview(source);
+            if (preview == null) {
+                // PDFs and other non-image uploads are reviewed as uploaded
+                kycDocumentRepository.finishProcessing(documentId, KycProcessingStatus.SKIPPED,
+                        null, null, null, LocalDateTime.now());
+                skipped.incrementAndGet();
+                return;
+            }
+            String previewName = documentPath + PREVIEW_SUFFIX;
+            String thumbnailName = documentPath + THUMBNAIL_SUFFIX;
+            ForkJoinTask<Long> thumbnail = ForkJoinTask.adapt(() ->
+                    write(renderer.thumbnail(preview), thumbnailName, false)).fork();
+            long previewSize = write(preview, previewName, true);
+            long thumbnailSize = thumbnail.join();
+
+            kycDocumentRepository.finishProcessing(documentId, KycProcessingStatus.COMPLETED,
+                    previewName, thumbnailName, null, LocalDateTime.now());
+            bytesIn.addAndGet(Files.size(source));
+            previewBytesOut.addAndGet(previewSize);
+            thumbnailBytesOut.addAndGet(thumbnailSize);
+            processingNanos.addAndGet(System.nanoTime() - start);
+            completed.incrementAndGet();
+        } catch (Exception e) {
+            logger.warn("Could not render KYC document {}", documentId, e);
+            failed.incrementAndGet();
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            kycDocumentRepository.finishProcessing(documentId, KycProcessingStatus.FAILED, null, null,
+                    error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error,
+                    LocalDateTime.now());
+        }
+    }
+
+    /** Encodes to a temporary file and moves it into place, so readers never see a partial JPEG. */
+    private long write(BufferedImage image, String name, boolean preview) throws IOException {
+        Path target = storagePath.resolve(name);
+        Path temp = storagePath.resolve(name + ".tmp");
+        if (preview) {
+            renderer.writePreview(image, temp);
+        } else {
+            renderer.writeThumbnail(image, temp);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(target);
+    }
+}
@@ -2,32 +2,64 @@ package com.rummy.service;
 
 import com.rummy.dto.KycDocumentDto;
 import com.rummy.model.KycDocument;
+import com.rummy.model.KycProcessingStatus;
 import com.rummy.model.KycStatus;
+import com.rummy.model.OutboxEventType;
 import com.rummy.model.User;
 import com.rummy.repository.KycDocumentRepository;
 import com.rummy.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
 public class KycService {
+    private static final Logger logger = LoggerFactory.getLogger(KycService.class);
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private KycDocumentRepository kycDocumentRepository;
 
-    private final Path documentStoragePath = Paths.get("uploads/kyc");
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private PlayerEligibilityCache playerEligibilityCache;
+
+    @Autowired
+    private PushService pushService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
 
-    public KycService() {
+    @Autowired
+    private KycImageService kycImageService;
+
+    @Autowired
+    private StatusCounterService statusCounterService;
+
+    private final Path documentStoragePath;
+
+    public KycService(@Value("${kyc.storage-dir:uploads/kyc}") String storageDir) {
+        documentStoragePath = Paths.get(storageDir);
         try {
             Files.createDirectories(documentStoragePath);
         } catch (IOException e) {
@@ -41,8 +73,61 @@ public class KycService {
         return user.getKycStatus();
     }
 
+    @Transactional
     public KycDocument uploadDocument(KycDocumentDto documentDto, String documentType) {
-        User user = userRepository.findById(documentDto.getUserId())
+        User user = checkUploadAllowed(documentDto.getUserId(), documentType, documentDto.getDocumentNumber());
+
+        String fileName = UUID.randomUUID().toString() + "-" + documentDto.getDocumentFile().getOriginalFilename();
+        Path filePath = documentStoragePath.resolve(fileName);
+
+        try {
+            Files.copy(documentDto.getDocumentFile().getInputStream(), filePath);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store the file", e);
+        }
+
+        return saveDocument(user, documentType, documentDto.getDocumentNumber(), fileName);
+    }
+
+    /**
+     * Files a document whose bytes were assembled elsewhere under the storage
+     * directory, moving them into place. The move is undone if the transaction
+     * rolls back, so the caller can retry.
+     */
+    @Transactional
+    public KycDocument uploadAssembledDocument(Long userId, String documentType, String documentNumber,
+                                               Path assembled, String originalFilename) {
+        User user = checkUploadAllowed(userId, documentType, documentNumber);
+
+        String fileName = UUID.randomUUID().toString() + "-" + originalFilename;
+        Path filePath = documentStoragePath.resolve(fileName);
+
+        try {
+            Files.move(assembled, filePath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store the file", e);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        try {
+                            Files.move(filePath, assembled, StandardCopyOption.ATOMIC_MOVE);
+                        } catch (IOException e) {
+                            logger.warn("Could not restore assembled upload {}", assembled, e);
+                        }
+                    }
+                }
+            });
+        }
+
+        return saveDocument(user, documentType, documentNumber, fileName);
+    }
+
+    /** Checks a document upload before any bytes are stored; returns the uploading user. */
+    public User checkUploadAllowed(Long userId, String documentType, String documentNumber) {
+        User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
         // Check if document already exists
@@ -55,32 +140,45 @@ public class KycService {
         if (!isValidDocumentType(documentType)) {
             throw new IllegalArgumentException("Invalid document type");
         }
-        if (!isValidDocumentNumber(documentType, documentDto.getDocumentNumber())) {
+        if (!isValidDocumentNumber(documentType, documentNumber)) {
             throw new IllegalArgumentException("Invalid document number format");
         }
+        return user;
+    }
 
-        String fileName = UUID.randomUUID().toString() + "-" + documentDto.getDocumentFile().getOriginalFilename();
-        Path filePath = documentStoragePath.resolve(fileName);
-
-        try {
-            Files.copy(documentDto.getDocumentFile().getInputStream(), filePath);
-        } catch (IOException e) {
-            throw new RuntimeException("Could not store the file", e);
-        }
-
+    private KycDocument saveDocument(User user, String documentType, String documentNumber, String fileName) {
         KycDocument document = new KycDocument();
         document.setUser(user);
         document.setDocumentType(documentType);
-        document.setDocumentNumber(documentDto.getDocumentNumber());
+        document.setDocumentNumber(documentNumber);
         document.setDocumentPath(fileName);
         document.setVerificationStatus(KycStatus.PENDING);
+        document.setProcessingStatus(KycProcessingStatus.PENDING);
 
+        KycStatus previousStatus = user.getKycStatus();
         user.setKycStatus(KycStatus.IN_PROGRESS);
         userRepository.save(user);
+        playerEligibilityCache.refreshAfterCommit(user);
 
-        return kycDocumentRepository.save(document);
+        KycDocument savedDocument = kycDocumentRepository.save(document);
+        outboxService.record(user.getId(), OutboxEventType.KYC_DOCUMENT_UPLOADED, documentPayload(savedDocument));
+        statusCounterService.documentChangedAfterCommit(null, savedDocument.getVerificationStatus());
+        recordKycStatusChange(user, previousStatus);
+        kycImageService.processAfterCommit(savedDocument.getId(), fileName);
+        return savedDocument;
+    }
+
+    /** Preview or thumbnail rendered for a reviewer; the original stays available for full-size checks. */
+    public Path getDocumentRendition(Long documentId, boolean thumbnail) {
+        KycDocument document = kycDocumentRepository.findById(documentId)
+                .orElseThrow(() -> new IllegalArgumentException("Document not found"));
+        if (document.getProcessingStatus() != KycProcessingStatus.COMPLETED) {
+            throw new IllegalArgumentException("Document rendition not available: " + document.getProcessingStatus());
+        }
+        return documentStoragePath.resolve(thumbnail ? document.getThumbnailPath() : document.getPreviewPath());
     }
 
+    @Transactional
     public KycStatus verifyUserDocuments(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
@@ -90,27 +188,36 @@ public class KycService {
         boolean hasPan = documents.stream().anyMatch(doc -> doc.getDocumentType().equals("PAN"));
 
         if (hasAadhaar && hasPan) {
+            KycStatus previousStatus = user.getKycStatus();
             user.setKycStatus(KycStatus.IN_PROGRESS);
             userRepository.save(user);
+            playerEligibilityCache.refreshAfterCommit(user);
+            recordKycStatusChange(user, previousStatus);
             return KycStatus.IN_PROGRESS;
         }
 
         return user.getKycStatus();
     }
 
+    @Transactional
     public KycStatus updateUserKycStatus(long userId, KycStatus status) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
         
+        KycStatus previousStatus = user.getKycStatus();
         user.setKycStatus(status);
         userRepository.save(user);
+        playerEligibilityCache.refreshAfterCommit(user);
+        recordKycStatusChange(user, previousStatus);
         return status;
     }
 
+    @Transactional
     public KycDocument verifyDocument(Long documentId, KycStatus status, String remarks) {
         KycDocument document = kycDocumentRepository.findById(documentId)
                 .orElseThrow(() -> new IllegalArgumentException("Document not found"));
 
+        KycStatus previousStatus = document.getVerificationStatus();
         document.setVerificationStatus(status);
         document.setVerificationRemarks(remarks);
 
@@ -119,7 +226,13 @@ public class KycService {
         List<KycDocument> allDocuments = kycDocumentRepository.findByUser(user);
         updateUserKycStatus(user, allDocuments);
 
-        return kycDocumentRepository.save(document);
+        KycDocument savedDocument = kycDocumentRepository.save(document);
+        Map<String, Object> payload = documentPayload(savedDocument);
+        outboxService.record(user.getId(), OutboxEventType.KYC_DOCUMENT_VERIFIED, payload);
+        pushService.publishAfterCommit(user.getId(), OutboxEventType.KYC_DOCUMENT_VERIFIED.name(), payload);
+        searchIndexService.indexAfterCommit(savedDocument);
+        statusCounterService.documentChangedAfterCommit(previousStatus, status);
+        return savedDocument;
     }
 
     public List<KycDocument> getUserDocuments(Long userId) {
@@ -146,6 +259,7 @@ public class KycService {
     }
 
     private void updateUserKycStatus(User user, List<KycDocument> allDocuments) {
+        KycStatus previousStatus = user.getKycStatus();
         boolean allVerified = true;
         boolean anyRejected = false;
 
@@ -167,5 +281,29 @@ public class KycService {
         }
 
         userRepository.save(user);
+        playerEligibilityCache.refreshAfterCommit(user);
+        recordKycStatusChange(user, previousStatus);
+    }
+
+    private void recordKycStatusChange(User user, KycStatus previousStatus) {
+        if (previousStatus == user.getKycStatus()) {
+            return;
+        }
+        statusCounterService.userKycChangedAfterCommit(previousStatus, user.getKycStatus());
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("userId", user.getId());
+        payload.put("previousStatus", previousStatus);
+        payload.put("status", user.getKycStatus());
+        outboxService.record(user.getId(), OutboxEventType.KYC_STATUS_CHANGED, payload);
+        pushService.publishAfterCommit(user.getId(), OutboxEventType.KYC_STATUS_CHANGED.name(), payload);
+    }
+
+    private Map<String, Object> documentPayload(KycDocument document) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("documentId", document.getId());
+        payload.put("userId", document.getUser().getId());
+        payload.put("documentType", document.getDocumentType());
+        payload.put("verificationStatus", document.getVerificationStatus());
+        return payload;
     }
 }
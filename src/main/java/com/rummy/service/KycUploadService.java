@@ -0,0 +1,371 @@
+package com.rummy.service;
+
+import com.rummy.model.KycDocument;
+import com.rummy.model.KycUpload;
+import com.rummy.repository.KycUploadRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resumable KYC uploads for clients on unreliable connections. A client
+ * initiates an upload, sends fixed-size chunks in any order and in parallel,
+ * asks which chunks are still missing after a drop, and completes the upload,
+ * which files it as a KYC document exactly as a single-request upload would be.
+ *
+ * <p>Each upload is assembled in a file preallocated to its full size under
+ * {@code <storage-dir>/partial}; a chunk is verified against its SHA-256 and
+ * written at its own offset, so concurrent chunks need no coordination and a
+ * re-sent chunk just overwrites itself. Received chunks are tracked in
+ * {@code kyc_upload_chunks}, so any node can take the next chunk or the
+ * completion. Uploads that receive nothing for {@code kyc.uploads.stale-ms} are
+ * garbage-collected with their partial file.
+ */
+@Service
+public class KycUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(KycUploadService.class);
+
+    private static final String PARTIAL_DIR = "partial";
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final int MAX_FILE_NAME_LENGTH = 100;
+    private static final int DIGEST_BUFFER = 64 * 1024;
+
+    @Autowired
+    private KycUploadRepository kycUploadRepository;
+
+    @Autowired
+    private KycService kycService;
+
+    @Value("${kyc.storage-dir:uploads/kyc}")
+    private String storageDir;
+
+    @Value("${kyc.uploads.max-size:20971520}")
+    private long maxSize;
+
+    @Value("${kyc.uploads.chunk-size:262144}")
+    private int defaultChunkSize;
+
+    @Value("${kyc.uploads.min-chunk-size:65536}")
+    private int minChunkSize;
+
+    @Value("${kyc.uploads.max-chunk-size:4194304}")
+    private int maxChunkSize;
+
+    @Value("${kyc.uploads.max-active-per-user:4}")
+    private int maxActivePerUser;
+
+    @Value("${kyc.uploads.stale-ms:86400000}")
+    private long staleMillis;
+
+    @Value("${kyc.uploads.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    private Path partialPath;
+    private final AtomicLong initiated = new AtomicLong();
+    private final AtomicLong chunksWritten = new AtomicLong();
+    private final AtomicLong chunksRepeated = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong checksumMismatches = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        partialPath = Paths.get(storageDir).resolve(PARTIAL_DIR);
+        try {
+            Files.createDirectories(partialPath);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create partial upload directory", e);
+        }
+    }
+
+    /**
+     * Starts an upload of {@code totalSize} bytes after the same checks as a
+     * single-request upload. {@code chunkSize} and {@code sha256} are optional;
+     * the response carries the chunk size and count the client must use.
+     */
+    public Map<String, Object> initiate(Long userId, String documentType, String documentNumber,
+                                        String fileName, long totalSize, Integer chunkSize, String sha256) {
+        kycService.checkUploadAllowed(userId, documentType, documentNumber);
+        if (totalSize <= 0 || totalSize > maxSize) {
+            throw new IllegalArgumentException("File size must be between 1 and " + maxSize + " bytes");
+        }
+        int size = chunkSize == null ? defaultChunkSize : chunkSize;
+        if (size < minChunkSize || size > maxChunkSize) {
+            throw new IllegalArgumentException("Chunk size must be between " + minChunkSize + " and "
+                    + maxChunkSize + " bytes");
+        }
+        if (sha256 != null && !isSha256(sha256)) {
+            throw new IllegalArgumentException("File checksum must be a hex SHA-256");
+        }
+        if (kycUploadRepository.countByUserId(userId) >= maxActivePerUser) {
+            throw new IllegalArgumentException("Too many uploads in progress");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        KycUpload upload = new KycUpload();
+        upload.setId(UUID.randomUUID().toString());
+        upload.setUserId(userId);
+        upload.setDocumentType(documentType);
+        upload.setDocumentNumber(documentNumber);
+        upload.setFileName(sanitize(fileName));
+        upload.setTotalSize(totalSize);
+        upload.setChunkSize(size);
+        upload.setChunkCount((int) ((totalSize + size - 1) / size));
+        upload.setSha256(sha256 == null ? null : sha256.toLowerCase());
+        upload.setCreatedAt(now);
+        upload.setUpdatedAt(now);
+        // Row first, so a file is never left without an upload the sweeper can find
+        kycUploadRepository.save(upload);
+        try (RandomAccessFile file = new RandomAccessFile(partial(upload.getId()).toFile(), "rw")) {
+            file.setLength(totalSize);
+        } catch (IOException e) {
+            kycUploadRepository.claim(upload.getId());
+            throw new RuntimeException("Could not allocate the upload", e);
+        }
+        initiated.incrementAndGet();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("uploadId", upload.getId());
+        response.put("chunkSize", upload.getChunkSize());
+        response.put("chunkCount", upload.getChunkCount());
+        response.put("totalSize", upload.getTotalSize());
+        return response;
+    }
+
+    /**
+     * Verifies chunk {@code index} against {@code checksum}, the hex SHA-256 of
+     * its bytes, and writes it at its offset. Every chunk but the last is exactly
+     * the upload's chunk size.
+     */
+    public Map<String, Object> writeChunk(String uploadId, int index, String checksum, InputStream body) {
+        KycUpload upload = find(uploadId);
+        if (index < 0 || index >= upload.getChunkCount()) {
+            throw new IllegalArgumentException("Chunk index must be between 0 and " + (upload.getChunkCount() - 1));
+        }
+        if (checksum == null || !isSha256(checksum)) {
+            throw new IllegalArgumentException("Chunk checksum must be a hex SHA-256");
+        }
+        long offset = (long) index * upload.getChunkSize();
+        int length = (int) Math.min(upload.getChunkSize(), upload.getTotalSize() - offset);
+
+        byte[] chunk = new byte[length];
+        try {
+            if (body.readNBytes(chunk, 0, length) != length || body.read() != -1) {
+                throw new IllegalArgumentException("Chunk " + index + " must be " + length + " bytes");
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Chunk " + index + " was not received in full");
+        }
+        if (!MessageDigest.isEqual(sha256().digest(chunk), HexFormat.of().parseHex(checksum))) {
+            checksumMismatches.incrementAndGet();
+            throw new IllegalArgumentException("Chunk " + index + " does not match its checksum");
+        }
+
+        // Positional writes on separate channels: concurrent chunks touch disjoint ranges
+        try (FileChannel channel = FileChannel.open(partial(uploadId), StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Upload not found");
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store the chunk", e);
+        }
+        if (kycUploadRepository.insertChunk(uploadId, index) == 0) {
+            chunksRepeated.incrementAndGet();
+        }
+        kycUploadRepository.touch(uploadId, LocalDateTime.now());
+        chunksWritten.incrementAndGet();
+        bytesWritten.addAndGet(length);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("uploadId", uploadId);
+        response.put("chunk", index);
+        response.put("received", kycUploadRepository.countChunks(uploadId));
+        response.put("chunkCount", upload.getChunkCount());
+        return response;
+    }
+
+    /** Which chunks have arrived and which are still missing, for resuming after a drop. */
+    public Map<String, Object> getProgress(String uploadId) {
+        KycUpload upload = find(uploadId);
+        List<Integer> received = kycUploadRepository.findChunkIndexes(uploadId);
+        List<Integer> missing = new ArrayList<>(upload.getChunkCount() - received.size());
+        int next = 0;
+        for (int index : received) {
+            while (next < index) {
+                missing.add(next++);
+            }
+            next = index + 1;
+        }
+        while (next < upload.getChunkCount()) {
+            missing.add(next++);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("uploadId", uploadId);
+        response.put("totalSize", upload.getTotalSize());
+        response.put("chunkSize", upload.getChunkSize());
+        response.put("chunkCount", upload.getChunkCount());
+        response.put("received", received.size());
+        response.put("missing", missing);
+        return response;
+    }
+
+    /**
+     * Files the assembled upload as a KYC document once every chunk is in, and
+     * checks the whole-file SHA-256 if one was given. Only one of several
+     * concurrent completions succeeds; the others find the upload gone.
+     */
+    @Transactional
+    public KycDocument complete(String uploadId) {
+        KycUpload upload = find(uploadId);
+        long received = kycUploadRepository.countChunks(uploadId);
+        if (received < upload.getChunkCount()) {
+            throw new IllegalArgumentException("Upload incomplete: " + received + " of "
+                    + upload.getChunkCount() + " chunks received");
+        }
+        Path assembled = partial(uploadId);
+        try (FileChannel channel = FileChannel.open(assembled, StandardOpenOption.READ)) {
+            if (upload.getSha256() != null && !upload.getSha256().equals(digest(channel))) {
+                throw new IllegalArgumentException("Upload does not match its checksum");
+            }
+            channel.force(true);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Upload not found");
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read the upload", e);
+        }
+        if (kycUploadRepository.claim(uploadId) == 0) {
+            throw new IllegalArgumentException("Upload not found");
+        }
+        KycDocument document = kycService.uploadAssembledDocument(upload.getUserId(), upload.getDocumentType(),
+                upload.getDocumentNumber(), assembled, upload.getFileName());
+        completed.incrementAndGet();
+        return document;
+    }
+
+    /** Deletes uploads that have gone quiet, and partial files no upload owns. */
+    @Scheduled(fixedDelayString = "${kyc.uploads.sweep-interval-ms:600000}")
+    public void sweep() {
+        LocalDateTime before = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(staleMillis));
+        for (String uploadId : kycUploadRepository.findStaleIds(before, PageRequest.of(0, sweepBatchSize))) {
+            // Skipped if a chunk arrived since the query; another node may also have taken it
+            if (kycUploadRepository.deleteStale(uploadId, before) == 1) {
+                delete(partial(uploadId));
+                expired.incrementAndGet();
+            }
+        }
+
+        long cutoff = System.currentTimeMillis() - staleMillis;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(partialPath, "*" + PARTIAL_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String uploadId = name.substring(0, name.length() - PARTIAL_SUFFIX.length());
+                if (Files.getLastModifiedTime(file).toMillis() < cutoff && !kycUploadRepository.existsById(uploadId)) {
+                    delete(file);
+                    expired.incrementAndGet();
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not sweep partial uploads in {}", partialPath, e);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("initiated", initiated.get());
+        metrics.put("chunksWritten", chunksWritten.get());
+        metrics.put("chunksRepeated", chunksRepeated.get());
+        metrics.put("bytesWritten", bytesWritten.get());
+        metrics.put("checksumMismatches", checksumMismatches.get());
+        metrics.put("completed", completed.get());
+        metrics.put("expired", expired.get());
+        return metrics;
+    }
+
+    private KycUpload find(String uploadId) {
+        return kycUploadRepository.findById(uploadId)
+                .orElseThrow(() -> new IllegalArgumentException("Upload not found"));
+    }
+
+    private Path partial(String uploadId) {
+        return partialPath.resolve(uploadId + PARTIAL_SUFFIX);
+    }
+
+    private static String digest(FileChannel channel) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(DIGEST_BUFFER);
+        long position = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            position += read;
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete partial upload {}", file, e);
+        }
+    }
+
+    /** Keeps the last path element and replaces anything unusual, so the name is safe inside the storage dir. */
+    private static String sanitize(String fileName) {
+        String name = fileName == null ? "" : fileName.replace('\\', '/');
+        name = name.substring(name.lastIndexOf('/') + 1).replaceAll("[^A-Za-z0-9._-]", "_");
+        if (name.isEmpty() || name.chars().allMatch(c -> c == '.')) {
+            name = "document";
+        }
+        return name.length() > MAX_FILE_NAME_LENGTH ? name.substring(name.length() - MAX_FILE_NAME_LENGTH) : name;
+    }
+
+    private static boolean isSha256(String value) {
+        return value.length() == 64 && value.chars().allMatch(c -> Character.digit(c, 16) >= 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.rummy.service;
+
+import com.rummy.game.RankedScores;
+import com.rummy.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ranked boards of balance and of daily and weekly table winnings, held in
+ * {@link RankedScores} so top-N and a user's rank with neighbours never touch
+ * the database. Balances are rebuilt in bulk at startup and then follow the
+ * post-commit user refreshes. Winnings are rebuilt at startup from the results
+ * recorded in the deal audit log, credited as tables finish and reset when
+ * their day or week rolls over.
+ */
+@Service
+public class LeaderboardService {
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+
+    public enum Board {
+        BALANCE, DAILY_WINNINGS, WEEKLY_WINNINGS;
+
+        public static Board parse(String name) {
+            try {
+                return valueOf(name.trim().replace('-', '_').toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown leaderboard: " + name);
+            }
+        }
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ShuffleService shuffleService;
+
+    @Value("${leaderboard.load.page-size:10000}")
+    private int pageSize;
+
+    @Value("${leaderboard.max-results:100}")
+    private int maxResults;
+
+    @Value("${leaderboard.zone:Asia/Kolkata}")
+    private String zone;
+
+    private final Ranking balances = new Ranking();
+    private final Ranking dailyWinnings = new Ranking();
+    private final Ranking weeklyWinnings = new Ranking();
+    // Balance changes that land while the startup rebuild is reading the table
+    private final ConcurrentHashMap<Long, Double> pendingBalances = new ConcurrentHashMap<>();
+    private volatile boolean rebuilding;
+
+    /**
+     * Rebuilds the daily and weekly winnings boards from the results revealed
+     * since the start of the week. Runs before the table loops start, so no
+     * table can finish while the log is read.
+     */
+    @PostConstruct
+    public void loadWinnings() throws IOException {
+        long start = System.currentTimeMillis();
+        ZoneId zoneId = ZoneId.of(zone);
+        LocalDate today = LocalDate.now(zoneId);
+        LocalDate monday = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        long todayMillis = today.atStartOfDay(zoneId).toInstant().toEpochMilli();
+        Map<Long, Double> daily = new HashMap<>();
+        Map<Long, Double> weekly = new HashMap<>();
+        Set<Long> settled = new HashSet<>();
+        shuffleService.forEachResultSince(monday.atStartOfDay(zoneId).toInstant().toEpochMilli(),
+                (epochMillis, tableId, winnerUserId, winnings) -> {
+                    // A crash between the reveal and its seed-file record repeats the reveal
+                    if (winnings <= 0 || !settled.add(tableId)) {
+                        return;
+                    }
+                    weekly.merge(winnerUserId, (double) winnings, Double::sum);
+                    if (epochMillis >= todayMillis) {
+                        daily.merge(winnerUserId, (double) winnings, Double::sum);
+                    }
+                });
+        install(dailyWinnings, today.toEpochDay(), daily);
+        install(weeklyWinnings, monday.toEpochDay(), weekly);
+        logger.info("Rebuilt winnings leaderboards from {} results in {} ms", settled.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        rebuilding = true;
+        long[] ids = new long[1024];
+        double[] values = new double[1024];
+        int count = 0;
+        long afterId = 0;
+        while (true) {
+            List<Object[]> page = userRepository.findBalancePage(afterId, PageRequest.of(0, pageSize));
+            for (Object[] row : page) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                Long id = (Long) row[0];
+                Double balance = (Double) row[1];
+                ids[count] = id;
+                values[count] = balance == null ? 0.0 : balance;
+                count++;
+                afterId = id;
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+        RankedScores loaded = new RankedScores(count);
+        loaded.build(ids, values, count);
+        balances.lock.writeLock().lock();
+        try {
+            balances.scores = loaded;
+            rebuilding = false;
+            pendingBalances.forEach(loaded::set);
+        } finally {
+            balances.lock.writeLock().unlock();
+        }
+        pendingBalances.clear();
+        logger.info("Rebuilt balance leaderboard for {} users in {} ms", count, System.currentTimeMillis() - start);
+    }
+
+    public void updateBalance(Long userId, double balance) {
+        balances.lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                pendingBalances.put(userId, balance);
+            }
+            balances.scores.set(userId, balance);
+        } finally {
+            balances.lock.writeLock().unlock();
+        }
+    }
+
+    public void creditWinnings(long userId, double amount) {
+        LocalDate today = LocalDate.now(ZoneId.of(zone));
+        credit(dailyWinnings, today.toEpochDay(), userId, amount);
+        credit(weeklyWinnings, today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toEpochDay(),
+                userId, amount);
+    }
+
+    public Map<String, Object> getTop(Board board, int limit) {
+        Ranking ranking = ranking(board);
+        List<Map<String, Object>> entries = new ArrayList<>();
+        Map<String, Object> response = new HashMap<>();
+        ranking.lock.readLock().lock();
+        try {
+            if (ranking.isCurrent(currentPeriod(board))) {
+                ranking.scores.visit(0, clamp(limit), (rank, userId, score) -> entries.add(entry(rank, userId, score)));
+                response.put("players", ranking.scores.size());
+            } else {
+                response.put("players", 0);
+            }
+        } finally {
+            ranking.lock.readLock().unlock();
+        }
+        response.put("board", board);
+        response.put("entries", entries);
+        return response;
+    }
+
+    /** The user's rank with up to {@code neighbors} entries on either side. */
+    public Map<String, Object> getRank(Board board, Long userId, int neighbors) {
+        Ranking ranking = ranking(board);
+        int around = Math.max(0, Math.min(neighbors, maxResults / 2));
+        List<Map<String, Object>> entries = new ArrayList<>();
+        Map<String, Object> response = new HashMap<>();
+        ranking.lock.readLock().lock();
+        try {
+            long rank = ranking.isCurrent(currentPeriod(board)) ? ranking.scores.rank(userId) : -1;
+            if (rank < 0) {
+                throw new IllegalArgumentException("User has no rank on this leaderboard");
+            }
+            long from = Math.max(0, rank - around);
+            ranking.scores.visit(from, (int) (rank - from) + around + 1,
+                    (position, id, score) -> entries.add(entry(position, id, score)));
+            response.put("rank", rank + 1);
+            response.put("score", ranking.scores.score(userId));
+            response.put("players", ranking.scores.size());
+        } finally {
+            ranking.lock.readLock().unlock();
+        }
+        response.put("board", board);
+        response.put("userId", userId);
+        response.put("entries", entries);
+        return response;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        for (Board board : Board.values()) {
+            Ranking ranking = ranking(board);
+            ranking.lock.readLock().lock();
+            try {
+                metrics.put(board.name(), ranking.isCurrent(currentPeriod(board)) ? ranking.scores.size() : 0);
+            } finally {
+                ranking.lock.readLock().unlock();
+            }
+        }
+        return metrics;
+    }
+
+    private void credit(Ranking ranking, long period, long userId, double amount) {
+        ranking.lock.writeLock().lock();
+        try {
+            if (!ranking.isCurrent(period)) {
+                ranking.scores = new RankedScores();
+                ranking.period = period;
+            }
+            ranking.scores.add(userId, amount);
+        } finally {
+            ranking.lock.writeLock().unlock();
+        }
+    }
+
+    private static void install(Ranking ranking, long period, Map<Long, Double> totals) {
+        long[] ids = new long[totals.size()];
+        double[] values = new double[totals.size()];
+        int count = 0;
+        for (Map.Entry<Long, Double> entry : totals.entrySet()) {
+            ids[count] = entry.getKey();
+            values[count] = entry.getValue();
+            count++;
+        }
+        RankedScores loaded = new RankedScores(count);
+        loaded.build(ids, values, count);
+        ranking.lock.writeLock().lock();
+        try {
+            ranking.scores = loaded;
+            ranking.period = period;
+        } finally {
+            ranking.lock.writeLock().unlock();
+        }
+    }
+
+    private Ranking ranking(Board board) {
+        switch (board) {
+            case DAILY_WINNINGS:
+                return dailyWinnings;
+            case WEEKLY_WINNINGS:
+                return weeklyWinnings;
+            default:
+                return balances;
+        }
+    }
+
+    private long currentPeriod(Board board) {
+        LocalDate today = LocalDate.now(ZoneId.of(zone));
+        switch (board) {
+            case DAILY_WINNINGS:
+                return today.toEpochDay();
+            case WEEKLY_WINNINGS:
+                return today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toEpochDay();
+            default:
+                return Ranking.ALL_TIME;
+        }
+    }
+
+    private int clamp(int limit) {
+        return Math.max(1, Math.min(limit, maxResults));
+    }
+
+    private static Map<String, Object> entry(long rank, long userId, double score) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("rank", rank + 1);
+        entry.put("userId", userId);
+        entry.put("score", score);
+        return entry;
+    }
+
+    private static final class Ranking {
+        static final long ALL_TIME = Long.MIN_VALUE;
+
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        RankedScores scores = new RankedScores();
+        long period = ALL_TIME;
+
+        boolean isCurrent(long currentPeriod) {
+            return period == currentPeriod;
+        }
+    }
+}
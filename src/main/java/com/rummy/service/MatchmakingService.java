@@ -0,0 +1,344 @@
+package com.rummy.service;
+
+import com.rummy.game.SeatedTable;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seats players at tables by stake. Each stake has a pool of lock-free queue
+ * shards that players are hashed onto, so joins from many request threads do not
+ * contend; a single matcher drains the shards oldest-first and forms tables.
+ */
+@Service
+public class MatchmakingService {
+    private static final Logger logger = LoggerFactory.getLogger(MatchmakingService.class);
+
+    private static final int WAITING = 0;
+    private static final int CANCELLED = 1;
+    private static final int SEATED = 2;
+
+    @Autowired
+    private PlayerEligibilityCache eligibilityCache;
+
+    @Value("${matchmaking.stakes:0,10,50,100,500}")
+    private long[] stakes;
+
+    @Value("${matchmaking.shards:8}")
+    private int shardCount;
+
+    @Value("${matchmaking.min-players:2}")
+    private int minPlayers;
+
+    @Value("${matchmaking.max-players:6}")
+    private int maxPlayers;
+
+    @Value("${matchmaking.max-wait-ms:2000}")
+    private long maxWaitMillis;
+
+    private final Map<Long, StakePool> pools = new TreeMap<>();
+    private final ConcurrentHashMap<Long, Ticket> waiting = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, SeatedTable> seated = new ConcurrentHashMap<>();
+    private final List<TableListener> tableListeners = new ArrayList<>();
+    private final AtomicLong nextTableId = new AtomicLong();
+    private final AtomicLong tablesFormed = new AtomicLong();
+    private final AtomicLong playersSeated = new AtomicLong();
+    private final AtomicLong totalSeatNanos = new AtomicLong();
+    private final AtomicLong maxSeatNanos = new AtomicLong();
+    private final AtomicLong rejectedAtSeating = new AtomicLong();
+
+    public interface TableListener {
+        void onTableFormed(SeatedTable table);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (minPlayers < 2 || maxPlayers > 6 || minPlayers > maxPlayers) {
+            throw new IllegalStateException("Tables must seat between 2 and 6 players");
+        }
+        for (long stake : stakes) {
+            pools.put(stake, new StakePool(stake, shardCount));
+        }
+    }
+
+    public void addTableListener(TableListener listener) {
+        synchronized (tableListeners) {
+            tableListeners.add(listener);
+        }
+    }
+
+    public void join(Long userId, long stake) {
+        StakePool pool = pools.get(stake);
+        if (pool == null) {
+            throw new IllegalArgumentException("Unknown stake level");
+        }
+        if (!eligibilityCache.canSit(userId, stake)) {
+            throw new IllegalArgumentException(stake > 0
+                    ? "User is not eligible for cash tables"
+                    : "User not found");
+        }
+        Ticket ticket = new Ticket(userId, stake, System.nanoTime());
+        if (waiting.putIfAbsent(userId, ticket) != null) {
+            throw new IllegalArgumentException("User is already waiting for a table");
+        }
+        seated.remove(userId);
+        pool.offer(ticket);
+    }
+
+    public boolean cancel(Long userId) {
+        Ticket ticket = waiting.get(userId);
+        if (ticket == null || !ticket.state.compareAndSet(WAITING, CANCELLED)) {
+            return false;
+        }
+        waiting.remove(userId, ticket);
+        pools.get(ticket.stake).size.decrementAndGet();
+        return true;
+    }
+
+    public Map<String, Object> getStatus(Long userId) {
+        Map<String, Object> status = new HashMap<>();
+        Ticket ticket = waiting.get(userId);
+        SeatedTable table = seated.get(userId);
+        if (ticket != null) {
+            status.put("status", "WAITING");
+            status.put("stake", ticket.stake);
+            status.put("waitingMillis", (System.nanoTime() - ticket.enqueuedNanos) / 1_000_000);
+        } else if (table != null) {
+            status.put("status", "SEATED");
+            status.put("tableId", table.getTableId());
+            status.put("stake", table.getStake());
+            status.put("userIds", table.getUserIds());
+        } else {
+            status.put("status", "NOT_QUEUED");
+        }
+        return status;
+    }
+
+    /** Makes every later table id larger than {@code tableId}; called with the ids found at startup. */
+    public void reserveTableIds(long tableId) {
+        nextTableId.accumulateAndGet(tableId, Math::max);
+    }
+
+    /** Shows the players of a table recovered at startup as seated again. */
+    public void restoreSeated(SeatedTable table) {
+        for (long userId : table.getUserIds()) {
+            seated.put(userId, table);
+        }
+    }
+
+    public SeatedTable getSeatedTable(Long userId) {
+        return seated.get(userId);
+    }
+
+    /** Called when a table finishes so its players no longer show as seated. */
+    public void release(SeatedTable table) {
+        for (long userId : table.getUserIds()) {
+            seated.remove(userId, table);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${matchmaking.match-interval-ms:20}")
+    public void matchAll() {
+        long now = System.nanoTime();
+        for (StakePool pool : pools.values()) {
+            match(pool, now);
+        }
+    }
+
+    private void match(StakePool pool, long now) {
+        long maxWaitNanos = maxWaitMillis * 1_000_000;
+        long[] seats = new long[maxPlayers];
+        Ticket[] tickets = new Ticket[maxPlayers];
+        while (true) {
+            int queued = pool.size.get();
+            if (queued < minPlayers) {
+                return;
+            }
+            if (queued < maxPlayers && !pool.hasWaitedLongerThan(now, maxWaitNanos)) {
+                return;
+            }
+
+            int count = 0;
+            while (count < maxPlayers) {
+                Ticket ticket = pool.pollOldest();
+                if (ticket == null) {
+                    break;
+                }
+                if (ticket.state.get() != WAITING) {
+                    continue;
+                }
+                // Balance or KYC may have changed while waiting
+                if (!eligibilityCache.canSit(ticket.userId, pool.stake)) {
+                    if (ticket.state.compareAndSet(WAITING, CANCELLED)) {
+                        pool.size.decrementAndGet();
+                        waiting.remove(ticket.userId, ticket);
+                        rejectedAtSeating.incrementAndGet();
+                    }
+                    continue;
+                }
+                tickets[count++] = ticket;
+            }
+
+            if (count < minPlayers) {
+                // Not enough left after skipping cancelled and ineligible players; wait for more
+                pool.holdOldest(tickets, count);
+                return;
+            }
+
+            int seatedCount = 0;
+            for (int i = 0; i < count; i++) {
+                if (tickets[i].state.compareAndSet(WAITING, SEATED)) {
+                    seats[seatedCount] = tickets[i].userId;
+                    tickets[seatedCount++] = tickets[i];
+                }
+            }
+            pool.size.addAndGet(-seatedCount);
+            if (seatedCount == 0) {
+                continue;
+            }
+            long[] userIds = new long[seatedCount];
+            System.arraycopy(seats, 0, userIds, 0, seatedCount);
+            SeatedTable table = new SeatedTable(nextTableId.incrementAndGet(), pool.stake, userIds,
+                    System.currentTimeMillis());
+            long seatedAt = System.nanoTime();
+            for (int i = 0; i < seatedCount; i++) {
+                Ticket ticket = tickets[i];
+                seated.put(ticket.userId, table);
+                waiting.remove(ticket.userId, ticket);
+                long seatNanos = seatedAt - ticket.enqueuedNanos;
+                totalSeatNanos.addAndGet(seatNanos);
+                maxSeatNanos.accumulateAndGet(seatNanos, Math::max);
+            }
+            tablesFormed.incrementAndGet();
+            playersSeated.addAndGet(seatedCount);
+            notifyListeners(table);
+        }
+    }
+
+    private void notifyListeners(SeatedTable table) {
+        synchronized (tableListeners) {
+            for (TableListener listener : tableListeners) {
+                try {
+                    listener.onTableFormed(table);
+                } catch (RuntimeException e) {
+                    logger.warn("Table listener failed for table {}", table.getTableId(), e);
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        Map<Long, Integer> queued = new TreeMap<>();
+        for (StakePool pool : pools.values()) {
+            queued.put(pool.stake, pool.size.get());
+        }
+        long seatedPlayers = playersSeated.get();
+        metrics.put("queuedByStake", queued);
+        metrics.put("tablesFormed", tablesFormed.get());
+        metrics.put("playersSeated", seatedPlayers);
+        metrics.put("rejectedAtSeating", rejectedAtSeating.get());
+        metrics.put("avgSeatMillis", seatedPlayers == 0 ? 0 : totalSeatNanos.get() / seatedPlayers / 1_000_000);
+        metrics.put("maxSeatMillis", maxSeatNanos.get() / 1_000_000);
+        return metrics;
+    }
+
+    private static final class Ticket {
+        final long userId;
+        final long stake;
+        final long enqueuedNanos;
+        final AtomicInteger state = new AtomicInteger(WAITING);
+
+        Ticket(long userId, long stake, long enqueuedNanos) {
+            this.userId = userId;
+            this.stake = stake;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    private static final class StakePool {
+        final long stake;
+        final ConcurrentLinkedQueue<Ticket>[] shards;
+        // Polled but not seated, oldest first; only the matcher thread touches it
+        final ArrayDeque<Ticket> held = new ArrayDeque<>();
+        final AtomicInteger size = new AtomicInteger();
+
+        @SuppressWarnings("unchecked")
+        StakePool(long stake, int shardCount) {
+            this.stake = stake;
+            this.shards = new ConcurrentLinkedQueue[shardCount];
+            for (int i = 0; i < shardCount; i++) {
+                shards[i] = new ConcurrentLinkedQueue<>();
+            }
+        }
+
+        void offer(Ticket ticket) {
+            int shard = (int) (((ticket.userId * 0x9E3779B97F4A7C15L) >>> 33) % shards.length);
+            shards[shard].offer(ticket);
+            size.incrementAndGet();
+        }
+
+        /**
+         * Puts tickets the matcher polled but could not seat back in front of
+         * everything else, oldest first. Back in their shards they would queue
+         * behind players who joined while the matcher ran.
+         */
+        void holdOldest(Ticket[] tickets, int count) {
+            for (int i = count - 1; i >= 0; i--) {
+                held.addFirst(tickets[i]);
+            }
+        }
+
+        boolean hasWaitedLongerThan(long now, long maxWaitNanos) {
+            Ticket oldestHeld = held.peek();
+            while (oldestHeld != null && oldestHeld.state.get() != WAITING) {
+                held.poll();
+                oldestHeld = held.peek();
+            }
+            if (oldestHeld != null && now - oldestHeld.enqueuedNanos >= maxWaitNanos) {
+                return true;
+            }
+            for (ConcurrentLinkedQueue<Ticket> shard : shards) {
+                Ticket head = shard.peek();
+                while (head != null && head.state.get() != WAITING) {
+                    shard.poll();
+                    head = shard.peek();
+                }
+                if (head != null && now - head.enqueuedNanos >= maxWaitNanos) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Removes the oldest head across the held tickets and the shards; only the matcher thread polls. */
+        Ticket pollOldest() {
+            Queue<Ticket> oldestQueue = held.isEmpty() ? null : held;
+            long oldest = oldestQueue == null ? 0 : held.peek().enqueuedNanos;
+            for (ConcurrentLinkedQueue<Ticket> shard : shards) {
+                Ticket head = shard.peek();
+                if (head != null && (oldestQueue == null || head.enqueuedNanos - oldest < 0)) {
+                    oldestQueue = shard;
+                    oldest = head.enqueuedNanos;
+                }
+            }
+            return oldestQueue == null ? null : oldestQueue.poll();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.rummy.service;
+
+import com.rummy.model.OutboxEvent;
+import com.rummy.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class OutboxRelay {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+    private static final String RELAY_LOCK = "outbox-relay";
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxSink outboxSink;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    private final AtomicLong publishedTotal = new AtomicLong();
+    private final AtomicLong failedDeliveries = new AtomicLong();
+    private final AtomicLong skippedNotLeader = new AtomicLong();
+    private volatile long lastBatchSize;
+    private volatile long lastBatchNanos;
+
+    /**
+     * Publishes the oldest unpublished events. Only the node holding the relay's
+     * advisory lock runs a batch, so two nodes never deliver the same user's events
+     * concurrently or out of order. The lock lives on an autocommit session: the
+     * batch is read and marked published in short transactions of their own and no
+     * transaction is open while the sink is called.
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:1000}")
+    public void relay() {
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                if (!advisoryLock(connection, "select pg_try_advisory_lock(hashtext(?))")) {
+                    skippedNotLeader.incrementAndGet();
+                    return null;
+                }
+                try {
+                    relayBatch();
+                } finally {
+                    advisoryLock(connection, "select pg_advisory_unlock(hashtext(?))");
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            logger.warn("Outbox relay run failed, will retry", e);
+        }
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, RELAY_LOCK);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private void relayBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.findByPublishedAtIsNullOrderByIdAsc(PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            lastBatchSize = 0;
+            return;
+        }
+        long start = System.nanoTime();
+
+        // Group by user, keeping id order inside each group; OutboxService makes that the user's commit order
+        Map<Long, List<OutboxEvent>> byUser = new LinkedHashMap<>();
+        for (OutboxEvent event : batch) {
+            byUser.computeIfAbsent(event.getUserId(), k -> new ArrayList<>()).add(event);
+        }
+
+        List<Long> delivered = new ArrayList<>(batch.size());
+        for (Map.Entry<Long, List<OutboxEvent>> entry : byUser.entrySet()) {
+            try {
+                outboxSink.deliver(entry.getKey(), entry.getValue());
+                for (OutboxEvent event : entry.getValue()) {
+                    delivered.add(event.getId());
+                }
+            } catch (Exception e) {
+                failedDeliveries.incrementAndGet();
+                logger.warn("Outbox delivery failed for user {}, will retry", entry.getKey(), e);
+            }
+        }
+
+        if (!delivered.isEmpty()) {
+            outboxEventRepository.markPublished(delivered, LocalDateTime.now());
+            publishedTotal.addAndGet(delivered.size());
+        }
+        lastBatchSize = delivered.size();
+        lastBatchNanos = System.nanoTime() - start;
+        logger.debug("Relayed {} outbox events in {} ms", delivered.size(), lastBatchNanos / 1_000_000);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        long lagMillis = outboxEventRepository.findFirstByPublishedAtIsNullOrderByIdAsc()
+                .map(event -> Duration.between(event.getCreatedAt(), LocalDateTime.now()).toMillis())
+                .orElse(0L);
+        metrics.put("pending", outboxEventRepository.countByPublishedAtIsNull());
+        metrics.put("lagMillis", lagMillis);
+        metrics.put("publishedTotal", publishedTotal.get());
+        metrics.put("failedDeliveries", failedDeliveries.get());
+        metrics.put("skippedNotLeader", skippedNotLeader.get());
+        metrics.put("lastBatchSize", lastBatchSize);
+        metrics.put("lastBatchMillis", lastBatchNanos / 1_000_000);
+        metrics.put("lastBatchEventsPerSecond",
+                lastBatchNanos == 0 ? 0 : lastBatchSize * 1_000_000_000L / lastBatchNanos);
+        return metrics;
+    }
+}
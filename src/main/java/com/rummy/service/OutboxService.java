@@ -0,0 +1,39 @@
+package com.rummy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rummy.model.OutboxEvent;
+import com.rummy.model.OutboxEventType;
+import com.rummy.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+@Service
+public class OutboxService {
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // MANDATORY: the event must commit or roll back together with the change it describes
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent record(Long userId, OutboxEventType eventType, Map<String, Object> payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setUserId(userId);
+        event.setEventType(eventType);
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize outbox payload", e);
+        }
+        // IDENTITY ids are handed out at insert, not at commit; holding the user's lock until commit
+        // makes a later id for the same user also a later commit, which the relay relies on
+        outboxEventRepository.lockUser(userId);
+        return outboxEventRepository.save(event);
+    }
+}
@@ -0,0 +1,13 @@
+package com.rummy.service;
+
+import com.rummy.model.OutboxEvent;
+
+import java.util.List;
+
+public interface OutboxSink {
+    /**
+     * Delivers events for a single user, in commit order. Throwing stops delivery
+     * for that user until the next relay run so later events never overtake earlier ones.
+     */
+    void deliver(Long userId, List<OutboxEvent> events) throws Exception;
+}
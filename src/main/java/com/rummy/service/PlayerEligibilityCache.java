@@ -0,0 +1,169 @@
+package com.rummy.service;
+
+import com.rummy.model.KycStatus;
+import com.rummy.model.User;
+import com.rummy.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory snapshot of the user fields that gate table seating, so matchmaking
+ * never reads the database per player. Loaded in bulk at startup and refreshed
+ * from the user write paths once their transaction commits; each refresh also
+ * carries the balance to the leaderboard and the user's bits to the eligibility
+ * index.
+ */
+@Service
+public class PlayerEligibilityCache {
+    private static final Logger logger = LoggerFactory.getLogger(PlayerEligibilityCache.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Autowired
+    private EligibilityIndexService eligibilityIndexService;
+
+    @Value("${eligibility.load.page-size:10000}")
+    private int pageSize;
+
+    private final ConcurrentHashMap<Long, Eligibility> snapshot = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void subscribe() {
+        clusterCoordinator.subscribe("user", new ClusterCoordinator.Subscriber() {
+            @Override
+            public void onInvalidate(List<Long> ids) {
+                for (Object[] row : userRepository.findEligibilityByIds(ids)) {
+                    Long id = (Long) row[0];
+                    double balance = balanceOf((Double) row[3]);
+                    snapshot.put(id, new Eligibility((Boolean) row[1], (KycStatus) row[2], balance));
+                    leaderboardService.updateBalance(id, balance);
+                    eligibilityIndexService.updateUser(id, (Boolean) row[1], (KycStatus) row[2], null);
+                }
+            }
+
+            @Override
+            public void onReset() {
+                load();
+                leaderboardService.rebuild();
+                eligibilityIndexService.rebuild();
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        long afterId = 0;
+        int loaded = 0;
+        while (true) {
+            List<Object[]> page = userRepository.findEligibilityPage(afterId, PageRequest.of(0, pageSize));
+            for (Object[] row : page) {
+                Long id = (Long) row[0];
+                snapshot.put(id, new Eligibility((Boolean) row[1], (KycStatus) row[2], balanceOf((Double) row[3])));
+                afterId = id;
+            }
+            loaded += page.size();
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+        logger.info("Loaded eligibility for {} users in {} ms", loaded, System.currentTimeMillis() - start);
+    }
+
+    public void update(User user) {
+        if (user.getId() == null) {
+            return;
+        }
+        double balance = balanceOf(user.getBalance());
+        snapshot.put(user.getId(), new Eligibility(user.isVerified(), user.getKycStatus(), balance));
+        leaderboardService.updateBalance(user.getId(), balance);
+        eligibilityIndexService.updateUser(user.getId(), user.isVerified(), user.getKycStatus(), user.getLastLoginIp());
+    }
+
+    /**
+     * Applies the user's state once the surrounding transaction commits, or now
+     * if there is none, and has the other nodes reload the user.
+     */
+    public void refreshAfterCommit(User user) {
+        clusterCoordinator.invalidateAfterCommit("user", user.getId());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update(user);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update(user);
+            }
+        });
+    }
+
+    public Eligibility get(Long userId) {
+        return snapshot.get(userId);
+    }
+
+    /** Free tables only need a known user; cash tables need approved KYC, a verified mobile and the buy-in. */
+    public boolean canSit(Long userId, double buyIn) {
+        Eligibility eligibility = snapshot.get(userId);
+        if (eligibility == null) {
+            return false;
+        }
+        if (buyIn <= 0) {
+            return true;
+        }
+        return eligibility.isVerified()
+                && eligibility.getKycStatus() == KycStatus.APPROVED
+                && eligibility.getBalance() >= buyIn;
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    private static double balanceOf(Double balance) {
+        return balance == null ? 0.0 : balance;
+    }
+
+    public static final class Eligibility {
+        private final boolean verified;
+        private final KycStatus kycStatus;
+        private final double balance;
+
+        public Eligibility(boolean verified, KycStatus kycStatus, double balance) {
+            this.verified = verified;
+            this.kycStatus = kycStatus;
+            this.balance = balance;
+        }
+
+        public boolean isVerified() {
+            return verified;
+        }
+
+        public KycStatus getKycStatus() {
+            return kycStatus;
+        }
+
+        public double getBalance() {
+            return balance;
+        }
+    }
+}
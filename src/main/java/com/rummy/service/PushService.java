@@ -0,0 +1,339 @@
+package com.rummy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-sent event push channel. Each connection has a small bounded queue
+ * drained by a shared pool of sender threads, so idle connections hold no
+ * thread. Writes use the servlet non-blocking API: a sender writes only while
+ * the connection reports it is ready and otherwise leaves the rest to
+ * {@code onWritePossible}, so a client that stops reading never holds a sender.
+ * Its queue fills instead and it is disconnected. Events are encoded once,
+ * however many connections receive them.
+ */
+@Service
+public class PushService {
+    private static final Logger logger = LoggerFactory.getLogger(PushService.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${push.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${push.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${push.stream-timeout-ms:0}")
+    private long streamTimeoutMillis;
+
+    private final ConcurrentHashMap<Long, CopyOnWriteArrayList<Connection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong overflowDisconnects = new AtomicLong();
+    private final AtomicLong deferredWrites = new AtomicLong();
+    private ExecutorService senders;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "push-sender-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    /** Starts an event stream on the request; the response stays open until the client goes away. */
+    public void subscribe(Long userId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        AsyncContext async = request.startAsync(request, response);
+        // A timeout of 0 never expires; heartbeats find dead clients instead
+        async.setTimeout(streamTimeoutMillis);
+        Connection connection = new Connection(userId, async, response.getOutputStream(), queueCapacity);
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                remove(connection);
+            }
+
+            // The container dispatches to the error page unless the stream is completed here
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                close(connection);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                close(connection);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        connections.computeIfAbsent(userId, id -> new CopyOnWriteArrayList<>()).add(connection);
+        connectionCount.incrementAndGet();
+        // The container first calls onWritePossible once the request has left the filter
+        // chain; until then events only queue up, and that first drain sends the headers
+        connection.out.setWriteListener(new WriteListener() {
+            @Override
+            public void onWritePossible() {
+                connection.started = true;
+                connection.awaitingWrite = false;
+                schedule(connection);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                logger.debug("Dropping push connection for user {}: {}", userId, error.getMessage());
+                close(connection);
+            }
+        });
+    }
+
+    public void publish(Long userId, String type, Map<String, Object> payload) {
+        CopyOnWriteArrayList<Connection> targets = connections.get(userId);
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+        Event event = Event.of(type, toJson(payload));
+        published.incrementAndGet();
+        for (Connection connection : targets) {
+            enqueue(connection, event);
+        }
+    }
+
+    public void publish(long[] userIds, String type, Map<String, Object> payload) {
+        Event event = null;
+        for (long userId : userIds) {
+            CopyOnWriteArrayList<Connection> targets = connections.get(userId);
+            if (targets == null || targets.isEmpty()) {
+                continue;
+            }
+            if (event == null) {
+                event = Event.of(type, toJson(payload));
+                published.incrementAndGet();
+            }
+            for (Connection connection : targets) {
+                enqueue(connection, event);
+            }
+        }
+    }
+
+    /** Publishes once the surrounding transaction commits, or now if there is none. */
+    public void publishAfterCommit(Long userId, String type, Map<String, Object> payload) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(userId, type, payload);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(userId, type, payload);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${push.heartbeat-ms:30000}")
+    public void heartbeat() {
+        for (CopyOnWriteArrayList<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                enqueue(connection, Event.HEARTBEAT);
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("connections", connectionCount.get());
+        metrics.put("users", connections.size());
+        metrics.put("eventsPublished", published.get());
+        metrics.put("eventsDelivered", delivered.get());
+        metrics.put("overflowDisconnects", overflowDisconnects.get());
+        metrics.put("deferredWrites", deferredWrites.get());
+        return metrics;
+    }
+
+    private void enqueue(Connection connection, Event event) {
+        if (!connection.queue.offer(event)) {
+            // The client is not reading fast enough to keep up
+            overflowDisconnects.incrementAndGet();
+            close(connection);
+            return;
+        }
+        schedule(connection);
+    }
+
+    private void schedule(Connection connection) {
+        if (connection.started && !connection.removed.get() && connection.scheduled.compareAndSet(false, true)) {
+            senders.execute(() -> drain(connection));
+        }
+    }
+
+    private void drain(Connection connection) {
+        boolean failed = false;
+        try {
+            boolean ready = isReady(connection);
+            Event event;
+            while (ready && (event = connection.queue.poll()) != null) {
+                connection.out.write(event.frame);
+                if (event != Event.HEARTBEAT) {
+                    delivered.incrementAndGet();
+                }
+                ready = isReady(connection);
+            }
+            if (ready) {
+                connection.out.flush();
+            }
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Dropping push connection for user {}: {}", connection.userId, e.getMessage());
+            failed = true;
+        } finally {
+            connection.scheduled.set(false);
+        }
+        if (failed) {
+            close(connection);
+            return;
+        }
+        // An event may have arrived after the last poll but before the flag was cleared;
+        // if the connection is not ready, onWritePossible reschedules instead
+        if (!connection.awaitingWrite && !connection.queue.isEmpty()) {
+            schedule(connection);
+        }
+    }
+
+    /**
+     * Whether a write would not block. When it would, the container calls
+     * onWritePossible later; the flag is set first because that call may come
+     * from another thread before this one returns.
+     */
+    private boolean isReady(Connection connection) {
+        connection.awaitingWrite = true;
+        if (!connection.out.isReady()) {
+            deferredWrites.incrementAndGet();
+            return false;
+        }
+        connection.awaitingWrite = false;
+        return true;
+    }
+
+    private void close(Connection connection) {
+        remove(connection);
+        complete(connection);
+    }
+
+    /**
+     * Completes the stream once no sender is draining it and keeps the drain
+     * flag so none starts again: the container recycles the response for the
+     * next request on completion. Drains never block, so the wait is short.
+     */
+    private static void complete(Connection connection) {
+        if (!connection.completed.compareAndSet(false, true)) {
+            return;
+        }
+        while (!connection.scheduled.compareAndSet(false, true)) {
+            Thread.yield();
+        }
+        try {
+            connection.async.complete();
+        } catch (IllegalStateException e) {
+            // Already completed by the container
+        }
+    }
+
+    private void remove(Connection connection) {
+        if (!connection.removed.compareAndSet(false, true)) {
+            return;
+        }
+        connectionCount.decrementAndGet();
+        connections.computeIfPresent(connection.userId, (id, list) -> {
+            list.remove(connection);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize push payload", e);
+        }
+    }
+
+    private static final class Event {
+        static final Event HEARTBEAT = new Event(":heartbeat\n\n");
+
+        final byte[] frame;
+
+        private Event(String frame) {
+            this.frame = frame.getBytes(StandardCharsets.UTF_8);
+        }
+
+        static Event of(String type, String json) {
+            return new Event("event:" + type + "\ndata:" + json.replace("\n", "\ndata:") + "\n\n");
+        }
+    }
+
+    private static final class Connection {
+        final Long userId;
+        final AsyncContext async;
+        final ServletOutputStream out;
+        final ArrayBlockingQueue<Event> queue;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicBoolean removed = new AtomicBoolean();
+        final AtomicBoolean completed = new AtomicBoolean();
+        // Set by the first onWritePossible; no other thread may write before it
+        volatile boolean started;
+        // Set while a write would block, until the container calls onWritePossible
+        volatile boolean awaitingWrite;
+
+        Connection(Long userId, AsyncContext async, ServletOutputStream out, int capacity) {
+            this.userId = userId;
+            this.async = async;
+            this.out = out;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+}
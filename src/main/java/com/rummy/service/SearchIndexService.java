@@ -0,0 +1,402 @@
+package com.rummy.service;
+
+import com.rummy.model.FraudReport;
+import com.rummy.model.FraudReportStatus;
+import com.rummy.model.KycDocument;
+import com.rummy.model.KycStatus;
+import com.rummy.repository.FraudReportRepository;
+import com.rummy.repository.KycDocumentRepository;
+import com.rummy.search.InvertedIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Free-text search over fraud report text and KYC verification remarks, served
+ * from in-memory {@link InvertedIndex}es instead of {@code LIKE} scans. Both
+ * indexes are rebuilt at startup by reading id ranges on parallel threads, and
+ * are kept current by the write paths once their transactions commit.
+ */
+@Service
+public class SearchIndexService {
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexService.class);
+
+    public enum Source {
+        FRAUD_REPORTS, KYC_REMARKS
+    }
+
+    @Autowired
+    private FraudReportRepository fraudReportRepository;
+
+    @Autowired
+    private KycDocumentRepository kycDocumentRepository;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Value("${search.rebuild.threads:4}")
+    private int rebuildThreads;
+
+    @Value("${search.rebuild.page-size:5000}")
+    private int pageSize;
+
+    @Value("${search.max-results:200}")
+    private int maxResults;
+
+    private final SearchableIndex fraudReports = new SearchableIndex();
+    private final SearchableIndex kycRemarks = new SearchableIndex();
+    private ExecutorService rebuildPool;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        rebuildPool = Executors.newFixedThreadPool(rebuildThreads, runnable -> {
+            Thread thread = new Thread(runnable, "search-rebuild-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Other nodes' writes arrive as ids; re-read just those rows
+        clusterCoordinator.subscribe("fraud-report", new ClusterCoordinator.Subscriber() {
+            @Override
+            public void onInvalidate(List<Long> ids) {
+                List<Object[]> rows = fraudReportRepository.findSearchRowsByIds(ids);
+                fraudReports.apply(index -> {
+                    for (Object[] row : rows) {
+                        putFraudReport(index, row);
+                    }
+                });
+            }
+
+            @Override
+            public void onReset() {
+                rebuildFraudReports();
+            }
+        });
+        clusterCoordinator.subscribe("kyc-document", new ClusterCoordinator.Subscriber() {
+            @Override
+            public void onInvalidate(List<Long> ids) {
+                List<Object[]> rows = kycDocumentRepository.findRemarksRowsByIds(ids);
+                kycRemarks.apply(index -> {
+                    for (Object[] row : rows) {
+                        putKycRemarks(index, row);
+                    }
+                });
+            }
+
+            @Override
+            public void onReset() {
+                rebuildKycRemarks();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildPool.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        CompletableFuture.allOf(
+                CompletableFuture.runAsync(this::rebuildFraudReports),
+                CompletableFuture.runAsync(this::rebuildKycRemarks)
+        ).join();
+    }
+
+    public void rebuildFraudReports() {
+        rebuild(fraudReports, fraudReportRepository::findMaxId, this::loadFraudReports, "fraud report");
+    }
+
+    public void rebuildKycRemarks() {
+        rebuild(kycRemarks, kycDocumentRepository::findMaxId, this::loadKycRemarks, "KYC remark");
+    }
+
+    public void indexAfterCommit(FraudReport report) {
+        int docId = docId(report.getId());
+        byte status = (byte) report.getStatus().ordinal();
+        int minute = toMinute(report.getCreatedAt());
+        String reason = report.getReason();
+        String evidence = report.getEvidence();
+        String details = report.getAdditionalDetails();
+        afterCommit(fraudReports, index -> index.put(docId, status, minute, reason, evidence, details));
+        clusterCoordinator.invalidateAfterCommit("fraud-report", report.getId());
+    }
+
+    public void updateStatusAfterCommit(Collection<Long> reportIds, FraudReportStatus status) {
+        int[] docIds = reportIds.stream().mapToInt(SearchIndexService::docId).toArray();
+        byte value = (byte) status.ordinal();
+        afterCommit(fraudReports, index -> {
+            for (int docId : docIds) {
+                index.setStatus(docId, value);
+            }
+        });
+        for (Long reportId : reportIds) {
+            clusterCoordinator.invalidateAfterCommit("fraud-report", reportId);
+        }
+    }
+
+    public void indexAfterCommit(KycDocument document) {
+        int docId = docId(document.getId());
+        byte status = (byte) document.getVerificationStatus().ordinal();
+        int minute = toMinute(document.getCreatedAt());
+        String remarks = document.getVerificationRemarks();
+        afterCommit(kycRemarks, index -> index.put(docId, status, minute, remarks));
+        clusterCoordinator.invalidateAfterCommit("kyc-document", document.getId());
+    }
+
+    /**
+     * Searches one source. {@code statuses} are status names of that source and
+     * the dates bound the creation day inclusively; both are optional.
+     */
+    public Map<String, Object> search(Source source, String query, List<String> statuses,
+                                      LocalDate from, LocalDate to, int limit) {
+        InvertedIndex.Query parsed = InvertedIndex.Query.parse(query);
+        int statusMask = statusMask(source, statuses);
+        int fromMinute = from == null ? Integer.MIN_VALUE : toMinute(from.atStartOfDay());
+        int toMinute = to == null ? Integer.MAX_VALUE : toMinute(to.plusDays(1).atStartOfDay());
+        int size = Math.max(1, Math.min(limit, maxResults));
+
+        SearchableIndex searchable = source == Source.FRAUD_REPORTS ? fraudReports : kycRemarks;
+        List<Map<String, Object>> hits = new ArrayList<>();
+        long start = System.nanoTime();
+        InvertedIndex.Hits result;
+        searchable.lock.readLock().lock();
+        try {
+            result = searchable.index.search(parsed, statusMask, fromMinute, toMinute, size);
+            for (int docId : result.getDocIds()) {
+                Map<String, Object> hit = new HashMap<>();
+                hit.put("id", (long) docId);
+                hit.put("status", statusName(source, searchable.index.getStatus(docId)));
+                hit.put("createdAt", fromMinute(searchable.index.getCreatedMinute(docId)));
+                hits.add(hit);
+            }
+        } finally {
+            searchable.lock.readLock().unlock();
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("source", source);
+        response.put("total", result.getTotal());
+        response.put("hits", hits);
+        response.put("tookMicros", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        return response;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put(Source.FRAUD_REPORTS.name(), fraudReports.metrics());
+        metrics.put(Source.KYC_REMARKS.name(), kycRemarks.metrics());
+        return metrics;
+    }
+
+    private interface RangeLoader {
+        void load(InvertedIndex.Shard shard, long afterId, long toId);
+    }
+
+    /** Serialized per index, so a reset arriving mid-rebuild cannot end the other's update capture early. */
+    private void rebuild(SearchableIndex target, Supplier<Long> maxId, RangeLoader loader, String label) {
+        synchronized (target) {
+            rebuildLocked(target, maxId, loader, label);
+        }
+    }
+
+    private void rebuildLocked(SearchableIndex target, Supplier<Long> maxId, RangeLoader loader, String label) {
+        long start = System.currentTimeMillis();
+        // Start capturing updates before reading the id bound, so nothing committed in between is lost
+        target.lock.writeLock().lock();
+        try {
+            target.rebuilding = true;
+        } finally {
+            target.lock.writeLock().unlock();
+        }
+        Long maxValue = maxId.get();
+        int max = maxValue == null ? 0 : docId(maxValue);
+        InvertedIndex rebuilt = new InvertedIndex(max);
+
+        // One contiguous id range per thread, merged in range order so postings stay sorted
+        int ranges = max == 0 ? 0 : Math.min(rebuildThreads, max);
+        List<InvertedIndex.Shard> shards = new ArrayList<>(ranges);
+        List<CompletableFuture<Void>> loads = new ArrayList<>(ranges);
+        long rangeSize = ranges == 0 ? 0 : (max + ranges - 1) / ranges;
+        for (int i = 0; i < ranges; i++) {
+            InvertedIndex.Shard shard = rebuilt.newShard();
+            long afterId = i * rangeSize;
+            long toId = Math.min(max, afterId + rangeSize);
+            shards.add(shard);
+            loads.add(CompletableFuture.runAsync(() -> loader.load(shard, afterId, toId), rebuildPool));
+        }
+        CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).join();
+        rebuilt.merge(shards);
+
+        int replayed = 0;
+        target.lock.writeLock().lock();
+        try {
+            Consumer<InvertedIndex> update;
+            while ((update = target.pending.poll()) != null) {
+                update.accept(rebuilt);
+                replayed++;
+            }
+            target.index = rebuilt;
+            target.rebuilding = false;
+        } finally {
+            target.lock.writeLock().unlock();
+        }
+        logger.info("Indexed {} {} documents ({} postings, {} terms) in {} ms, replayed {} concurrent updates",
+                rebuilt.getDocumentCount(), label, rebuilt.getPostingCount(), rebuilt.getTermCount(),
+                System.currentTimeMillis() - start, replayed);
+    }
+
+    private static void putFraudReport(InvertedIndex index, Object[] row) {
+        index.put(docId((Long) row[0]), (byte) ((FraudReportStatus) row[4]).ordinal(),
+                toMinute((LocalDateTime) row[5]), (String) row[1], (String) row[2], (String) row[3]);
+    }
+
+    private static void putKycRemarks(InvertedIndex index, Object[] row) {
+        index.put(docId((Long) row[0]), (byte) ((KycStatus) row[2]).ordinal(),
+                toMinute((LocalDateTime) row[3]), (String) row[1]);
+    }
+
+    private void loadFraudReports(InvertedIndex.Shard shard, long afterId, long toId) {
+        while (true) {
+            List<Object[]> page = fraudReportRepository.findSearchPage(afterId, toId, PageRequest.of(0, pageSize));
+            for (Object[] row : page) {
+                afterId = (Long) row[0];
+                shard.add(docId(afterId), (byte) ((FraudReportStatus) row[4]).ordinal(),
+                        toMinute((LocalDateTime) row[5]), (String) row[1], (String) row[2], (String) row[3]);
+            }
+            if (page.size() < pageSize) {
+                return;
+            }
+        }
+    }
+
+    private void loadKycRemarks(InvertedIndex.Shard shard, long afterId, long toId) {
+        while (true) {
+            List<Object[]> page = kycDocumentRepository.findRemarksPage(afterId, toId, PageRequest.of(0, pageSize));
+            for (Object[] row : page) {
+                afterId = (Long) row[0];
+                shard.add(docId(afterId), (byte) ((KycStatus) row[2]).ordinal(),
+                        toMinute((LocalDateTime) row[3]), (String) row[1]);
+            }
+            if (page.size() < pageSize) {
+                return;
+            }
+        }
+    }
+
+    /** Applies the update once the surrounding transaction commits, or now if there is none. */
+    private void afterCommit(SearchableIndex target, Consumer<InvertedIndex> update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            target.apply(update);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                target.apply(update);
+            }
+        });
+    }
+
+    private static int statusMask(Source source, List<String> statuses) {
+        if (statuses == null || statuses.isEmpty()) {
+            return -1;
+        }
+        int mask = 0;
+        for (String status : statuses) {
+            try {
+                mask |= 1 << (source == Source.FRAUD_REPORTS
+                        ? FraudReportStatus.valueOf(status.trim().toUpperCase()).ordinal()
+                        : KycStatus.valueOf(status.trim().toUpperCase()).ordinal());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown status: " + status);
+            }
+        }
+        return mask;
+    }
+
+    private static String statusName(Source source, byte status) {
+        return source == Source.FRAUD_REPORTS
+                ? FraudReportStatus.values()[status].name()
+                : KycStatus.values()[status].name();
+    }
+
+    private static int docId(Long id) {
+        if (id == null || id <= 0 || id > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Id outside the indexable range: " + id);
+        }
+        return id.intValue();
+    }
+
+    private static int toMinute(LocalDateTime time) {
+        if (time == null) {
+            return 0;
+        }
+        return (int) TimeUnit.SECONDS.toMinutes(time.atZone(ZoneId.systemDefault()).toEpochSecond());
+    }
+
+    private static LocalDateTime fromMinute(int minute) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(TimeUnit.MINUTES.toSeconds(minute)), ZoneId.systemDefault());
+    }
+
+    private static final class SearchableIndex {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        // Updates that land while a rebuild is reading the tables, replayed onto the rebuilt index
+        final ConcurrentLinkedQueue<Consumer<InvertedIndex>> pending = new ConcurrentLinkedQueue<>();
+        InvertedIndex index = new InvertedIndex(0);
+        boolean rebuilding;
+
+        void apply(Consumer<InvertedIndex> update) {
+            lock.writeLock().lock();
+            try {
+                update.accept(index);
+                if (rebuilding) {
+                    pending.add(update);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        Map<String, Object> metrics() {
+            Map<String, Object> metrics = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                metrics.put("documents", index.getDocumentCount());
+                metrics.put("terms", index.getTermCount());
+                metrics.put("postings", index.getPostingCount());
+                metrics.put("rebuilding", rebuilding);
+            } finally {
+                lock.readLock().unlock();
+            }
+            return metrics;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.rummy.service;
+
+import com.rummy.game.DealAuditLog;
+import com.rummy.game.DeckShuffler;
+import com.rummy.game.GameTable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deals decks from a pool filled by a background thread. Each deck is the
+ * Fisher-Yates shuffle of a fresh seed from a DRBG that is seeded once at
+ * startup, so dealing never waits on the entropy source. Every deal is written
+ * to a hash-chained {@link DealAuditLog} with the players' user ids and a
+ * commitment to its seed; the seed itself is only appended once the table is
+ * over, so reading the log during play reveals nothing about the deck. Until
+ * then seeds live in a private side file, which survives restarts and is
+ * compacted at startup. A deal's seed is forced to that file before the audit
+ * log commits to it, so no logged deal can lose the seed that verifies it.
+ */
+@Service
+public class ShuffleService {
+    private static final Logger logger = LoggerFactory.getLogger(ShuffleService.class);
+    private static final HexFormat HEX = HexFormat.of();
+
+    @Value("${shuffle.pool-size:4096}")
+    private int poolSize;
+
+    @Value("${shuffle.audit-file:data/deals/audit.log}")
+    private String auditFile;
+
+    @Value("${shuffle.seed-file:data/deals/seeds.log}")
+    private String seedFile;
+
+    private ArrayBlockingQueue<PreparedDeck> pool;
+    private SecureRandom seedSource;
+    private DealAuditLog auditLog;
+    private FileChannel seedChannel;
+    // Seeds of tables still in play, by table id; the audit log only has their commitments.
+    // Its monitor orders seed records against audit records.
+    private final ConcurrentHashMap<Long, byte[]> unrevealedSeeds = new ConcurrentHashMap<>();
+    private Thread filler;
+    private volatile boolean running = true;
+    private final DeckShuffler inlineShuffler = new DeckShuffler();
+    private final AtomicLong deals = new AtomicLong();
+    private final AtomicLong poolMisses = new AtomicLong();
+    private final AtomicLong reveals = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        try {
+            seedSource = SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            seedSource = new SecureRandom();
+        }
+        pool = new ArrayBlockingQueue<>(poolSize);
+        auditLog = new DealAuditLog(Paths.get(auditFile));
+        seedChannel = openSeedFile(Paths.get(seedFile));
+        filler = new Thread(this::fill, "shuffle-pool");
+        filler.setDaemon(true);
+        filler.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        running = false;
+        filler.interrupt();
+        auditLog.close();
+        synchronized (unrevealedSeeds) {
+            seedChannel.close();
+        }
+    }
+
+    /**
+     * Takes a shuffled deck for the table and records the deal in the audit log
+     * before returning it, so no deck reaches a table unrecorded. The seed is kept
+     * back until {@link #reveal(long)}.
+     */
+    public byte[] deal(long tableId, long[] userIds) {
+        PreparedDeck prepared = pool.poll();
+        if (prepared == null) {
+            // Pool drained by a burst; shuffling inline costs CPU, not entropy
+            poolMisses.incrementAndGet();
+            synchronized (inlineShuffler) {
+                prepared = prepare(inlineShuffler);
+            }
+        }
+        synchronized (unrevealedSeeds) {
+            // Tagged with the audit record it precedes, so startup can tell whether the deal was ever logged
+            long auditSeq = auditLog.getSeq() + 1;
+            try {
+                writeSeedRecord("+\t" + tableId + "\t" + HEX.formatHex(prepared.seed) + "\t" + auditSeq, true);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not record deal for table " + tableId, e);
+            }
+            try {
+                auditLog.append(tableId, userIds, prepared.seed, prepared.deck);
+            } catch (IOException e) {
+                forgetSeed(tableId);
+                throw new IllegalStateException("Could not record deal for table " + tableId, e);
+            }
+            unrevealedSeeds.put(tableId, prepared.seed);
+        }
+        deals.incrementAndGet();
+        return prepared.deck;
+    }
+
+    /**
+     * Publishes the seed of an abandoned table in the audit log so its deal can be
+     * verified. Does nothing for a table with no unrevealed seed; a failed write
+     * leaves the seed for a later call.
+     */
+    public void reveal(long tableId) {
+        reveal(tableId, false, 0, 0);
+    }
+
+    /**
+     * Publishes the seed of a table played to the end along with its result,
+     * which the winnings leaderboards are rebuilt from. Returns whether this call
+     * revealed it, so a table settled before a crash is not credited twice.
+     */
+    public boolean revealResult(long tableId, long winnerUserId, long winnings) {
+        return reveal(tableId, true, winnerUserId, winnings);
+    }
+
+    /** Visits the results revealed at or after {@code sinceMillis}, newest first; see {@link DealAuditLog#readResultsSince}. */
+    public void forEachResultSince(long sinceMillis, DealAuditLog.ResultHandler handler) throws IOException {
+        DealAuditLog.readResultsSince(Paths.get(auditFile), sinceMillis, handler);
+    }
+
+    private boolean reveal(long tableId, boolean finished, long winnerUserId, long winnings) {
+        byte[] seed = unrevealedSeeds.remove(tableId);
+        if (seed == null) {
+            return false;
+        }
+        synchronized (unrevealedSeeds) {
+            try {
+                if (finished) {
+                    auditLog.reveal(tableId, seed, winnerUserId, winnings);
+                } else {
+                    auditLog.reveal(tableId, seed);
+                }
+                // Losing this record only means revealing the seed again after a restart
+                writeSeedRecord("-\t" + tableId, false);
+                reveals.incrementAndGet();
+                return true;
+            } catch (IOException e) {
+                unrevealedSeeds.putIfAbsent(tableId, seed);
+                logger.error("Could not reveal the seed of table {}", tableId, e);
+                return false;
+            }
+        }
+    }
+
+    /** Reveals every unrevealed seed except those of {@code liveTableIds}; run once tables are recovered. */
+    public void revealAllExcept(Set<Long> liveTableIds) {
+        for (Long tableId : new ArrayList<>(unrevealedSeeds.keySet())) {
+            if (!liveTableIds.contains(tableId)) {
+                reveal(tableId);
+            }
+        }
+    }
+
+    /** Highest table id ever dealt, so new tables never reuse an id already in the audit log. */
+    public long getLastDealtTableId() {
+        return auditLog.getLastTableId();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("pooledDecks", pool.size());
+        metrics.put("poolCapacity", poolSize);
+        metrics.put("deals", deals.get());
+        metrics.put("poolMisses", poolMisses.get());
+        metrics.put("auditSeq", auditLog.getSeq());
+        metrics.put("reveals", reveals.get());
+        metrics.put("unrevealedSeeds", unrevealedSeeds.size());
+        return metrics;
+    }
+
+    /** Drops the seed record of a deal the audit log failed to take. */
+    private void forgetSeed(long tableId) {
+        try {
+            writeSeedRecord("-\t" + tableId, true);
+        } catch (IOException e) {
+            logger.error("Could not withdraw the seed of unlogged table {}", tableId, e);
+        }
+    }
+
+    private void writeSeedRecord(String record, boolean force) throws IOException {
+        synchronized (unrevealedSeeds) {
+            ByteBuffer bytes = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                seedChannel.write(bytes);
+            }
+            if (force) {
+                seedChannel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Loads the seeds still to be revealed, rewrites the file with only those and
+     * opens it for appending. {@code +\ttableId\tseed\tauditSeq} adds a seed
+     * whose deal is audit record {@code auditSeq}; it is dropped if the audit log
+     * never got that far, because the process died between the two writes and
+     * the table was never dealt. Compacted seeds are known to be logged and are
+     * written without the sequence. {@code -\ttableId} removes a seed. A torn
+     * last line is skipped along with its deal.
+     */
+    private FileChannel openSeedFile(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t");
+                try {
+                    if ((fields.length == 3 || fields.length == 4) && fields[0].equals("+")) {
+                        long tableId = Long.parseLong(fields[1]);
+                        if (fields.length == 4 && Long.parseLong(fields[3]) > auditLog.getSeq()) {
+                            logger.warn("Dropping the seed of table {}, whose deal never reached the audit log", tableId);
+                        } else {
+                            unrevealedSeeds.put(tableId, HEX.parseHex(fields[2]));
+                        }
+                    } else if (fields.length == 2 && fields[0].equals("-")) {
+                        unrevealedSeeds.remove(Long.parseLong(fields[1]));
+                    }
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Skipping malformed seed record in {}", file);
+                }
+            }
+        }
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        StringBuilder records = new StringBuilder();
+        for (Map.Entry<Long, byte[]> entry : unrevealedSeeds.entrySet()) {
+            records.append("+\t").append(entry.getKey()).append('\t').append(HEX.formatHex(entry.getValue())).append('\n');
+        }
+        try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // Records appended from here on go to the new file, so its name must be durable first
+        try (FileChannel directory = FileChannel.open(file.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+        return FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void fill() {
+        DeckShuffler shuffler = new DeckShuffler();
+        while (running) {
+            try {
+                pool.put(prepare(shuffler));
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Could not prepare a shuffled deck", e);
+                try {
+                    TimeUnit.SECONDS.sleep(1);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private PreparedDeck prepare(DeckShuffler shuffler) {
+        byte[] seed = new byte[DeckShuffler.SEED_BYTES];
+        seedSource.nextBytes(seed);
+        byte[] deck = new byte[GameTable.DECK_SIZE];
+        shuffler.shuffle(seed, deck);
+        return new PreparedDeck(seed, deck);
+    }
+
+    private static final class PreparedDeck {
+        final byte[] seed;
+        final byte[] deck;
+
+        PreparedDeck(byte[] seed, byte[] deck) {
+            this.seed = seed;
+            this.deck = deck;
+        }
+    }
+}
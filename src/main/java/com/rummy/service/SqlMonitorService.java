@@ -0,0 +1,127 @@
+package com.rummy.service;
+
+import com.rummy.jdbc.StatementStats;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint JDBC statement counts, DB time and N+1 suspects, fed by
+ * {@code SqlStatementFilter}. Endpoints are keyed by method and mapping pattern,
+ * e.g. {@code GET /api/users/profile/{userId}}.
+ *
+ * <p>{@code sql.monitor.budgets} caps the statements an endpoint may run; with
+ * {@code sql.monitor.fail-on-budget} set, a request over its budget fails, which
+ * is how integration tests turn a statement regression into a build failure.
+ * Not loaded in the prod profile.
+ */
+@Service
+@Profile("!prod")
+public class SqlMonitorService {
+    private static final Logger logger = LoggerFactory.getLogger(SqlMonitorService.class);
+
+    @Value("${sql.monitor.repeat-threshold:5}")
+    private int repeatThreshold;
+
+    // Comma-separated "METHOD pattern=max", e.g. "GET /api/users/profile/{userId}=1"
+    @Value("${sql.monitor.budgets:}")
+    private String budgetSpec;
+
+    @Value("${sql.monitor.fail-on-budget:false}")
+    private boolean failOnBudget;
+
+    private final Map<String, Integer> budgets = new HashMap<>();
+    private final ConcurrentHashMap<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (String entry : budgetSpec.split(",")) {
+            int separator = entry.lastIndexOf('=');
+            if (separator > 0) {
+                budgets.put(entry.substring(0, separator).trim(), Integer.parseInt(entry.substring(separator + 1).trim()));
+            }
+        }
+    }
+
+    /** Budget of the endpoint, or -1 when it has none. */
+    public int budget(String endpoint) {
+        return budgets.getOrDefault(endpoint, -1);
+    }
+
+    public int getRepeatThreshold() {
+        return repeatThreshold;
+    }
+
+    /** Fails the request when budgets are enforced and it has already run more statements than allowed. */
+    public void checkBudget(String endpoint, StatementStats stats) {
+        int budget = budget(endpoint);
+        if (failOnBudget && budget >= 0 && stats.getStatements() > budget) {
+            throw new IllegalStateException(endpoint + " ran " + stats.getStatements()
+                    + " SQL statements, budget is " + budget + ": " + stats.repeatedShapes(1));
+        }
+    }
+
+    public void complete(String endpoint, StatementStats stats) {
+        EndpointStats endpointStats = endpoints.computeIfAbsent(endpoint, e -> new EndpointStats());
+        endpointStats.requests.increment();
+        endpointStats.statements.add(stats.getStatements());
+        endpointStats.nanos.add(stats.getNanos());
+        endpointStats.maxStatements.accumulateAndGet(stats.getStatements(), Math::max);
+
+        if (stats.getMostRepeatedCount() >= repeatThreshold) {
+            endpointStats.repeatedRequests.increment();
+            endpointStats.lastRepeatedShape = stats.getMostRepeatedCount() + "x " + stats.getMostRepeatedShape();
+            logger.warn("Possible N+1 in {}: {}", endpoint, stats.repeatedShapes(repeatThreshold));
+        }
+        int budget = budget(endpoint);
+        if (budget >= 0 && stats.getStatements() > budget) {
+            endpointStats.overBudget.increment();
+            logger.warn("{} ran {} SQL statements, budget is {}", endpoint, stats.getStatements(), budget);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> byEndpoint = new TreeMap<>();
+        endpoints.forEach((endpoint, stats) -> {
+            long requests = stats.requests.sum();
+            long statements = stats.statements.sum();
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("requests", requests);
+            entry.put("statements", statements);
+            entry.put("avgStatements", requests == 0 ? 0.0 : (double) statements / requests);
+            entry.put("maxStatements", stats.maxStatements.get());
+            entry.put("dbMillis", TimeUnit.NANOSECONDS.toMillis(stats.nanos.sum()));
+            entry.put("repeatedRequests", stats.repeatedRequests.sum());
+            entry.put("lastRepeatedShape", stats.lastRepeatedShape);
+            entry.put("budget", budget(endpoint));
+            entry.put("overBudget", stats.overBudget.sum());
+            byEndpoint.put(endpoint, entry);
+        });
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("repeatThreshold", repeatThreshold);
+        metrics.put("failOnBudget", failOnBudget);
+        metrics.put("endpoints", byEndpoint);
+        return metrics;
+    }
+
+    private static final class EndpointStats {
+        final LongAdder requests = new LongAdder();
+        final LongAdder statements = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final AtomicLong maxStatements = new AtomicLong();
+        final LongAdder repeatedRequests = new LongAdder();
+        final LongAdder overBudget = new LongAdder();
+        volatile String lastRepeatedShape;
+    }
+}
@@ -0,0 +1,273 @@
+package com.rummy.service;
+
+import com.rummy.model.FraudReportStatus;
+import com.rummy.model.KycStatus;
+import com.rummy.repository.FraudReportRepository;
+import com.rummy.repository.KycDocumentRepository;
+import com.rummy.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Counts of users by KYC status, KYC documents by verification status and fraud
+ * reports by status, kept in memory for the ops dashboard. The services that
+ * change a status report the transition here once it commits, along with a
+ * per-minute series of transitions into each status.
+ *
+ * <p>Transitions made on other nodes and direct database edits are not seen,
+ * so the counts are reconciled against {@code GROUP BY} queries every
+ * {@code dashboard.reconcile-interval-ms}. A transaction reporting a transition
+ * holds its category's commit lock from just before it commits until its count
+ * is applied, and reconciliation takes that lock exclusively around the query
+ * and the reset. A transition is then either committed and counted before the
+ * query runs, or committed after the reset and counted on top of it, never both.
+ * Status-changing commits in a category wait for the length of its query.
+ */
+@Service
+public class StatusCounterService {
+    private static final Logger logger = LoggerFactory.getLogger(StatusCounterService.class);
+
+    public enum Category {
+        USER_KYC,
+        KYC_DOCUMENT,
+        FRAUD_REPORT
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KycDocumentRepository kycDocumentRepository;
+
+    @Autowired
+    private FraudReportRepository fraudReportRepository;
+
+    @Value("${dashboard.transition-minutes:1440}")
+    private int transitionMinutes;
+
+    private final Map<Category, StatusCounts<?>> counts = new HashMap<>();
+    private final AtomicLong reconciliations = new AtomicLong();
+    private final AtomicLong driftCorrected = new AtomicLong();
+    private volatile long lastReconciledMillis;
+    private volatile long lastReconcileMicros;
+
+    @PostConstruct
+    public void init() {
+        counts.put(Category.USER_KYC, new StatusCounts<>(KycStatus.class, transitionMinutes));
+        counts.put(Category.KYC_DOCUMENT, new StatusCounts<>(KycStatus.class, transitionMinutes));
+        counts.put(Category.FRAUD_REPORT, new StatusCounts<>(FraudReportStatus.class, transitionMinutes));
+    }
+
+    /** Records a user's KYC status change after commit; {@code from} is null for a new user. */
+    public void userKycChangedAfterCommit(KycStatus from, KycStatus to) {
+        transitionAfterCommit(Category.USER_KYC, from, to, 1);
+    }
+
+    /** Records a document's verification status change after commit; {@code from} is null for an upload. */
+    public void documentChangedAfterCommit(KycStatus from, KycStatus to) {
+        transitionAfterCommit(Category.KYC_DOCUMENT, from, to, 1);
+    }
+
+    /** Records {@code reports} fraud reports moving between statuses after commit; {@code from} is null for new ones. */
+    public void reportsChangedAfterCommit(FraudReportStatus from, FraudReportStatus to, int reports) {
+        transitionAfterCommit(Category.FRAUD_REPORT, from, to, reports);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${dashboard.reconcile-interval-ms:60000}",
+            initialDelayString = "${dashboard.reconcile-interval-ms:60000}")
+    public synchronized void reconcile() {
+        long start = System.nanoTime();
+        long drift = reconcile(Category.USER_KYC, userRepository::countGroupedByKycStatus)
+                + reconcile(Category.KYC_DOCUMENT, kycDocumentRepository::countGroupedByVerificationStatus)
+                + reconcile(Category.FRAUD_REPORT, fraudReportRepository::countGroupedByStatus);
+        // The first run loads the counts, so only later runs measure drift
+        if (reconciliations.getAndIncrement() > 0 && drift > 0) {
+            driftCorrected.addAndGet(drift);
+            logger.info("Status counters were off by {} and have been reconciled", drift);
+        }
+        lastReconciledMillis = System.currentTimeMillis();
+        lastReconcileMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+    }
+
+    /** Current counts per category and status. */
+    public Map<String, Object> getCounts() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        for (Category category : Category.values()) {
+            response.put(category.name(), counts.get(category).snapshot());
+        }
+        response.put("reconciledAt", lastReconciledMillis == 0 ? null : Instant.ofEpochMilli(lastReconciledMillis));
+        return response;
+    }
+
+    /** Transitions into each status for the last {@code minutes} minutes, oldest first. */
+    public Map<String, Object> getTransitions(Category category, int minutes) {
+        long currentMinute = System.currentTimeMillis() / TimeUnit.MINUTES.toMillis(1);
+        int span = Math.max(1, Math.min(minutes, transitionMinutes));
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("category", category);
+        response.put("buckets", counts.get(category).transitions(currentMinute - span + 1, currentMinute));
+        return response;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("reconciliations", reconciliations.get());
+        metrics.put("driftCorrected", driftCorrected.get());
+        metrics.put("lastReconcileMicros", lastReconcileMicros);
+        metrics.put("transitionMinutes", transitionMinutes);
+        return metrics;
+    }
+
+    private void transitionAfterCommit(Category category, Enum<?> from, Enum<?> to, int amount) {
+        if (from == to || amount <= 0) {
+            return;
+        }
+        StatusCounts<?> target = counts.get(category);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            target.transition(from, to, amount);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean holding;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                target.commits.readLock().lock();
+                holding = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                target.transition(from, to, amount);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (holding) {
+                    holding = false;
+                    target.commits.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    /** Sets each count to its table value; returns the absolute difference found. */
+    private long reconcile(Category category, Supplier<List<Object[]>> query) {
+        StatusCounts<?> target = counts.get(category);
+        long[] actual = new long[target.size()];
+        target.commits.writeLock().lock();
+        try {
+            for (Object[] row : query.get()) {
+                if (row[0] != null) {
+                    actual[((Enum<?>) row[0]).ordinal()] = (Long) row[1];
+                }
+            }
+            return target.reset(actual);
+        } finally {
+            target.commits.writeLock().unlock();
+        }
+    }
+
+    private static final class StatusCounts<E extends Enum<E>> {
+        private final E[] statuses;
+        private final AtomicLongArray current;
+        // Ring of per-minute rows; minuteOf[slot] says which minute a row holds
+        private final long[] minuteOf;
+        private final long[][] into;
+        // Shared by commits reporting a transition, exclusive while reconciling
+        final ReentrantReadWriteLock commits = new ReentrantReadWriteLock();
+
+        StatusCounts(Class<E> type, int minutes) {
+            statuses = type.getEnumConstants();
+            current = new AtomicLongArray(statuses.length);
+            minuteOf = new long[minutes];
+            into = new long[minutes][statuses.length];
+            Arrays.fill(minuteOf, -1);
+        }
+
+        void transition(Enum<?> from, Enum<?> to, int amount) {
+            // Held against reset so a transition is never half-applied when the counts are replaced
+            synchronized (current) {
+                if (from != null) {
+                    current.addAndGet(from.ordinal(), -amount);
+                }
+                if (to != null) {
+                    current.addAndGet(to.ordinal(), amount);
+                }
+            }
+            if (to != null) {
+                long minute = System.currentTimeMillis() / TimeUnit.MINUTES.toMillis(1);
+                int slot = (int) (minute % minuteOf.length);
+                synchronized (into) {
+                    if (minuteOf[slot] != minute) {
+                        minuteOf[slot] = minute;
+                        Arrays.fill(into[slot], 0);
+                    }
+                    into[slot][to.ordinal()] += amount;
+                }
+            }
+        }
+
+        int size() {
+            return statuses.length;
+        }
+
+        /** Replaces the counts with {@code actual}; returns the absolute difference from the old ones. */
+        long reset(long[] actual) {
+            long drift = 0;
+            synchronized (current) {
+                for (int i = 0; i < actual.length; i++) {
+                    drift += Math.abs(actual[i] - current.getAndSet(i, actual[i]));
+                }
+            }
+            return drift;
+        }
+
+        Map<String, Long> snapshot() {
+            Map<String, Long> snapshot = new LinkedHashMap<>();
+            for (int i = 0; i < statuses.length; i++) {
+                snapshot.put(statuses[i].name(), current.get(i));
+            }
+            return snapshot;
+        }
+
+        List<Map<String, Object>> transitions(long fromMinute, long toMinute) {
+            List<Map<String, Object>> buckets = new ArrayList<>((int) (toMinute - fromMinute + 1));
+            synchronized (into) {
+                for (long minute = fromMinute; minute <= toMinute; minute++) {
+                    int slot = (int) (minute % minuteOf.length);
+                    Map<String, Object> bucket = new LinkedHashMap<>();
+                    bucket.put("minute", Instant.ofEpochSecond(minute * 60));
+                    for (int i = 0; i < statuses.length; i++) {
+                        bucket.put(statuses[i].name(), minuteOf[slot] == minute ? into[slot][i] : 0L);
+                    }
+                    buckets.add(bucket);
+                }
+            }
+            return buckets;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.rummy.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache split into access-ordered stripes, each with its own lock and
+ * an equal share of the capacity. Eviction is least recently used within a
+ * stripe, which is close enough to global LRU for hashed ids, and concurrent
+ * callers only contend when their keys land in the same stripe.
+ */
+final class StripedLruCache<K, V> {
+    private final Stripe<K, V>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    StripedLruCache(int capacity, int concurrency) {
+        int count = Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1;
+        stripes = new Stripe[count];
+        int perStripe = Math.max(1, (capacity + count - 1) / count);
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>(perStripe);
+        }
+    }
+
+    V get(K key) {
+        Stripe<K, V> stripe = stripeOf(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    void put(K key, V value) {
+        Stripe<K, V> stripe = stripeOf(key);
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    void remove(K key) {
+        Stripe<K, V> stripe = stripeOf(key);
+        synchronized (stripe) {
+            stripe.remove(key);
+        }
+    }
+
+    void clear() {
+        for (Stripe<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private Stripe<K, V> stripeOf(K key) {
+        int hash = key.hashCode();
+        // Spreads sequential ids over the stripes
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        return stripes[(hash ^ hash >>> 16) & (stripes.length - 1)];
+    }
+
+    private static final class Stripe<K, V> extends LinkedHashMap<K, V> {
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(Math.min(capacity, 1024), 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.rummy.service;
+
+import com.rummy.game.Cards;
+import com.rummy.game.GameTable;
+import com.rummy.game.Hand;
+import com.rummy.game.SeatedTable;
+import com.rummy.game.TableEventLog;
+import com.rummy.game.TableEventLoop;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs tables formed by matchmaking on a fixed set of event loops, one thread
+ * per core. Each table lives on exactly one loop; moves are routed there and
+ * persisted to that loop's event log instead of going through JPA.
+ */
+@Service
+public class TableRuntimeService implements MatchmakingService.TableListener, TableEventLoop.Listener {
+    private static final Logger logger = LoggerFactory.getLogger(TableRuntimeService.class);
+
+    @Autowired
+    private MatchmakingService matchmakingService;
+
+    @Autowired
+    private PushService pushService;
+
+    @Autowired
+    private ShuffleService shuffleService;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Value("${tables.event-loops:0}")
+    private int loopCount;
+
+    @Value("${tables.log-dir:data/tables}")
+    private String logDir;
+
+    @Value("${tables.log.buffer-bytes:1048576}")
+    private int logBufferBytes;
+
+    @Value("${tables.log.fsync:true}")
+    private boolean fsync;
+
+    @Value("${tables.snapshot.every-events:100000}")
+    private long snapshotEveryEvents;
+
+    @Value("${tables.snapshot.every-ms:60000}")
+    private long snapshotEveryMillis;
+
+    @Value("${tables.operation-timeout-ms:2000}")
+    private long operationTimeoutMillis;
+
+    private TableEventLoop[] loops;
+    private final ConcurrentHashMap<Long, TableEventLoop> tableLoops = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, SeatedTable> seatedTables = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        int count = loopCount > 0 ? loopCount : Runtime.getRuntime().availableProcessors();
+        loops = new TableEventLoop[count];
+        List<CompletableFuture<Void>> recovered = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TableEventLog log = new TableEventLog(Paths.get(logDir, "loop-" + i), logBufferBytes, fsync);
+            loops[i] = new TableEventLoop(i, log, this, snapshotEveryEvents, snapshotEveryMillis);
+            recovered.add(loops[i].start());
+        }
+        CompletableFuture.allOf(recovered.toArray(new CompletableFuture[0])).join();
+        // Ids restart from the highest one still on disk: live tables in the loops, finished ones in the audit log
+        long highest = shuffleService.getLastDealtTableId();
+        for (Long tableId : tableLoops.keySet()) {
+            highest = Math.max(highest, tableId);
+        }
+        matchmakingService.reserveTableIds(highest);
+        // Deals whose table never reached a log will not resume, so their seeds can be published
+        shuffleService.revealAllExcept(tableLoops.keySet());
+        matchmakingService.addTableListener(this);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (TableEventLoop loop : loops) {
+            loop.stop();
+        }
+    }
+
+    @Override
+    public void onTableFormed(SeatedTable seated) {
+        long tableId = seated.getTableId();
+        long[] userIds = seated.getUserIds();
+        TableEventLoop loop = loops[(int) (tableId % loops.length)];
+        if (tableLoops.putIfAbsent(tableId, loop) != null) {
+            // Never attach new players to a live game that already holds the id
+            logger.error("Table id {} is already in use; releasing its players", tableId);
+            matchmakingService.release(seated);
+            return;
+        }
+        seatedTables.put(tableId, seated);
+        byte[] deck;
+        try {
+            deck = shuffleService.deal(tableId, userIds);
+        } catch (RuntimeException e) {
+            abandon(loop, seated);
+            throw e;
+        }
+        loop.submit(tableId, true, (table, sink) -> {
+            table.create(seated.getStake(), userIds, sink);
+            table.deal(deck, sink);
+            pushTableUpdate(table, sink);
+            return null;
+        }).whenComplete((result, error) -> {
+            if (error instanceof TableEventLoop.NotPersistedException) {
+                // The deal may be on disk and resume after a restart, so its seed stays secret
+                logger.error("Table {} may not have been persisted", tableId, error);
+            } else if (error != null) {
+                logger.error("Could not start table {}", tableId, error);
+                abandon(loop, seated);
+            }
+        });
+    }
+
+    /** Runs on the loop thread while it recovers; puts live tables' players back in their seats. */
+    @Override
+    public void onRecovered(TableEventLoop loop, GameTable table) {
+        tableLoops.put(table.getTableId(), loop);
+        if (table.isFinished()) {
+            // Finished just before a crash; settle it unless that already happened
+            long winnerId = table.getUserIds()[table.getWinnerSeat()];
+            long winnings = winnings(table);
+            if (shuffleService.revealResult(table.getTableId(), winnerId, winnings) && winnings > 0) {
+                leaderboardService.creditWinnings(winnerId, winnings);
+            }
+        } else {
+            SeatedTable seated = new SeatedTable(table.getTableId(), table.getStake(), table.getUserIds(),
+                    System.currentTimeMillis());
+            seatedTables.put(table.getTableId(), seated);
+            matchmakingService.restoreSeated(seated);
+        }
+    }
+
+    @Override
+    public void onTableEvicted(TableEventLoop loop, GameTable table) {
+        tableLoops.remove(table.getTableId(), loop);
+    }
+
+    public Map<String, Object> getTable(Long tableId, Long userId) {
+        return call(tableId, (table, sink) -> view(table, userId));
+    }
+
+    public Map<String, Object> draw(Long tableId, Long userId, boolean fromDiscard) {
+        return call(tableId, (table, sink) -> {
+            int card = table.draw(userId, fromDiscard, sink);
+            pushTableUpdate(table, sink);
+            Map<String, Object> response = view(table, userId);
+            response.put("drawn", Cards.toString(card));
+            return response;
+        });
+    }
+
+    public Map<String, Object> discard(Long tableId, Long userId, String card) {
+        int parsed = Cards.parse(card);
+        return call(tableId, (table, sink) -> {
+            table.discard(userId, parsed, sink);
+            pushTableUpdate(table, sink);
+            return view(table, userId);
+        });
+    }
+
+    public Map<String, Object> declare(Long tableId, Long userId, String card) {
+        int parsed = Cards.parse(card);
+        return call(tableId, (table, sink) -> {
+            boolean valid = table.declare(userId, parsed, sink);
+            releaseIfFinished(table, sink);
+            pushTableUpdate(table, sink);
+            Map<String, Object> response = view(table, userId);
+            response.put("validDeclaration", valid);
+            return response;
+        });
+    }
+
+    public Map<String, Object> drop(Long tableId, Long userId) {
+        return call(tableId, (table, sink) -> {
+            table.drop(userId, sink);
+            releaseIfFinished(table, sink);
+            pushTableUpdate(table, sink);
+            return view(table, userId);
+        });
+    }
+
+    public Map<String, Object> getMetrics() {
+        List<Map<String, Object>> perLoop = new ArrayList<>();
+        for (TableEventLoop loop : loops) {
+            Map<String, Object> metrics = new HashMap<>();
+            metrics.put("loop", loop.getIndex());
+            metrics.put("running", loop.isRunning());
+            metrics.put("tables", loop.getTableCount());
+            metrics.put("operationsProcessed", loop.getOperationsProcessed());
+            metrics.put("eventsWritten", loop.getEventsWritten());
+            metrics.put("recoveryMillis", loop.getRecoveryMillis());
+            perLoop.add(metrics);
+        }
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("loops", perLoop);
+        metrics.put("activeTables", tableLoops.size());
+        metrics.put("shuffle", shuffleService.getMetrics());
+        return metrics;
+    }
+
+    /**
+     * Tells every player at the table that it changed once the change is on disk;
+     * clients fetch their own view. The payload is taken now, since a later
+     * operation in the same batch may move the table on.
+     */
+    private void pushTableUpdate(GameTable table, TableEventLoop.OperationSink sink) {
+        long[] userIds = table.getUserIds();
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("tableId", table.getTableId());
+        payload.put("seq", table.getSeq());
+        payload.put("currentTurnUserId", userIds[table.getCurrentSeat()]);
+        payload.put("finished", table.isFinished());
+        int top = table.getTopDiscard();
+        payload.put("topDiscard", top < 0 ? null : Cards.toString(top));
+        sink.afterFlush(() -> pushService.publish(userIds, "TABLE_UPDATED", payload));
+    }
+
+    /**
+     * Settles a finished table once its finish is on disk. Revealing the seed any
+     * earlier would expose the deck of a game that resumes after a crash.
+     */
+    private void releaseIfFinished(GameTable table, TableEventLoop.OperationSink sink) {
+        if (!table.isFinished()) {
+            return;
+        }
+        long tableId = table.getTableId();
+        long winnerId = table.getUserIds()[table.getWinnerSeat()];
+        long winnings = winnings(table);
+        sink.afterFlush(() -> {
+            // Recorded with the reveal first, so the winnings boards survive a restart
+            shuffleService.revealResult(tableId, winnerId, winnings);
+            if (winnings > 0) {
+                leaderboardService.creditWinnings(winnerId, winnings);
+            }
+            SeatedTable seated = seatedTables.remove(tableId);
+            if (seated != null) {
+                matchmakingService.release(seated);
+            }
+        });
+    }
+
+    /** The winner takes every other player's stake. */
+    private static long winnings(GameTable table) {
+        return table.getStake() * (table.getUserIds().length - 1);
+    }
+
+    private void abandon(TableEventLoop loop, SeatedTable seated) {
+        tableLoops.remove(seated.getTableId(), loop);
+        seatedTables.remove(seated.getTableId(), seated);
+        matchmakingService.release(seated);
+        shuffleService.reveal(seated.getTableId());
+    }
+
+    private <T> T call(Long tableId, TableEventLoop.TableOperation<T> operation) {
+        TableEventLoop loop = tableLoops.get(tableId);
+        if (loop == null) {
+            throw new IllegalArgumentException("Table not found");
+        }
+        try {
+            return loop.submit(tableId, false, operation).get(operationTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Table operation failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Table " + tableId + " did not respond in time", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for table " + tableId, e);
+        }
+    }
+
+    /** Builds the player's view of the table; runs on the table's loop thread. */
+    private static Map<String, Object> view(GameTable table, Long userId) {
+        int seat = table.seatOf(userId);
+        long[] userIds = table.getUserIds();
+        Map<String, Object> view = new HashMap<>();
+        view.put("tableId", table.getTableId());
+        view.put("stake", table.getStake());
+        view.put("players", userIds);
+        view.put("status", switch (table.getStatus()) {
+            case GameTable.STATUS_PLAYING -> "PLAYING";
+            case GameTable.STATUS_FINISHED -> "FINISHED";
+            default -> "WAITING_DEAL";
+        });
+        view.put("currentTurnUserId", userIds[table.getCurrentSeat()]);
+        view.put("hasDrawn", table.hasDrawn());
+        view.put("wildRank", table.getWildRank());
+        int top = table.getTopDiscard();
+        view.put("topDiscard", top < 0 ? null : Cards.toString(top));
+        Hand hand = table.getHand(seat);
+        view.put("hand", hand.toString().isEmpty() ? List.of() : List.of(hand.toString().split(" ")));
+        if (table.isFinished()) {
+            Map<Long, Integer> scores = new HashMap<>();
+            for (int i = 0; i < userIds.length; i++) {
+                scores.put(userIds[i], table.getScore(i));
+            }
+            view.put("scores", scores);
+            view.put("winnerUserId", userIds[table.getWinnerSeat()]);
+        }
+        return view;
+    }
+}
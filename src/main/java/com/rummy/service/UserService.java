@@ -3,11 +3,13 @@ package com.rummy.service;
 import com.rummy.dto.UserRegistrationDto;
 import com.rummy.dto.UserLoginDto;
 import com.rummy.dto.UserProfileDto;
+import com.rummy.model.KycStatus;
+import com.rummy.model.OutboxEventType;
 import com.rummy.model.User;
 import com.rummy.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 
-import org.springframework.security.core.AuthenticationException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,11 +17,18 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Random;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import com.rummy.exception.UserServiceException;
 
 @Service
@@ -39,6 +48,53 @@ public class UserService {
     @Autowired
     private SmsService smsService;
 
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private PlayerEligibilityCache playerEligibilityCache;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Autowired
+    private StatusCounterService statusCounterService;
+
+    @Autowired
+    private EligibilityIndexService eligibilityIndexService;
+
+    @Value("${users.batch.max-ids:500}")
+    private int maxBatchIds;
+
+    @Value("${users.batch.chunk-size:100}")
+    private int batchChunkSize;
+
+    @Value("${users.batch.username-cache-size:200000}")
+    private int usernameCacheSize;
+
+    // Enough that concurrent batch lookups rarely wait on each other
+    private static final int USERNAME_CACHE_STRIPES = 16;
+
+    // Usernames for batch lookups; the rest of a summary comes from the eligibility snapshot
+    private StripedLruCache<Long, String> usernames;
+
+    @PostConstruct
+    public void init() {
+        usernames = new StripedLruCache<>(usernameCacheSize, USERNAME_CACHE_STRIPES);
+        clusterCoordinator.subscribe("user", new ClusterCoordinator.Subscriber() {
+            @Override
+            public void onInvalidate(List<Long> ids) {
+                ids.forEach(usernames::remove);
+            }
+
+            @Override
+            public void onReset() {
+                usernames.clear();
+            }
+        });
+    }
+
+    @Transactional
     public User registerUser(UserRegistrationDto registrationDto, HttpServletRequest request) {
         // Validate if passwords match
         if (!registrationDto.getPassword().equals(registrationDto.getConfirmPassword())) {
@@ -67,7 +123,17 @@ public class UserService {
         // Log OTP assignment
         smsService.sendOtp(user.getMobileNumber(), defaultOtp);
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        playerEligibilityCache.refreshAfterCommit(savedUser);
+        statusCounterService.userKycChangedAfterCommit(null, savedUser.getKycStatus());
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("userId", savedUser.getId());
+        payload.put("username", savedUser.getUsername());
+        payload.put("mobileNumber", savedUser.getMobileNumber());
+        outboxService.record(savedUser.getId(), OutboxEventType.USER_REGISTERED, payload);
+
+        return savedUser;
     }
 
     public boolean verifyOTP(String mobileNumber, String otp) {
@@ -83,6 +149,7 @@ public class UserService {
         user.setOtp(null);
         user.setOtpExpiryTime(null);
         userRepository.save(user);
+        playerEligibilityCache.refreshAfterCommit(user);
         return true;
     }
 
@@ -91,12 +158,10 @@ public class UserService {
         return String.format("%06d", random.nextInt(1000000));
     }
 
+    // Tomcat's RemoteIpValve (server.forward-headers-strategy=native) resolves X-Forwarded-For, but only when
+    // the connection comes from a trusted proxy; anyone else could pick a fresh address for every attempt
     private String getClientIp(HttpServletRequest request) {
-        String xfHeader = request.getHeader("X-Forwarded-For");
-        if (xfHeader == null) {
-            return request.getRemoteAddr();
-        }
-        return xfHeader.split(",")[0];
+        return request.getRemoteAddr();
     }
 
     public void requestLoginOTP(String mobileNumber) {
@@ -116,11 +181,72 @@ public class UserService {
         smsService.sendOtp(mobileNumber, otp);
     }
 
+    public User getUserByUsername(String username) {
+        return userRepository.findByUsername(username)
+            .orElseThrow(() -> new UserServiceException("User not found"));
+    }
+
     public User getUserProfile(Long userId) {
         return userRepository.findById(userId)
             .orElseThrow(() -> new UserServiceException("User not found"));
     }
 
+    /**
+     * Public summaries of up to {@code users.batch.max-ids} users in request
+     * order. Users found in the eligibility snapshot with a cached username cost
+     * no query; the rest are read with one IN-list query per chunk. Unknown ids
+     * are listed under "missing".
+     */
+    public Map<String, Object> getUserSummaries(List<Long> userIds) {
+        LinkedHashSet<Long> ids = new LinkedHashSet<>(userIds);
+        ids.remove(null);
+        if (ids.size() > maxBatchIds) {
+            throw new IllegalArgumentException("At most " + maxBatchIds + " user ids per request");
+        }
+
+        Map<Long, Map<String, Object>> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : ids) {
+            String username = usernames.get(id);
+            PlayerEligibilityCache.Eligibility eligibility = playerEligibilityCache.get(id);
+            if (username != null && eligibility != null) {
+                found.put(id, summary(id, username, eligibility.isVerified(), eligibility.getKycStatus(),
+                        eligibility.getBalance()));
+            } else {
+                misses.add(id);
+            }
+        }
+        int cacheHits = found.size();
+
+        for (int from = 0; from < misses.size(); from += batchChunkSize) {
+            List<Long> chunk = misses.subList(from, Math.min(misses.size(), from + batchChunkSize));
+            List<Object[]> rows = userRepository.findSummariesByIds(chunk);
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                usernames.put(id, (String) row[1]);
+                Double balance = (Double) row[4];
+                found.put(id, summary(id, (String) row[1], (Boolean) row[2], (KycStatus) row[3],
+                        balance == null ? 0.0 : balance));
+            }
+        }
+
+        List<Map<String, Object>> users = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            Map<String, Object> summary = found.get(id);
+            if (summary != null) {
+                users.add(summary);
+            } else {
+                missing.add(id);
+            }
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("users", users);
+        response.put("missing", missing);
+        response.put("cacheHits", cacheHits);
+        return response;
+    }
+
     public User updateUserProfile(Long userId, UserProfileDto profileDto) {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new UserServiceException("User not found"));
@@ -156,13 +282,15 @@ public class UserService {
             smsService.sendOtp(profileDto.getMobileNumber(), otp);
         }
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        playerEligibilityCache.refreshAfterCommit(savedUser);
+        evictUsernameAfterCommit(savedUser.getId());
+        return savedUser;
     }
 
     private static final int MAX_LOGIN_ATTEMPTS = 3;
     private static final long IP_BLOCK_DURATION_MINUTES = 30;
-    private Map<String, Integer> loginAttempts = new HashMap<>();
-    private Map<String, LocalDateTime> blockedIPs = new HashMap<>();
+    private static final long IP_BLOCK_WINDOW_MILLIS = IP_BLOCK_DURATION_MINUTES * 60 * 1000;
 
     @Autowired
     private AuthenticationManager authenticationManager;
@@ -186,59 +314,82 @@ public class UserService {
         return true;
     }
 
-    public Map<String, Object> loginWithCredentials(UserLoginDto loginDto) {
-        User user = userRepository.findByMobileNumber(loginDto.getMobileNumber())
-            .orElseThrow(() -> new UserServiceException("User not found"));
-try{
+    @Transactional
+    public Map<String, Object> loginWithCredentials(UserLoginDto loginDto, HttpServletRequest request) {
+        String clientIp = getClientIp(request);
+        if (isIpBlocked(clientIp)) {
+            throw new UserServiceException("Too many failed login attempts, please try again later");
+        }
+
+        Optional<User> found = userRepository.findByMobileNumber(loginDto.getMobileNumber());
+        if (found.isEmpty()) {
+            recordFailedAttempt(clientIp);
+            throw new UserServiceException("User not found");
+        }
+        User user = found.get();
+
         if (!user.isVerified()) {
             throw new UserServiceException("Mobile number not verified");
         }
 
         // Validate OTP
         if (!defaultOtp.equals(loginDto.getOtp())) {
+            recordFailedAttempt(clientIp);
             throw new UserServiceException("Invalid OTP");
         }
-           
-
-            if (!user.isVerified()) {
-                throw new UserServiceException("Account not verified");
-            }
-
-            // Reset login attempts on successful login
-           
-            userRepository.save(user);
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("userId", user.getId());
-            response.put("username", user.getUsername());
-            response.put("kycStatus", user.getKycStatus());
-            response.put("balance", user.getBalance());
-            return response;
-        } catch (AuthenticationException e) {
-            // recordFailedAttempt(clientIp);
-            throw new UserServiceException("Invalid username or password");
-        }
+        // A login from a blocked address moves the user into BLOCKED_IP in the eligibility index
+        user.setLastLoginIp(clientIp);
+        User savedUser = userRepository.save(user);
+        playerEligibilityCache.refreshAfterCommit(savedUser);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("userId", user.getId());
+        response.put("username", user.getUsername());
+        response.put("kycStatus", user.getKycStatus());
+        response.put("balance", user.getBalance());
+        return response;
     }
 
+    // Failed attempts are counted across all nodes, so spreading them over the cluster does not help
     private void recordFailedAttempt(String clientIp) {
-        int attempts = loginAttempts.getOrDefault(clientIp, 0) + 1;
-        loginAttempts.put(clientIp, attempts);
+        long attempts = clusterCoordinator.increment(loginFailureKey(clientIp), IP_BLOCK_WINDOW_MILLIS);
 
         if (attempts >= MAX_LOGIN_ATTEMPTS) {
-            blockedIPs.put(clientIp, LocalDateTime.now());
-            loginAttempts.remove(clientIp);
+            eligibilityIndexService.blockIp(clientIp, IP_BLOCK_WINDOW_MILLIS);
             throw new UserServiceException("Account locked due to too many failed attempts");
         }
     }
 
     private boolean isIpBlocked(String clientIp) {
-        LocalDateTime blockedTime = blockedIPs.get(clientIp);
-        if (blockedTime != null) {
-            if (LocalDateTime.now().isBefore(blockedTime.plusMinutes(IP_BLOCK_DURATION_MINUTES))) {
-                return true;
-            }
-            blockedIPs.remove(clientIp);
+        return clusterCoordinator.count(loginFailureKey(clientIp), IP_BLOCK_WINDOW_MILLIS) >= MAX_LOGIN_ATTEMPTS;
+    }
+
+    private static String loginFailureKey(String clientIp) {
+        return "login-failures:" + clientIp;
+    }
+
+    private void evictUsernameAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            usernames.remove(userId);
+            return;
         }
-        return false;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                usernames.remove(userId);
+            }
+        });
+    }
+
+    private static Map<String, Object> summary(Long userId, String username, boolean verified, KycStatus kycStatus,
+                                               double balance) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("userId", userId);
+        summary.put("username", username);
+        summary.put("verified", verified);
+        summary.put("kycStatus", kycStatus);
+        summary.put("balance", balance);
+        return summary;
     }
 }
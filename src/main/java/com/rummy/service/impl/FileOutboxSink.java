@@ -0,0 +1,45 @@
+package com.rummy.service.impl;
+
+import com.rummy.model.OutboxEvent;
+import com.rummy.service.OutboxSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = "outbox.sink.type", havingValue = "file", matchIfMissing = true)
+public class FileOutboxSink implements OutboxSink {
+
+    private final Path sinkFile;
+
+    public FileOutboxSink(@Value("${outbox.sink.file:outbox/events.log}") String sinkFile) {
+        this.sinkFile = Paths.get(sinkFile);
+        try {
+            if (this.sinkFile.getParent() != null) {
+                Files.createDirectories(this.sinkFile.getParent());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create outbox sink directory", e);
+        }
+    }
+
+    @Override
+    public synchronized void deliver(Long userId, List<OutboxEvent> events) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(sinkFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (OutboxEvent event : events) {
+                writer.write(event.getId() + "\t" + userId + "\t" + event.getEventType() + "\t" + event.getPayload());
+                writer.newLine();
+            }
+        }
+    }
+}
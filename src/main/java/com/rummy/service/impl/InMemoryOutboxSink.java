@@ -0,0 +1,29 @@
+package com.rummy.service.impl;
+
+import com.rummy.model.OutboxEvent;
+import com.rummy.service.OutboxSink;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = "outbox.sink.type", havingValue = "memory")
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final List<OutboxEvent> delivered = new ArrayList<>();
+
+    @Override
+    public synchronized void deliver(Long userId, List<OutboxEvent> events) {
+        delivered.addAll(events);
+    }
+
+    public synchronized List<OutboxEvent> getDelivered() {
+        return new ArrayList<>(delivered);
+    }
+
+    public synchronized void clear() {
+        delivered.clear();
+    }
+}
@@ -0,0 +1,59 @@
+-- Baseline schema. Written with IF NOT EXISTS so databases previously managed by
+-- ddl-auto=update can be brought under Flyway without a manual baseline.
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGSERIAL PRIMARY KEY,
+    username VARCHAR(255) UNIQUE,
+    mobile_number VARCHAR(255) UNIQUE,
+    password VARCHAR(255),
+    is_verified BOOLEAN NOT NULL DEFAULT FALSE,
+    otp VARCHAR(255),
+    otp_expiry_time TIMESTAMP(6),
+    last_login_ip VARCHAR(255),
+    kyc_status VARCHAR(255),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    balance FLOAT(53)
+);
+
+CREATE TABLE IF NOT EXISTS kyc_documents (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users (id),
+    document_type VARCHAR(255),
+    document_number VARCHAR(255),
+    document_path VARCHAR(255),
+    verification_status VARCHAR(255),
+    verification_remarks VARCHAR(255),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS fraud_reports (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users (id),
+    reason VARCHAR(255) NOT NULL,
+    evidence VARCHAR(255),
+    additional_details VARCHAR(255),
+    report_status VARCHAR(255),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    event_type VARCHAR(255) NOT NULL,
+    payload TEXT,
+    created_at TIMESTAMP(6),
+    published_at TIMESTAMP(6)
+);
+
+-- KycDocumentRepository.findByUser / findByUserAndDocumentType
+CREATE INDEX IF NOT EXISTS idx_kyc_documents_user_type ON kyc_documents (user_id, document_type);
+
+-- FraudReportRepository.findByUser and status filtering
+CREATE INDEX IF NOT EXISTS idx_fraud_reports_user ON fraud_reports (user_id);
+CREATE INDEX IF NOT EXISTS idx_fraud_reports_status ON fraud_reports (report_status);
+
+-- OutboxRelay scans only unpublished rows in id order
+CREATE INDEX IF NOT EXISTS idx_outbox_unpublished ON outbox_events (id) WHERE published_at IS NULL;
@@ -0,0 +1,13 @@
+-- Reviewer preview and thumbnail renditions produced after upload
+ALTER TABLE kyc_documents ADD COLUMN IF NOT EXISTS processing_status VARCHAR(255);
+ALTER TABLE kyc_documents ADD COLUMN IF NOT EXISTS preview_path VARCHAR(255);
+ALTER TABLE kyc_documents ADD COLUMN IF NOT EXISTS thumbnail_path VARCHAR(255);
+ALTER TABLE kyc_documents ADD COLUMN IF NOT EXISTS processing_error VARCHAR(255);
+ALTER TABLE kyc_documents ADD COLUMN IF NOT EXISTS processed_at TIMESTAMP(6);
+
+-- Documents uploaded before the pipeline existed get renditions too
+UPDATE kyc_documents SET processing_status = 'PENDING' WHERE processing_status IS NULL;
+
+-- KycImageService sweeps only unfinished documents
+CREATE INDEX IF NOT EXISTS idx_kyc_documents_unprocessed ON kyc_documents (id)
+    WHERE processing_status IN ('PENDING', 'PROCESSING');
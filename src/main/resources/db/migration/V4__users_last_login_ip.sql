@@ -0,0 +1,2 @@
+-- Looks up the users behind a blocked address for the eligibility index
+CREATE INDEX IF NOT EXISTS idx_users_last_login_ip ON users (last_login_ip);
@@ -0,0 +1,24 @@
+-- Resumable KYC uploads: one row per upload in progress and one per chunk received.
+-- Rows go when the upload completes or is garbage-collected; chunks follow their upload.
+CREATE TABLE IF NOT EXISTS kyc_uploads (
+    id VARCHAR(36) PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users (id),
+    document_type VARCHAR(255) NOT NULL,
+    document_number VARCHAR(255) NOT NULL,
+    file_name VARCHAR(255) NOT NULL,
+    total_size BIGINT NOT NULL,
+    chunk_size INTEGER NOT NULL,
+    chunk_count INTEGER NOT NULL,
+    sha256 VARCHAR(64),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS kyc_upload_chunks (
+    upload_id VARCHAR(36) NOT NULL REFERENCES kyc_uploads (id) ON DELETE CASCADE,
+    chunk_index INTEGER NOT NULL,
+    PRIMARY KEY (upload_id, chunk_index)
+);
+
+CREATE INDEX IF NOT EXISTS idx_kyc_uploads_user ON kyc_uploads (user_id);
+CREATE INDEX IF NOT EXISTS idx_kyc_uploads_updated ON kyc_uploads (updated_at);
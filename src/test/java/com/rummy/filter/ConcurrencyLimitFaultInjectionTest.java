@@ -0,0 +1,214 @@
+package com.rummy.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives {@link ConcurrencyLimitFilter} against a simulated database whose query
+ * latency is injected: a small connection pool that times out waiters, as
+ * Hikari does. Shows the limit backing off while the database is slow, KYC
+ * uploads being shed with 503 and Retry-After while logins still get through,
+ * and the limit recovering once the fault clears.
+ */
+class ConcurrencyLimitFaultInjectionTest {
+    private static final String LOGIN = "/api/users/login";
+    private static final String UPLOAD = "/api/kyc/upload-pan";
+    private static final int CLIENTS = 32;
+    private static final int POOL_SIZE = 8;
+    private static final long POOL_TIMEOUT_MILLIS = 250;
+
+    @Test
+    void onlyOverloadBacksOffTheLimit() throws Exception {
+        ConcurrencyLimitFilter filter = filter(100, 400);
+        AdaptiveConcurrencyLimiter global = filter.getGlobalLimiter();
+
+        for (int i = 0; i < 50; i++) {
+            send(filter, LOGIN, (request, response) ->
+                    ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR));
+        }
+        assertThrows(IllegalStateException.class, () -> send(filter, LOGIN, (request, response) -> {
+            throw new IllegalStateException("bug");
+        }));
+        assertEquals(100, global.getLimit(), "application errors moved the limit");
+
+        send(filter, LOGIN, (request, response) ->
+                ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE));
+        assertEquals(90, global.getLimit());
+        send(filter, LOGIN, (request, response) ->
+                ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT));
+        assertEquals(81, global.getLimit());
+        assertThrows(ServletException.class, () -> send(filter, LOGIN, (request, response) -> {
+            throw new ServletException(new QueryTimeoutException("canceling statement due to statement timeout"));
+        }));
+        assertEquals(72, global.getLimit());
+        // Resolved by Spring MVC into a 500, but still a timeout
+        send(filter, LOGIN, (request, response) -> {
+            request.setAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE,
+                    new TransactionTimedOutException("Transaction timed out"));
+            ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        });
+        assertEquals(65, global.getLimit());
+    }
+
+    @Test
+    void slowDatabaseShedsUploadsBeforeLogin() throws Exception {
+        ConcurrencyLimitFilter filter = filter(32, 64);
+        FaultyDatabase database = new FaultyDatabase();
+        FilterChain backend = (request, response) -> {
+            try {
+                database.query();
+            } catch (SQLTransientConnectionException e) {
+                throw new ServletException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            }
+            ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_OK);
+        };
+
+        String[] phases = {"healthy", "slow database", "recovered"};
+        long[] queryMillis = {2, 40, 2};
+        long[] phaseMillis = {1_500, 3_000, 2_000};
+        Tally[][] tallies = new Tally[phases.length][2];
+        for (Tally[] phase : tallies) {
+            phase[0] = new Tally();
+            phase[1] = new Tally();
+        }
+        int[] lowest = new int[phases.length];
+        int[] limits = new int[phases.length];
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong phase = new AtomicLong();
+        List<Thread> clients = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            int client = c;
+            Thread thread = new Thread(() -> {
+                for (long n = client; running.get(); n++) {
+                    boolean upload = n % 2 == 1;
+                    Tally tally = tallies[(int) phase.get()][upload ? 1 : 0];
+                    try {
+                        MockHttpServletResponse response = send(filter, upload ? UPLOAD : LOGIN, backend);
+                        if (response.getStatus() == HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
+                            tally.shed.incrementAndGet();
+                            assertEquals("2", response.getHeader("Retry-After"));
+                            // A client that honours Retry-After backs off; a scaled-down pause keeps the test short
+                            Thread.sleep(5);
+                        } else {
+                            tally.ok.incrementAndGet();
+                        }
+                    } catch (ServletException e) {
+                        tally.failed.incrementAndGet();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }, "client-" + c);
+            thread.start();
+            clients.add(thread);
+        }
+
+        for (int p = 0; p < phases.length; p++) {
+            database.queryMillis = queryMillis[p];
+            phase.set(p);
+            // The gradient backs off while latency climbs and settles once the long-term average catches up
+            lowest[p] = Integer.MAX_VALUE;
+            long phaseEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(phaseMillis[p]);
+            while (System.nanoTime() < phaseEnd) {
+                lowest[p] = Math.min(lowest[p], filter.getGlobalLimiter().getLimit());
+                Thread.sleep(5);
+            }
+            limits[p] = filter.getGlobalLimiter().getLimit();
+        }
+        running.set(false);
+        for (Thread thread : clients) {
+            thread.join();
+        }
+
+        StringBuilder summary = new StringBuilder();
+        for (int p = 0; p < phases.length; p++) {
+            summary.append(String.format("%n%-14s query %2d ms, global limit %2d (lowest %2d) | login %s | upload %s",
+                    phases[p], queryMillis[p], limits[p], lowest[p], tallies[p][0], tallies[p][1]));
+        }
+        assertTrue(lowest[1] < limits[0], "limit did not back off:" + summary);
+        assertTrue(limits[2] > lowest[1], "limit did not recover:" + summary);
+        Tally login = tallies[1][0];
+        Tally upload = tallies[1][1];
+        assertTrue(upload.shed.get() > 0, "no uploads shed:" + summary);
+        assertTrue(login.ok.get() > 0, "no logins got through:" + summary);
+        assertTrue(login.successRate() > upload.successRate(), "logins fared no better than uploads:" + summary);
+    }
+
+    private static ConcurrencyLimitFilter filter(int initialLimit, int maxLimit) {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter();
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "globalInitialLimit", initialLimit);
+        ReflectionTestUtils.setField(filter, "globalMaxLimit", maxLimit);
+        ReflectionTestUtils.setField(filter, "endpointInitialLimit", initialLimit);
+        ReflectionTestUtils.setField(filter, "endpointMaxLimit", maxLimit);
+        ReflectionTestUtils.setField(filter, "kycUploadMaxLimit", maxLimit / 4);
+        ReflectionTestUtils.setField(filter, "minLimit", 4);
+        ReflectionTestUtils.setField(filter, "retryAfterSeconds", 2);
+        filter.init();
+        return filter;
+    }
+
+    private static MockHttpServletResponse send(ConcurrencyLimitFilter filter, String path, FilterChain chain)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", path), response, chain);
+        return response;
+    }
+
+    /** A connection pool in front of a database whose query latency the test sets. */
+    private static final class FaultyDatabase {
+        private final Semaphore connections = new Semaphore(POOL_SIZE, true);
+        volatile long queryMillis;
+
+        void query() throws SQLTransientConnectionException, InterruptedException {
+            if (!connections.tryAcquire(POOL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Connection is not available, request timed out");
+            }
+            try {
+                Thread.sleep(queryMillis);
+            } finally {
+                connections.release();
+            }
+        }
+    }
+
+    private static final class Tally {
+        final AtomicLong ok = new AtomicLong();
+        final AtomicLong shed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+
+        double successRate() {
+            long total = ok.get() + shed.get() + failed.get();
+            return total == 0 ? 0 : (double) ok.get() / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ok %5d, shed %5d, timed out %4d", ok.get(), shed.get(), failed.get());
+        }
+    }
+}
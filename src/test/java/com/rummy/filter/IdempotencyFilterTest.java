@@ -0,0 +1,161 @@
+package com.rummy.filter;
+
+import com.rummy.repository.IdempotencyRecordRepository;
+import com.rummy.service.IdempotencyService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sends the same keyed request through the filter from two threads while the
+ * first is still executing, and checks that the duplicate waits for it and
+ * replays its response instead of running the endpoint a second time. The
+ * endpoint reads the body through a {@link ReadListener}, as async servlets do.
+ * The key table is faked, since its insert needs PostgreSQL.
+ */
+class IdempotencyFilterTest {
+    private static final String BODY = "{\"userId\":7,\"reason\":\"collusion\"}";
+
+    private IdempotencyFilter idempotencyFilter;
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService();
+        ReflectionTestUtils.setField(idempotencyService, "idempotencyRecordRepository", claimingRepository());
+        ReflectionTestUtils.setField(idempotencyService, "retentionHours", 24L);
+        ReflectionTestUtils.setField(idempotencyService, "cacheSize", 100);
+        ReflectionTestUtils.setField(idempotencyService, "waitTimeoutMillis", 10_000L);
+        ReflectionTestUtils.setField(idempotencyService, "pollIntervalMillis", 100L);
+        ReflectionTestUtils.setField(idempotencyService, "staleClaimMillis", 60_000L);
+        idempotencyService.init();
+
+        idempotencyFilter = new IdempotencyFilter();
+        ReflectionTestUtils.setField(idempotencyFilter, "idempotencyService", idempotencyService);
+        ReflectionTestUtils.setField(idempotencyFilter, "pathSpec", "/api/user/flag-fraud");
+        idempotencyFilter.init();
+    }
+
+    /** Every key is new to the table, so only the in-memory entry can coalesce duplicates. */
+    private static IdempotencyRecordRepository claimingRepository() {
+        return (IdempotencyRecordRepository) Proxy.newProxyInstance(IdempotencyRecordRepository.class.getClassLoader(),
+                new Class<?>[]{IdempotencyRecordRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "insertIfAbsent", "complete", "release" -> 1;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Test
+    void concurrentDuplicatesCoalesceOntoOneExecution() throws Exception {
+        String key = UUID.randomUUID().toString();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch executing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> events = new ArrayList<>();
+        FilterChain endpoint = (request, response) -> {
+            executions.incrementAndGet();
+            String body = readWithListener(request.getInputStream(), events);
+            executing.countDown();
+            try {
+                assertTrue(release.await(10, TimeUnit.SECONDS), "duplicate never started waiting");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            response.setContentType("application/json");
+            response.getOutputStream().write(("{\"flagged\":" + body + "}").getBytes(StandardCharsets.UTF_8));
+        };
+
+        long coalescedBefore = coalesced();
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            Future<MockHttpServletResponse> first = threads.submit(() -> send(key, endpoint));
+            assertTrue(executing.await(10, TimeUnit.SECONDS), "first request never executed");
+            Future<MockHttpServletResponse> second = threads.submit(() -> send(key, endpoint));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (coalesced() == coalescedBefore && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(coalescedBefore + 1, coalesced(), "duplicate did not wait on the running request");
+            release.countDown();
+
+            MockHttpServletResponse executed = first.get(10, TimeUnit.SECONDS);
+            MockHttpServletResponse replayed = second.get(10, TimeUnit.SECONDS);
+            assertEquals(1, executions.get());
+            assertEquals(List.of("onDataAvailable", "onAllDataRead"), events);
+            assertNull(executed.getHeader("Idempotent-Replayed"));
+            assertEquals("true", replayed.getHeader("Idempotent-Replayed"));
+            assertEquals(executed.getStatus(), replayed.getStatus());
+            assertEquals("{\"flagged\":" + BODY + "}", executed.getContentAsString());
+            assertEquals(executed.getContentAsString(), replayed.getContentAsString());
+        } finally {
+            release.countDown();
+            threads.shutdownNow();
+        }
+    }
+
+    private MockHttpServletResponse send(String key, FilterChain endpoint) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/user/flag-fraud");
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        request.setContentType("application/json");
+        request.setContent(BODY.getBytes(StandardCharsets.UTF_8));
+        request.setUserPrincipal(() -> "admin");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        idempotencyFilter.doFilter(request, response, endpoint);
+        return response;
+    }
+
+    private long coalesced() {
+        return ((Number) idempotencyService.getMetrics().get("coalesced")).longValue();
+    }
+
+    private static String readWithListener(ServletInputStream in, List<String> events) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                events.add("onDataAvailable");
+                byte[] buffer = new byte[16];
+                while (in.isReady() && !in.isFinished()) {
+                    int read = in.read(buffer);
+                    if (read > 0) {
+                        body.write(buffer, 0, read);
+                    }
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                events.add("onAllDataRead");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                events.add("onError");
+            }
+        });
+        return body.toString(StandardCharsets.UTF_8);
+    }
+}
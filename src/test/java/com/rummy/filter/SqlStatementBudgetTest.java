@@ -0,0 +1,187 @@
+package com.rummy.filter;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rummy.model.KycDocument;
+import com.rummy.model.KycProcessingStatus;
+import com.rummy.model.User;
+import com.rummy.repository.KycDocumentRepository;
+import com.rummy.repository.UserRepository;
+import com.rummy.service.SqlMonitorService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the budgeted endpoints through the full filter chain with
+ * {@code sql.monitor.fail-on-budget} set, so a request over its budget fails,
+ * and checks the statements counted for each against its budget. Requests
+ * authenticate with HTTP Basic, whose user lookup must not be charged.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SqlStatementBudgetTest {
+    private static final String PASSWORD = "secret-password";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KycDocumentRepository kycDocumentRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private SqlMonitorService sqlMonitorService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${kyc.storage-dir}")
+    private String storageDir;
+
+    @Value("${users.batch.chunk-size}")
+    private int chunkSize;
+
+    private User user;
+    private KycDocument document;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        kycDocumentRepository.deleteAll();
+        userRepository.deleteAll();
+
+        user = new User();
+        user.setUsername("budget-player");
+        user.setMobileNumber("9876543210");
+        user.setPassword(passwordEncoder.encode(PASSWORD));
+        user.setVerified(true);
+        user = userRepository.save(user);
+
+        Path storage = Paths.get(storageDir);
+        Files.createDirectories(storage);
+        Files.write(storage.resolve("budget-preview.jpg"), new byte[] {1, 2, 3});
+        Files.write(storage.resolve("budget-thumbnail.jpg"), new byte[] {4, 5});
+        document = new KycDocument();
+        document.setUser(user);
+        document.setDocumentType("PAN");
+        document.setDocumentNumber("ABCDE1234F");
+        document.setDocumentPath("budget-original.jpg");
+        document.setProcessingStatus(KycProcessingStatus.COMPLETED);
+        document.setPreviewPath("budget-preview.jpg");
+        document.setThumbnailPath("budget-thumbnail.jpg");
+        document = kycDocumentRepository.save(document);
+    }
+
+    @Test
+    void userProfileStaysWithinBudget() throws Exception {
+        assertWithinBudget("GET /api/users/profile/{userId}", "/api/users/profile/" + user.getId());
+    }
+
+    @Test
+    void kycStatusStaysWithinBudget() throws Exception {
+        assertWithinBudget("GET /api/kyc/{userId}/status", "/api/kyc/" + user.getId() + "/status");
+    }
+
+    @Test
+    void documentPreviewStaysWithinBudget() throws Exception {
+        assertWithinBudget("GET /api/kyc/documents/{documentId}/preview",
+                "/api/kyc/documents/" + document.getId() + "/preview");
+    }
+
+    @Test
+    void documentThumbnailStaysWithinBudget() throws Exception {
+        assertWithinBudget("GET /api/kyc/documents/{documentId}/thumbnail",
+                "/api/kyc/documents/" + document.getId() + "/thumbnail");
+    }
+
+    @Test
+    void userSummariesStayWithinBudget() throws Exception {
+        assertWithinBudget("GET /api/users/profiles", "/api/users/profiles?ids=" + user.getId() + ",999999");
+    }
+
+    @Test
+    void userSummariesQueryOncePerChunkOfMisses() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 2 * chunkSize + chunkSize / 2; i++) {
+            User other = new User();
+            other.setUsername("batch-player-" + i);
+            other.setMobileNumber(String.format("91%08d", i));
+            other.setPassword(user.getPassword());
+            users.add(other);
+        }
+        String ids = userRepository.saveAll(users).stream()
+                .map(saved -> saved.getId().toString())
+                .collect(Collectors.joining(","));
+
+        // Cold usernames, then warm ones; either way every miss is read in chunks
+        for (int round = 0; round < 2; round++) {
+            MvcResult result = mockMvc.perform(get("/api/users/profiles?ids=" + ids)
+                            .header(HttpHeaders.AUTHORIZATION, basicAuth()))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            Map<String, Object> body = objectMapper.readValue(result.getResponse().getContentAsString(),
+                    new TypeReference<>() { });
+            int misses = users.size() - (Integer) body.get("cacheHits");
+            int statements = Integer.parseInt(result.getResponse().getHeader("X-SQL-Statements"));
+            assertEquals((misses + chunkSize - 1) / chunkSize, statements,
+                    misses + " misses in chunks of " + chunkSize + " ran " + statements + " statements");
+        }
+    }
+
+    private void assertWithinBudget(String endpoint, String uri) throws Exception {
+        int budget = sqlMonitorService.budget(endpoint);
+        assertTrue(budget >= 0, "no budget configured for " + endpoint);
+
+        MvcResult result = mockMvc.perform(get(uri).header(HttpHeaders.AUTHORIZATION, basicAuth()))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // The header covers the handler; the filter's count also covers serialization
+        int handlerStatements = Integer.parseInt(result.getResponse().getHeader("X-SQL-Statements"));
+        assertTrue(handlerStatements <= budget, endpoint + " ran " + handlerStatements + " statements");
+        Map<String, Object> stats = endpointMetrics(endpoint);
+        long maxStatements = ((Number) stats.get("maxStatements")).longValue();
+        assertTrue(maxStatements <= budget, endpoint + " ran " + maxStatements + " statements, budget " + budget);
+        assertEquals(0L, ((Number) stats.get("overBudget")).longValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> endpointMetrics(String endpoint) {
+        Map<String, Object> endpoints = (Map<String, Object>) sqlMonitorService.getMetrics().get("endpoints");
+        return (Map<String, Object>) endpoints.get(endpoint);
+    }
+
+    private String basicAuth() {
+        String credentials = user.getUsername() + ":" + PASSWORD;
+        return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,77 @@
+package com.rummy.game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decks per millisecond: the shuffle alone from a ready seed, and a fresh DRBG
+ * seed plus the shuffle, which is what the shuffle pool's filler does for each
+ * deck. The shared-DRBG case runs on four threads to show contention on the
+ * seed source. Run with {@code mvn -Pbench test-compile exec:exec -Dbench=DeckShuffler}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeckShufflerBenchmark {
+    private final DeckShuffler shuffler = new DeckShuffler();
+    private final byte[] seed = new byte[DeckShuffler.SEED_BYTES];
+    private final byte[] deck = new byte[GameTable.DECK_SIZE];
+
+    @State(Scope.Benchmark)
+    public static class SeedSource {
+        SecureRandom random;
+
+        @Setup
+        public void setUp() {
+            try {
+                random = SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                random = new SecureRandom();
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        new SecureRandom().nextBytes(seed);
+    }
+
+    @Benchmark
+    public byte[] shuffle() {
+        // Varying the seed keeps every shuffle distinct without paying for fresh entropy
+        seed[0]++;
+        shuffler.shuffle(seed, deck);
+        return deck;
+    }
+
+    @Benchmark
+    public byte[] seedAndShuffle(SeedSource source) {
+        source.random.nextBytes(seed);
+        shuffler.shuffle(seed, deck);
+        return deck;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] seedAndShuffleSharedDrbg(SeedSource source) {
+        source.random.nextBytes(seed);
+        shuffler.shuffle(seed, deck);
+        return deck;
+    }
+}
@@ -0,0 +1,119 @@
+package com.rummy.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Statistical checks on {@link DeckShuffler}. Each of the 53 card values
+ * (52 cards and the joker) appears twice in the deck, so over many shuffles
+ * every value should land in every position with probability 2/106; a
+ * chi-square test over the whole position-by-value table catches a biased
+ * bounded draw or an off-by-one in the Fisher-Yates loop. Seeds come from a
+ * fixed {@link Random}, so the statistic is the same on every run.
+ */
+class DeckShufflerTest {
+    private static final int SHUFFLES = 20_000;
+    private static final int VALUES = Cards.DECK_SIZE + 1;
+    // |z| above this for a correct shuffler has odds of about 1 in 15,000
+    private static final double MAX_Z = 4.0;
+
+    @Test
+    void cardPositionsAreUniform() {
+        DeckShuffler shuffler = new DeckShuffler();
+        Random seeds = new Random(33);
+        byte[] seed = new byte[DeckShuffler.SEED_BYTES];
+        byte[] deck = new byte[GameTable.DECK_SIZE];
+        long[][] counts = new long[GameTable.DECK_SIZE][VALUES];
+        for (int i = 0; i < SHUFFLES; i++) {
+            seeds.nextBytes(seed);
+            shuffler.shuffle(seed, deck);
+            for (int position = 0; position < deck.length; position++) {
+                counts[position][deck[position]]++;
+            }
+        }
+
+        double expected = SHUFFLES * 2.0 / GameTable.DECK_SIZE;
+        double chiSquare = 0;
+        double worstPosition = 0;
+        int worst = -1;
+        for (int position = 0; position < counts.length; position++) {
+            double row = 0;
+            for (long count : counts[position]) {
+                row += (count - expected) * (count - expected) / expected;
+            }
+            chiSquare += row;
+            if (row > worstPosition) {
+                worstPosition = row;
+                worst = position;
+            }
+        }
+        // Every row sums to SHUFFLES, so each position loses one degree of freedom
+        int degrees = GameTable.DECK_SIZE * (VALUES - 1);
+        double z = (chiSquare - degrees) / Math.sqrt(2.0 * degrees);
+        String summary = String.format("chi-square %.1f over %d degrees of freedom (z = %.2f), worst position %d at %.1f",
+                chiSquare, degrees, z, worst, worstPosition);
+        assertTrue(Math.abs(z) < MAX_Z, summary);
+    }
+
+    @Test
+    void firstAndLastDrawsAreUniform() {
+        // The top card comes from the last bounded draw, nextInt(2), and the bottom from the first, nextInt(106)
+        DeckShuffler shuffler = new DeckShuffler();
+        Random seeds = new Random(34);
+        byte[] seed = new byte[DeckShuffler.SEED_BYTES];
+        byte[] deck = new byte[GameTable.DECK_SIZE];
+        long[] top = new long[VALUES];
+        long[] bottom = new long[VALUES];
+        int shuffles = 50_000;
+        for (int i = 0; i < shuffles; i++) {
+            seeds.nextBytes(seed);
+            shuffler.shuffle(seed, deck);
+            top[deck[0]]++;
+            bottom[deck[deck.length - 1]]++;
+        }
+        assertUniform("top card", top, shuffles);
+        assertUniform("bottom card", bottom, shuffles);
+    }
+
+    @Test
+    void sameSeedSameDeckAndEveryCardDealt() {
+        DeckShuffler shuffler = new DeckShuffler();
+        byte[] seed = new byte[DeckShuffler.SEED_BYTES];
+        new Random(35).nextBytes(seed);
+        byte[] first = new byte[GameTable.DECK_SIZE];
+        byte[] second = new byte[GameTable.DECK_SIZE];
+        shuffler.shuffle(seed, first);
+        new DeckShuffler().shuffle(seed, second);
+        assertArrayEquals(first, second);
+
+        int[] copies = new int[VALUES];
+        for (byte card : first) {
+            copies[card]++;
+        }
+        int[] two = new int[VALUES];
+        Arrays.fill(two, 2);
+        assertArrayEquals(two, copies);
+
+        seed[0] ^= 1;
+        shuffler.shuffle(seed, second);
+        assertFalse(Arrays.equals(first, second), "a one-bit change in the seed gave the same deck");
+    }
+
+    private static void assertUniform(String what, long[] counts, int samples) {
+        double expected = samples / (double) counts.length;
+        double chiSquare = 0;
+        for (long count : counts) {
+            chiSquare += (count - expected) * (count - expected) / expected;
+        }
+        int degrees = counts.length - 1;
+        double z = (chiSquare - degrees) / Math.sqrt(2.0 * degrees);
+        assertTrue(Math.abs(z) < MAX_Z, String.format("%s: chi-square %.1f over %d degrees of freedom (z = %.2f)",
+                what, chiSquare, degrees, z));
+    }
+}
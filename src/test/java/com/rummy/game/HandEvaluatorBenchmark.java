@@ -0,0 +1,79 @@
+package com.rummy.game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation cost of 13-card hands dealt from two decks with two printed jokers,
+ * with and without a wild rank, and of checking declarations that are valid.
+ * Run with {@code mvn -Pbench test-compile exec:exec -Dbench=HandEvaluator}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandEvaluatorBenchmark {
+    private static final int HANDS = 4096;
+
+    @Param({"-1", "4"})
+    public int wildRank;
+
+    private HandEvaluator evaluator;
+    private Hand[] dealt;
+    private Hand[] declarations;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        evaluator = new HandEvaluator(wildRank);
+        Random random = new Random(29);
+        int[] deck = new int[2 * Cards.DECK_SIZE + 2];
+        for (int i = 0; i < deck.length; i++) {
+            deck[i] = i < 2 * Cards.DECK_SIZE ? i % Cards.DECK_SIZE : Cards.JOKER;
+        }
+        dealt = new Hand[HANDS];
+        for (int i = 0; i < HANDS; i++) {
+            for (int j = 0; j < HandEvaluator.DECLARATION_SIZE; j++) {
+                int pick = j + random.nextInt(deck.length - j);
+                int card = deck[pick];
+                deck[pick] = deck[j];
+                deck[j] = card;
+            }
+            Hand hand = new Hand();
+            for (int j = 0; j < HandEvaluator.DECLARATION_SIZE; j++) {
+                hand.add(deck[j]);
+            }
+            dealt[i] = hand;
+        }
+        declarations = new Hand[] {
+                Hand.parse("AS 2S 3S 4H 5H 6H 7H 9C 9D 9S JD QD JK"),
+                Hand.parse("QS KS AS 4H 5H 6H 7H 9C 9D 9S JD QD JK"),
+                Hand.parse("2C 3C 4C 5C 6C 7C 8C 9C TC JC QC KC AC"),
+                Hand.parse("TH JH QH KD KS KC 3D 4D JK 7S 7H 7D JK"),
+        };
+    }
+
+    @Benchmark
+    public int evaluateDealtHand() {
+        return evaluator.evaluate(dealt[next++ & (HANDS - 1)]);
+    }
+
+    @Benchmark
+    public boolean checkValidDeclaration() {
+        return evaluator.isValidDeclaration(declarations[next++ & (declarations.length - 1)]);
+    }
+}
@@ -0,0 +1,316 @@
+package com.rummy.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link HandEvaluator} against a brute-force search that tries every
+ * partition of a small hand into melds and deadwood. Hands are drawn from a few
+ * adjacent ranks of two suits so most of them hold melds, with printed jokers
+ * and a wild rank mixed in.
+ */
+class HandEvaluatorTest {
+    private static final int HANDS = 20_000;
+    private static final int MAX_HAND = 9;
+
+    @Test
+    void matchesExhaustiveSearchOnSmallHands() {
+        Random random = new Random(29);
+        for (int i = 0; i < HANDS; i++) {
+            int wildRank = random.nextBoolean() ? Cards.NO_WILD_RANK : random.nextInt(Cards.RANKS);
+            int[] cards = randomHand(random);
+            HandEvaluator evaluator = new HandEvaluator(wildRank);
+            ExhaustiveEvaluator reference = new ExhaustiveEvaluator(wildRank);
+
+            int expected = reference.evaluate(cards);
+            int actual = evaluator.evaluate(Hand.of(cards));
+            String description = describe(cards) + " with wild rank " + wildRank;
+            assertEquals(expected, actual, "deadwood of " + description);
+            assertEquals(reference.declarable, evaluator.isDeclarable(), "declarable " + description);
+        }
+    }
+
+    @Test
+    void acceptsValidDeclarations() {
+        HandEvaluator evaluator = new HandEvaluator();
+        assertTrue(evaluator.isValidDeclaration(Hand.parse("AS 2S 3S 4H 5H 6H 7H 9C 9D 9S JD QD JK")));
+        // Ace high after the king
+        assertTrue(evaluator.isValidDeclaration(Hand.parse("QS KS AS 4H 5H 6H 7H 9C 9D 9S JD QD JK")));
+        assertEquals(0, evaluator.evaluate(Hand.parse("QS KS AS 4H 5H 6H 7H 9C 9D 9S JD QD JK")));
+    }
+
+    @Test
+    void wildCardInItsOwnPlaceKeepsSequencePure() {
+        // Fives are wild: 4S 5S 6S is still pure, 8D 9D + 5H is impure
+        HandEvaluator evaluator = new HandEvaluator(4);
+        assertTrue(evaluator.isValidDeclaration(Hand.parse("4S 5S 6S 8D 9D 5H KC KD KH 2C 3C 4C 5C")));
+    }
+
+    @Test
+    void rejectsDeclarationsWithoutPureSequence() {
+        HandEvaluator evaluator = new HandEvaluator();
+        assertFalse(evaluator.isValidDeclaration(Hand.parse("AS 2S JK 4H 5H JK 7H 7C 9C 9D 9S JD QD")));
+        assertFalse(evaluator.isValidDeclaration(Hand.parse("AS 2S 3S 4H")));
+        // Without a pure sequence every card counts, jokers aside
+        assertEquals(10 + 2 + 4 + 5 + 7 + 7 + 9 + 9 + 9 + 10,
+                evaluator.evaluate(Hand.parse("AS 2S JK 4H 5H JK 7H 7C 9C 9D 9S JD")));
+    }
+
+    private static int[] randomHand(Random random) {
+        int size = 3 + random.nextInt(MAX_HAND - 2);
+        int lowRank = random.nextInt(Cards.RANKS);
+        int firstSuit = random.nextInt(Cards.SUITS);
+        int secondSuit = (firstSuit + 1 + random.nextInt(Cards.SUITS - 1)) % Cards.SUITS;
+        int[] counts = new int[Cards.DECK_SIZE];
+        int jokers = 0;
+        List<Integer> cards = new ArrayList<>(size);
+        while (cards.size() < size) {
+            if (random.nextInt(10) == 0) {
+                if (jokers < 2) {
+                    jokers++;
+                    cards.add(Cards.JOKER);
+                }
+                continue;
+            }
+            int rank = (lowRank + random.nextInt(5)) % Cards.RANKS;
+            int card = Cards.of(random.nextBoolean() ? firstSuit : secondSuit, rank);
+            if (counts[card] < 2) {
+                counts[card]++;
+                cards.add(card);
+            }
+        }
+        return cards.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String describe(int[] cards) {
+        StringBuilder builder = new StringBuilder();
+        for (int card : cards) {
+            builder.append(Cards.toString(card)).append(' ');
+        }
+        return builder.toString().trim();
+    }
+
+    /**
+     * Tries every way of melding the hand: the first unplaced natural card is
+     * either deadwood or melded with any subset of the unplaced cards that forms a
+     * valid set or sequence. Uses the scoring rules {@link HandEvaluator} documents.
+     */
+    private static final class ExhaustiveEvaluator {
+        private static final int MIN_MELD = 3;
+        private static final int MAX_SET = 4;
+        private static final int ACE_HIGH = Cards.RANKS;
+        private static final int NOT_A_MELD = -1;
+        private static final int SET = 0;
+        private static final int IMPURE = 1;
+        private static final int PURE = 2;
+
+        private final int wildRank;
+        private int[] cards;
+        private int totalPoints;
+        private int best;
+        boolean declarable;
+
+        ExhaustiveEvaluator(int wildRank) {
+            this.wildRank = wildRank;
+        }
+
+        int evaluate(int[] hand) {
+            cards = hand;
+            totalPoints = 0;
+            for (int card : cards) {
+                totalPoints += points(card);
+            }
+            best = Integer.MAX_VALUE;
+            declarable = false;
+            place(new boolean[cards.length], 0, 0, 0, 0);
+            return Math.min(best, HandEvaluator.MAX_DEADWOOD);
+        }
+
+        private void place(boolean[] used, int pure, int sequences, int unmelded, int purePoints) {
+            int next = -1;
+            for (int i = 0; i < cards.length; i++) {
+                if (!used[i] && !isJoker(cards[i])) {
+                    next = i;
+                    break;
+                }
+            }
+            if (next < 0) {
+                leaf(used, pure, sequences, unmelded, purePoints);
+                return;
+            }
+            used[next] = true;
+            place(used, pure, sequences, unmelded + points(cards[next]), purePoints);
+
+            List<Integer> free = new ArrayList<>();
+            for (int i = 0; i < cards.length; i++) {
+                if (!used[i]) {
+                    free.add(i);
+                }
+            }
+            for (int subset = 1; subset < 1 << free.size(); subset++) {
+                if (Integer.bitCount(subset) < MIN_MELD - 1) {
+                    continue;
+                }
+                int[] meld = new int[Integer.bitCount(subset) + 1];
+                meld[0] = cards[next];
+                int size = 1;
+                for (int bit = 0; bit < free.size(); bit++) {
+                    if ((subset & (1 << bit)) != 0) {
+                        meld[size++] = cards[free.get(bit)];
+                    }
+                }
+                int kind = classify(meld);
+                if (kind == NOT_A_MELD) {
+                    continue;
+                }
+                for (int bit = 0; bit < free.size(); bit++) {
+                    if ((subset & (1 << bit)) != 0) {
+                        used[free.get(bit)] = true;
+                    }
+                }
+                int meldPoints = 0;
+                for (int card : meld) {
+                    meldPoints += points(card);
+                }
+                place(used, kind == PURE ? pure + 1 : pure, kind == SET ? sequences : sequences + 1, unmelded,
+                        kind == PURE ? purePoints + meldPoints : purePoints);
+                for (int bit = 0; bit < free.size(); bit++) {
+                    if ((subset & (1 << bit)) != 0) {
+                        used[free.get(bit)] = false;
+                    }
+                }
+            }
+            used[next] = false;
+        }
+
+        private void leaf(boolean[] used, int pure, int sequences, int unmelded, int purePoints) {
+            int score;
+            if (pure >= 1 && sequences >= 2) {
+                score = unmelded;
+            } else if (pure >= 1) {
+                score = totalPoints - purePoints;
+            } else {
+                score = totalPoints;
+            }
+            best = Math.min(best, Math.min(score, HandEvaluator.MAX_DEADWOOD));
+            int leftover = 0;
+            for (int i = 0; i < cards.length; i++) {
+                if (!used[i]) {
+                    leftover++;
+                }
+            }
+            if (pure >= 1 && sequences >= 2 && unmelded == 0 && (leftover == 0 || leftover >= MIN_MELD)) {
+                declarable = true;
+            }
+        }
+
+        /** The best use of the cards as one meld: a pure sequence, an impure one, a set, or none. */
+        private int classify(int[] meld) {
+            int sequence = sequenceKind(meld);
+            if (sequence != NOT_A_MELD) {
+                return sequence;
+            }
+            return isSet(meld) ? SET : NOT_A_MELD;
+        }
+
+        private boolean isSet(int[] meld) {
+            if (meld.length > MAX_SET) {
+                return false;
+            }
+            int rank = -1;
+            int suits = 0;
+            for (int card : meld) {
+                if (isJoker(card)) {
+                    continue;
+                }
+                if (rank >= 0 && Cards.rank(card) != rank || (suits & (1 << Cards.suit(card))) != 0) {
+                    return false;
+                }
+                rank = Cards.rank(card);
+                suits |= 1 << Cards.suit(card);
+            }
+            return true;
+        }
+
+        private int sequenceKind(int[] meld) {
+            if (meld.length > Cards.RANKS) {
+                return NOT_A_MELD;
+            }
+            int suit = -1;
+            List<Integer> naturalRanks = new ArrayList<>();
+            List<Integer> wildCards = new ArrayList<>();
+            for (int card : meld) {
+                if (card == Cards.JOKER) {
+                    continue;
+                }
+                if (isJoker(card)) {
+                    wildCards.add(card);
+                    continue;
+                }
+                if (suit >= 0 && Cards.suit(card) != suit) {
+                    return NOT_A_MELD;
+                }
+                suit = Cards.suit(card);
+                naturalRanks.add(Cards.rank(card));
+            }
+            int kind = NOT_A_MELD;
+            for (int start = 0; start + meld.length - 1 <= ACE_HIGH; start++) {
+                int end = start + meld.length - 1;
+                boolean[] filled = new boolean[ACE_HIGH + 1];
+                boolean fits = true;
+                for (int rank : naturalRanks) {
+                    int position = placeIn(rank, start, end);
+                    if (position < 0 || filled[position]) {
+                        fits = false;
+                        break;
+                    }
+                    filled[position] = true;
+                }
+                if (!fits) {
+                    continue;
+                }
+                kind = Math.max(kind, IMPURE);
+                // Pure when every other card is a wild of this suit sitting in its own place
+                boolean pure = wildCards.size() + naturalRanks.size() == meld.length;
+                for (int card : wildCards) {
+                    int position = Cards.suit(card) == suit ? placeIn(Cards.rank(card), start, end) : -1;
+                    if (position < 0 || filled[position]) {
+                        pure = false;
+                        break;
+                    }
+                    filled[position] = true;
+                }
+                if (pure) {
+                    return PURE;
+                }
+            }
+            return kind;
+        }
+
+        /** Position of the rank inside {@code start..end}, the ace either low or high, or -1. */
+        private static int placeIn(int rank, int start, int end) {
+            if (rank >= start && rank <= end) {
+                return rank;
+            }
+            if (rank == 0 && ACE_HIGH >= start && ACE_HIGH <= end) {
+                return ACE_HIGH;
+            }
+            return -1;
+        }
+
+        private boolean isJoker(int card) {
+            return card == Cards.JOKER || wildRank != Cards.NO_WILD_RANK && Cards.rank(card) == wildRank;
+        }
+
+        private int points(int card) {
+            return isJoker(card) ? 0 : Cards.points(Cards.rank(card));
+        }
+    }
+}
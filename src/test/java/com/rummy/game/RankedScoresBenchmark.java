@@ -0,0 +1,112 @@
+package com.rummy.game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leaderboard operations on a board of ten million users: the bulk build at
+ * startup, re-scoring a user, looking up a rank, a rank with five neighbours
+ * either side, and the top 100. Run with
+ * {@code mvn -Pbench test-compile exec:exec -Dbench=RankedScores};
+ * {@code -p users=1000000} in {@code exec.args} tries a smaller board.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RankedScoresBenchmark {
+    private static final int NEIGHBOURS = 5;
+    private static final int TOP = 100;
+
+    @State(Scope.Thread)
+    public static class Input {
+        @Param({"10000000"})
+        public int users;
+
+        long[] ids;
+        double[] values;
+        final SplittableRandom random = new SplittableRandom(34);
+
+        @Setup
+        public void setUp() {
+            ids = new long[users];
+            values = new double[users];
+            for (int i = 0; i < users; i++) {
+                ids[i] = i + 1;
+                // Whole-rupee balances, so many users tie
+                values[i] = random.nextInt(1_000_000);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Board {
+        RankedScores scores;
+        SplittableRandom random;
+        int users;
+        long visited;
+        final RankedScores.Visitor visitor = (rank, userId, score) -> visited += userId;
+
+        @Setup
+        public void setUp(Input input) {
+            users = input.users;
+            random = input.random;
+            scores = new RankedScores(users);
+            scores.build(input.ids, input.values, users);
+            // The board keeps its own copy, so the input can go
+            input.ids = null;
+            input.values = null;
+        }
+
+        long randomUser() {
+            return 1 + random.nextInt(users);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public RankedScores build(Input input) {
+        RankedScores scores = new RankedScores(input.users);
+        scores.build(input.ids, input.values, input.users);
+        return scores;
+    }
+
+    @Benchmark
+    public void update(Board board) {
+        board.scores.set(board.randomUser(), board.random.nextInt(1_000_000));
+    }
+
+    @Benchmark
+    public long rank(Board board) {
+        return board.scores.rank(board.randomUser());
+    }
+
+    @Benchmark
+    public long rankWithNeighbours(Board board) {
+        long rank = board.scores.rank(board.randomUser());
+        board.scores.visit(Math.max(0, rank - NEIGHBOURS), 2 * NEIGHBOURS + 1, board.visitor);
+        return board.visited;
+    }
+
+    @Benchmark
+    public long top(Board board) {
+        board.scores.visit(0, TOP, board.visitor);
+        return board.visited;
+    }
+}
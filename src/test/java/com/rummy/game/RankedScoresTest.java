@@ -0,0 +1,112 @@
+package com.rummy.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks {@link RankedScores} against a sorted list of the same scores after a
+ * bulk build and through a long run of random updates: every user's rank, the
+ * top of the board, and a window of neighbours around sampled users. Scores
+ * come from a small range so ties, which rank by user id, are common.
+ */
+class RankedScoresTest {
+    private static final int USERS = 20_000;
+    private static final int UPDATES = 60_000;
+    private static final int CHECK_EVERY = 5_000;
+    private static final int TOP = 100;
+    private static final int NEIGHBOURS = 5;
+
+    @Test
+    void matchesSortedReferenceThroughUpdates() {
+        Random random = new Random(34);
+        Map<Long, Double> reference = new HashMap<>();
+        long[] ids = new long[USERS];
+        double[] values = new double[USERS];
+        for (int i = 0; i < USERS; i++) {
+            ids[i] = 1 + random.nextInt(10 * USERS);
+            values[i] = random.nextInt(500);
+            // A repeated id keeps its first score, so skip it
+            if (reference.putIfAbsent(ids[i], values[i]) != null) {
+                ids[i] = 0;
+            }
+        }
+        int count = 0;
+        for (int i = 0; i < USERS; i++) {
+            if (ids[i] != 0) {
+                ids[count] = ids[i];
+                values[count] = values[i];
+                count++;
+            }
+        }
+        RankedScores scores = new RankedScores();
+        scores.build(ids, values, count);
+        assertMatches(reference, scores, random);
+
+        for (int i = 1; i <= UPDATES; i++) {
+            long userId = random.nextInt(4) == 0 ? 1 + random.nextInt(10 * USERS) : ids[random.nextInt(count)];
+            if (random.nextBoolean()) {
+                double score = random.nextInt(500);
+                scores.set(userId, score);
+                reference.put(userId, score);
+            } else {
+                double delta = random.nextInt(21) - 10;
+                double expected = reference.merge(userId, delta, Double::sum);
+                assertEquals(expected, scores.add(userId, delta));
+            }
+            if (i % CHECK_EVERY == 0) {
+                assertMatches(reference, scores, random);
+            }
+        }
+    }
+
+    @Test
+    void insertsIntoAnEmptyBoard() {
+        RankedScores scores = new RankedScores();
+        scores.build(new long[0], new double[0], 0);
+        assertEquals(-1, scores.rank(7));
+        scores.add(7, 5);
+        scores.add(3, 5);
+        scores.add(9, 8);
+        // Equal scores rank by user id
+        assertEquals(List.of(9L, 3L, 7L), top(scores, 0, 10));
+        assertEquals(1, scores.rank(3));
+    }
+
+    private static void assertMatches(Map<Long, Double> reference, RankedScores scores, Random random) {
+        List<Long> sorted = new ArrayList<>(reference.keySet());
+        sorted.sort(Comparator.comparing((Long id) -> reference.get(id)).reversed().thenComparing(id -> id));
+        assertEquals(sorted.size(), scores.size());
+        for (int rank = 0; rank < sorted.size(); rank++) {
+            long userId = sorted.get(rank);
+            assertEquals(rank, scores.rank(userId), "rank of user " + userId);
+            assertEquals(reference.get(userId), scores.score(userId));
+        }
+        assertEquals(sorted.subList(0, TOP), top(scores, 0, TOP));
+        for (int sample = 0; sample < 200; sample++) {
+            // Include both ends of the board, where the window is cut short
+            int rank = sample == 0 ? 0 : sample == 1 ? sorted.size() - 1 : random.nextInt(sorted.size());
+            int from = Math.max(0, rank - NEIGHBOURS);
+            int to = Math.min(sorted.size(), rank + NEIGHBOURS + 1);
+            assertEquals(sorted.subList(from, to), top(scores, from, 2 * NEIGHBOURS + 1).subList(0, to - from),
+                    "neighbours of rank " + rank);
+        }
+    }
+
+    private static List<Long> top(RankedScores scores, long from, int limit) {
+        List<Long> visited = new ArrayList<>();
+        long[] expectedRank = {from};
+        scores.visit(from, limit, (rank, userId, score) -> {
+            assertEquals(expectedRank[0]++, rank);
+            visited.add(userId);
+        });
+        return visited;
+    }
+}
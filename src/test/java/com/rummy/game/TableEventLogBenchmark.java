@@ -0,0 +1,86 @@
+package com.rummy.game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one event-loop group commit: appending a batch of move-sized records
+ * and flushing them, with and without fsync. The log lives under {@code target/}
+ * rather than the temp directory, which is often tmpfs where fsync costs nothing.
+ * Run with {@code mvn -Pbench test-compile exec:exec -Dbench=TableEventLog}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableEventLogBenchmark {
+    private static final int PAYLOAD_BYTES = 24;
+    private static final int ROLL_EVERY_BATCHES = 4096;
+
+    @Param({"false", "true"})
+    public boolean fsync;
+
+    @Param({"1", "64"})
+    public int batchSize;
+
+    private Path directory;
+    private TableEventLog log;
+    private ByteBuffer payload;
+    private long seq;
+    private long batches;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path target = Files.createDirectories(Paths.get("target"));
+        directory = Files.createTempDirectory(target, "table-log-bench");
+        log = new TableEventLog(directory, 1 << 20, fsync);
+        log.openNextSegment();
+        payload = ByteBuffer.allocate(PAYLOAD_BYTES);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        log.close();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public long commitBatch() throws IOException {
+        for (int i = 0; i < batchSize; i++) {
+            payload.clear();
+            log.append(i, ++seq, (byte) 1, payload);
+        }
+        log.flush();
+        // Rolling keeps the directory small, as the loop's periodic snapshots do
+        if (++batches % ROLL_EVERY_BATCHES == 0) {
+            log.snapshot(Collections.emptyList());
+        }
+        return seq;
+    }
+}
@@ -0,0 +1,145 @@
+package com.rummy.game;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that side effects registered by table operations wait for the log
+ * flush, and that a loop whose log cannot be flushed stops instead of carrying
+ * on from state that is not on disk.
+ */
+class TableEventLoopTest {
+    private static final long[] PLAYERS = {1, 2};
+
+    @TempDir
+    Path directory;
+
+    private TableEventLog log;
+    private TableEventLoop loop;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        log = new TableEventLog(directory, 1 << 16, false);
+        loop = new TableEventLoop(0, log, new TableEventLoop.Listener() {
+            @Override
+            public void onRecovered(TableEventLoop loop, GameTable table) {
+            }
+
+            @Override
+            public void onTableEvicted(TableEventLoop loop, GameTable table) {
+            }
+        }, Long.MAX_VALUE, Long.MAX_VALUE);
+        loop.start().get(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        loop.stop();
+    }
+
+    @Test
+    void deferredActionsRunOnceTheEventsAreInTheLog() throws Exception {
+        AtomicLong segmentBytes = new AtomicLong(-1);
+        List<String> order = new ArrayList<>();
+        loop.submit(1, true, (table, sink) -> {
+            table.create(10, PLAYERS, sink);
+            sink.afterFlush(() -> {
+                segmentBytes.set(segmentPosition());
+                order.add("action");
+            });
+            order.add("operation");
+            return null;
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("operation", "action"), order);
+        assertTrue(segmentBytes.get() > 0, "action ran before the CREATED event was written");
+    }
+
+    @Test
+    void actionsOfAFailedOperationNeverRun() throws Exception {
+        List<String> ran = new ArrayList<>();
+        ExecutionException failure = assertThrows(ExecutionException.class, () ->
+                loop.submit(1, true, (table, sink) -> {
+                    sink.afterFlush(() -> ran.add("action"));
+                    table.create(10, new long[]{1}, sink);
+                    return null;
+                }).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        assertTrue(ran.isEmpty());
+        assertTrue(loop.isRunning());
+    }
+
+    @Test
+    void failedFlushStopsTheLoopWithoutSideEffects() throws Exception {
+        loop.submit(1, true, (table, sink) -> {
+            table.create(10, PLAYERS, sink);
+            return null;
+        }).get(5, TimeUnit.SECONDS);
+        List<String> ran = new ArrayList<>();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () ->
+                loop.submit(2, true, (table, sink) -> {
+                    table.create(10, PLAYERS, sink);
+                    sink.afterFlush(() -> ran.add("action"));
+                    breakLog();
+                    return null;
+                }).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(TableEventLoop.NotPersistedException.class, failure.getCause());
+        assertTrue(ran.isEmpty(), "side effects ran for a move that was not persisted");
+        awaitStopped();
+        ExecutionException refused = assertThrows(ExecutionException.class, () ->
+                loop.submit(1, false, (table, sink) -> null).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, refused.getCause());
+    }
+
+    private long segmentPosition() {
+        try {
+            return channel().position();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Closes the segment under the log, so every later write to it fails. */
+    private void breakLog() {
+        try {
+            channel().close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private FileChannel channel() {
+        return (FileChannel) ReflectionTestUtils.getField(log, "channel");
+    }
+
+    private void awaitStopped() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (loop.isRunning()) {
+            assertTrue(System.nanoTime() < deadline, "loop kept running after a failed flush");
+            Thread.sleep(10);
+        }
+        assertFalse(loop.isRunning());
+    }
+}
@@ -0,0 +1,135 @@
+package com.rummy.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Eligibility queries over ten million users, next to the same queries on
+ * {@link BitSet}: cash-eligible users (verified and KYC approved) without an
+ * open fraud report or a blocked address, the cardinality of an AND, a union of
+ * the sparse attributes, and flipping one user's attribute. Setup checks every
+ * query's result against the BitSet one before anything is measured. Run with
+ * {@code mvn -Pbench test-compile exec:exec -Dbench=CompressedBitmap}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CompressedBitmapBenchmark {
+    @Param({"10000000"})
+    public int users;
+
+    private CompressedBitmap verified;
+    private CompressedBitmap approved;
+    private CompressedBitmap flagged;
+    private CompressedBitmap blocked;
+    private BitSet verifiedBits;
+    private BitSet approvedBits;
+    private BitSet flaggedBits;
+    private BitSet blockedBits;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        random = new SplittableRandom(43);
+        verifiedBits = new BitSet(users + 1);
+        approvedBits = new BitSet(users + 1);
+        flaggedBits = new BitSet(users + 1);
+        blockedBits = new BitSet(users + 1);
+        for (int id = 1; id <= users; id++) {
+            verifiedBits.set(id, random.nextDouble() < 0.85);
+            // Older users have mostly finished KYC; the newest have barely started
+            approvedBits.set(id, random.nextDouble() < 0.9 * (1 - (double) id / users));
+            flaggedBits.set(id, random.nextDouble() < 0.01);
+            blockedBits.set(id, random.nextDouble() < 0.0005);
+        }
+        verified = build(verifiedBits);
+        approved = build(approvedBits);
+        flagged = build(flaggedBits);
+        blocked = build(blockedBits);
+
+        check("cash eligible", eligibleBits(), eligible().toArray(Integer.MAX_VALUE));
+        check("sparse union", sparseUnionBits(), sparseUnion().toArray(Integer.MAX_VALUE));
+        if (andCardinality() != andCardinalityBits()) {
+            throw new IllegalStateException("AND cardinality differs from BitSet");
+        }
+    }
+
+    private static CompressedBitmap build(BitSet bits) {
+        CompressedBitmap.Builder builder = new CompressedBitmap.Builder();
+        for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+            builder.add(id);
+        }
+        return builder.build();
+    }
+
+    private static void check(String query, BitSet expected, int[] actual) {
+        if (!Arrays.equals(expected.stream().toArray(), actual)) {
+            throw new IllegalStateException(query + " differs from BitSet");
+        }
+    }
+
+    @Benchmark
+    public CompressedBitmap eligible() {
+        return CompressedBitmap.andNot(CompressedBitmap.andNot(CompressedBitmap.and(approved, verified), flagged),
+                blocked);
+    }
+
+    @Benchmark
+    public BitSet eligibleBits() {
+        BitSet result = (BitSet) approvedBits.clone();
+        result.and(verifiedBits);
+        result.andNot(flaggedBits);
+        result.andNot(blockedBits);
+        return result;
+    }
+
+    @Benchmark
+    public long andCardinality() {
+        return CompressedBitmap.andCardinality(approved, verified);
+    }
+
+    @Benchmark
+    public long andCardinalityBits() {
+        BitSet result = (BitSet) approvedBits.clone();
+        result.and(verifiedBits);
+        return result.cardinality();
+    }
+
+    @Benchmark
+    public CompressedBitmap sparseUnion() {
+        return CompressedBitmap.or(flagged, blocked);
+    }
+
+    @Benchmark
+    public BitSet sparseUnionBits() {
+        BitSet result = (BitSet) flaggedBits.clone();
+        result.or(blockedBits);
+        return result;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean flipApproval() {
+        int id = 1 + random.nextInt(users);
+        boolean approve = !approved.contains(id);
+        approved.set(id, approve);
+        return approve;
+    }
+}
@@ -0,0 +1,135 @@
+package com.rummy.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks bitmap operations against {@link BitSet} on random sets whose chunks
+ * range from empty through sparse to full, so both container kinds and the
+ * conversions between them are exercised.
+ */
+class CompressedBitmapTest {
+    private static final int CHUNK = 1 << 16;
+    private static final int CHUNKS = 24;
+    private static final double[] DENSITIES = {0, 0.0005, 0.01, 0.0625, 0.07, 0.5, 0.99, 1};
+
+    @Test
+    void operationsMatchBitSet() {
+        Random random = new Random(43);
+        for (int round = 0; round < 20; round++) {
+            BitSet expectedA = randomSet(random);
+            BitSet expectedB = randomSet(random);
+            CompressedBitmap a = build(expectedA);
+            CompressedBitmap b = incremental(expectedB, random);
+            assertSame(expectedA, a);
+            assertSame(expectedB, b);
+
+            BitSet and = (BitSet) expectedA.clone();
+            and.and(expectedB);
+            assertSame(and, CompressedBitmap.and(a, b));
+            assertEquals(and.cardinality(), CompressedBitmap.andCardinality(a, b));
+
+            BitSet or = (BitSet) expectedA.clone();
+            or.or(expectedB);
+            assertSame(or, CompressedBitmap.or(a, b));
+
+            BitSet andNot = (BitSet) expectedA.clone();
+            andNot.andNot(expectedB);
+            assertSame(andNot, CompressedBitmap.andNot(a, b));
+
+            // Results share nothing with their inputs
+            CompressedBitmap copy = a.copy();
+            CompressedBitmap union = CompressedBitmap.or(a, b);
+            for (int i = 0; i < 1000; i++) {
+                union.remove(random.nextInt(CHUNKS * CHUNK));
+            }
+            assertSame(expectedA, a);
+            assertSame(expectedA, copy);
+        }
+    }
+
+    @Test
+    void chunksConvertBothWaysAsTheyFillAndEmpty() {
+        BitSet expected = new BitSet();
+        CompressedBitmap bitmap = new CompressedBitmap();
+        Random random = new Random(4096);
+        // Crosses the array limit of a chunk in both directions several times
+        for (int i = 0; i < 60_000; i++) {
+            int value = CHUNK + random.nextInt(9000);
+            boolean present = i % 20_000 < 12_000;
+            bitmap.set(value, present);
+            expected.set(value, present);
+            if (i % 997 == 0) {
+                assertSame(expected, bitmap);
+            }
+        }
+        assertSame(expected, bitmap);
+        for (int value = expected.nextSetBit(0); value >= 0; value = expected.nextSetBit(value + 1)) {
+            bitmap.remove(value);
+        }
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    void builderRejectsValuesOutOfOrder() {
+        CompressedBitmap.Builder builder = new CompressedBitmap.Builder().add(5);
+        assertThrows(IllegalArgumentException.class, () -> builder.add(5));
+        assertThrows(IllegalArgumentException.class, () -> new CompressedBitmap().add(-1));
+    }
+
+    private static BitSet randomSet(Random random) {
+        BitSet set = new BitSet();
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            double density = DENSITIES[random.nextInt(DENSITIES.length)];
+            for (int low = 0; low < CHUNK; low++) {
+                if (density == 1 || random.nextDouble() < density) {
+                    set.set(chunk * CHUNK + low);
+                }
+            }
+        }
+        return set;
+    }
+
+    private static CompressedBitmap build(BitSet set) {
+        CompressedBitmap.Builder builder = new CompressedBitmap.Builder();
+        set.stream().forEach(builder::add);
+        return builder.build();
+    }
+
+    /** Adds the values in random order with some removed and added back on the way. */
+    private static CompressedBitmap incremental(BitSet set, Random random) {
+        int[] values = set.stream().toArray();
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+            if (random.nextInt(16) == 0) {
+                bitmap.remove(value);
+                bitmap.add(value);
+            }
+        }
+        return bitmap;
+    }
+
+    private static void assertSame(BitSet expected, CompressedBitmap actual) {
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertArrayEquals(expected.stream().toArray(), actual.toArray(Integer.MAX_VALUE));
+        Random random = new Random(expected.cardinality());
+        for (int i = 0; i < 2000; i++) {
+            int value = random.nextInt(CHUNKS * CHUNK + CHUNK);
+            assertEquals(expected.get(value), actual.contains(value), "contains " + value);
+        }
+    }
+}
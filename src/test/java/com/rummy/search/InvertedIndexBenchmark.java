@@ -0,0 +1,101 @@
+package com.rummy.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency over two million fraud reports, about thirty million postings:
+ * two common terms, a common and a rare term, a phrase, and two OR-ed clauses,
+ * each unfiltered and restricted to open reports from the last quarter of the
+ * date range. Run with {@code mvn -Pbench test-compile exec:exec -Dbench=InvertedIndex};
+ * {@code -p documents=200000} in {@code exec.args} tries a smaller index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class InvertedIndexBenchmark {
+    private static final int WORDS = 20_000;
+    private static final int MINUTES = 525_600;
+    private static final int STATUSES = 4;
+    private static final int OPEN = 1 | 1 << 1;
+    private static final int LIMIT = 200;
+    private static final String[] REASONS = {
+            "Suspected chip dumping to a partner",
+            "Collusion with another player at the table",
+            "Bot play with identical timings",
+            "Multiple accounts from one device",
+            "Abusive chat during the game",
+            "Chip dumping across several tables",
+    };
+
+    @Param({"2000000"})
+    public int documents;
+
+    @Param({"t1 t2", "t1 t900", "\"chip dumping\" t5", "t3 t40 OR t7 t60"})
+    public String query;
+
+    private InvertedIndex index;
+    private InvertedIndex.Query parsed;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(36);
+        String[] words = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            words[i] = "t" + i;
+        }
+        index = new InvertedIndex(documents);
+        List<InvertedIndex.Shard> shards = new ArrayList<>();
+        int perShard = (documents + 3) / 4;
+        for (int from = 1; from <= documents; from += perShard) {
+            InvertedIndex.Shard shard = index.newShard();
+            for (int id = from; id < Math.min(from + perShard, documents + 1); id++) {
+                byte status = (byte) random.nextInt(STATUSES);
+                // Ids are assigned in creation order
+                int minute = (int) ((long) id * MINUTES / documents);
+                shard.add(id, status, minute, REASONS[random.nextInt(REASONS.length)],
+                        text(random, words, 8 + random.nextInt(8)), text(random, words, 6));
+            }
+            shards.add(shard);
+        }
+        index.merge(shards);
+        parsed = InvertedIndex.Query.parse(query);
+    }
+
+    /** Words skewed towards low ids, so a few terms are in a large share of the reports. */
+    private static String text(SplittableRandom random, String[] words, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            double r = random.nextDouble();
+            text.append(i == 0 ? "" : " ").append(words[(int) (WORDS * r * r * r)]);
+        }
+        return text.toString();
+    }
+
+    @Benchmark
+    public InvertedIndex.Hits search() {
+        return index.search(parsed, -1, 0, MINUTES, LIMIT);
+    }
+
+    @Benchmark
+    public InvertedIndex.Hits searchOpenLastQuarter() {
+        return index.search(parsed, OPEN, MINUTES - MINUTES / 4, MINUTES, LIMIT);
+    }
+}
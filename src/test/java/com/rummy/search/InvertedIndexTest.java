@@ -0,0 +1,206 @@
+package com.rummy.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks AND, OR and phrase queries with their status and date filters against
+ * a scan of the same documents, for an index built incrementally and one merged
+ * from shards.
+ */
+class InvertedIndexTest {
+    private static final int DOCUMENTS = 3000;
+    private static final int WORDS = 40;
+    private static final int STATUSES = 4;
+    private static final int MINUTES = 200;
+
+    @Test
+    void randomizedQueriesMatchAScan() {
+        Random random = new Random(36);
+        Document[] documents = new Document[DOCUMENTS + 1];
+        InvertedIndex incremental = new InvertedIndex(16);
+        for (int id = 1; id <= DOCUMENTS; id++) {
+            documents[id] = randomDocument(random);
+            incremental.put(id, documents[id].status, documents[id].minute, documents[id].fields);
+        }
+        // Re-indexing has to drop the old postings
+        for (int i = 0; i < DOCUMENTS / 4; i++) {
+            int id = 1 + random.nextInt(DOCUMENTS);
+            documents[id] = randomDocument(random);
+            incremental.put(id, documents[id].status, documents[id].minute, documents[id].fields);
+        }
+        InvertedIndex merged = new InvertedIndex(DOCUMENTS);
+        List<InvertedIndex.Shard> shards = new ArrayList<>();
+        for (int from = 1; from <= DOCUMENTS; from += 700) {
+            InvertedIndex.Shard shard = merged.newShard();
+            for (int id = from; id < Math.min(from + 700, DOCUMENTS + 1); id++) {
+                shard.add(id, documents[id].status, documents[id].minute, documents[id].fields);
+            }
+            shards.add(shard);
+        }
+        merged.merge(shards);
+        assertEquals(incremental.getPostingCount(), merged.getPostingCount());
+
+        for (int q = 0; q < 2000; q++) {
+            String text = randomQuery(random);
+            int statusMask = random.nextInt(4) == 0 ? -1 : 1 + random.nextInt((1 << STATUSES) - 1);
+            int from = random.nextInt(MINUTES);
+            int to = from + random.nextInt(MINUTES);
+            int limit = 1 + random.nextInt(60);
+
+            List<Integer> expected = scan(documents, text, statusMask, from, to);
+            for (InvertedIndex index : List.of(incremental, merged)) {
+                InvertedIndex.Hits hits = index.search(InvertedIndex.Query.parse(text), statusMask, from, to, limit);
+                assertEquals(expected.size(), hits.getTotal(), text);
+                int[] newest = expected.subList(0, Math.min(limit, expected.size())).stream()
+                        .mapToInt(Integer::intValue).toArray();
+                assertArrayEquals(newest, hits.getDocIds(), text);
+            }
+        }
+    }
+
+    @Test
+    void phrasesMatchInOrderWithinOneField() {
+        InvertedIndex index = new InvertedIndex(16);
+        index.put(1, (byte) 0, 0, "Suspected chip dumping at table 7", null);
+        index.put(2, (byte) 0, 0, "dumping chip", null);
+        index.put(3, (byte) 0, 0, "Suspected chip", "dumping seen in hand history");
+        index.put(4, (byte) 0, 0, "CHIP-DUMPING!", null);
+
+        assertArrayEquals(new int[]{4, 1}, search(index, "\"chip dumping\""));
+        assertArrayEquals(new int[]{4, 3, 2, 1}, search(index, "chip dumping"));
+        assertArrayEquals(new int[]{3, 1}, search(index, "suspected OR \"dumping seen\""));
+        assertArrayEquals(new int[0], search(index, "chip unknownterm"));
+    }
+
+    @Test
+    void statusChangesApplyToFilters() {
+        InvertedIndex index = new InvertedIndex(16);
+        index.put(1, (byte) 0, 10, "collusion");
+        index.put(2, (byte) 0, 20, "collusion");
+        index.setStatus(1, (byte) 2);
+
+        InvertedIndex.Query query = InvertedIndex.Query.parse("collusion");
+        assertArrayEquals(new int[]{2}, index.search(query, 1, 0, 100, 10).getDocIds());
+        assertArrayEquals(new int[]{1}, index.search(query, 1 << 2, 0, 100, 10).getDocIds());
+        assertArrayEquals(new int[]{1}, index.search(query, -1, 0, 20, 10).getDocIds());
+    }
+
+    @Test
+    void queryWithoutTermsIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> InvertedIndex.Query.parse(" OR \"\" ?! "));
+    }
+
+    private static int[] search(InvertedIndex index, String text) {
+        return index.search(InvertedIndex.Query.parse(text), -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 100)
+                .getDocIds();
+    }
+
+    private static Document randomDocument(Random random) {
+        String[] fields = new String[1 + random.nextInt(3)];
+        for (int f = 0; f < fields.length; f++) {
+            if (random.nextInt(8) == 0) {
+                continue;
+            }
+            StringBuilder text = new StringBuilder();
+            int words = 1 + random.nextInt(8);
+            for (int w = 0; w < words; w++) {
+                text.append(w == 0 ? "" : random.nextBoolean() ? " " : ", ").append(word(random));
+            }
+            fields[f] = random.nextBoolean() ? text.toString() : text.toString().toUpperCase();
+        }
+        return new Document((byte) random.nextInt(STATUSES), random.nextInt(MINUTES), fields);
+    }
+
+    /** Skewed so that some words are common and some rare. */
+    private static String word(Random random) {
+        return "w" + (int) (WORDS * Math.pow(random.nextDouble(), 2));
+    }
+
+    private static String randomQuery(Random random) {
+        StringBuilder text = new StringBuilder();
+        int clauses = 1 + random.nextInt(3);
+        for (int c = 0; c < clauses; c++) {
+            if (c > 0) {
+                text.append(" OR ");
+            }
+            int parts = 1 + random.nextInt(3);
+            for (int p = 0; p < parts; p++) {
+                if (random.nextInt(3) == 0) {
+                    text.append('"').append(word(random)).append(' ').append(word(random)).append("\" ");
+                } else {
+                    text.append(word(random)).append(' ');
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    /** Matching ids, newest first, found by checking every document. */
+    private static List<Integer> scan(Document[] documents, String text, int statusMask, int from, int to) {
+        List<Integer> matches = new ArrayList<>();
+        for (int id = documents.length - 1; id >= 1; id--) {
+            Document document = documents[id];
+            if (statusMask != -1 && (statusMask & (1 << document.status)) == 0) {
+                continue;
+            }
+            if (document.minute < from || document.minute >= to) {
+                continue;
+            }
+            for (String clause : text.split(" OR ")) {
+                if (matches(document, clause)) {
+                    matches.add(id);
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static boolean matches(Document document, String clause) {
+        Set<String> terms = new HashSet<>();
+        for (List<String> field : document.terms) {
+            terms.addAll(field);
+        }
+        String[] parts = clause.split("\"");
+        for (int i = 0; i < parts.length; i++) {
+            List<String> words = InvertedIndex.terms(parts[i], new StringBuilder());
+            if (i % 2 == 0 || words.size() == 1) {
+                if (!terms.containsAll(words)) {
+                    return false;
+                }
+            } else if (document.terms.stream().noneMatch(field -> Collections.indexOfSubList(field, words) >= 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Document {
+        final byte status;
+        final int minute;
+        final String[] fields;
+        final List<List<String>> terms = new ArrayList<>();
+
+        Document(byte status, int minute, String[] fields) {
+            this.status = status;
+            this.minute = minute;
+            this.fields = fields;
+            for (String field : fields) {
+                if (field != null) {
+                    terms.add(InvertedIndex.terms(field, new StringBuilder()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.rummy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a batch whose NOTIFY fails is kept and sent on the next flush
+ * instead of being dropped.
+ */
+class ClusterCoordinatorTest {
+    private static final long WINDOW_MILLIS = 3_600_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> sent = new ArrayList<>();
+    private boolean databaseDown;
+    private ClusterCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public <T> T query(String sql, ResultSetExtractor<T> extractor, Object... args) {
+                if (databaseDown) {
+                    throw new DataAccessResourceFailureException("Connection refused");
+                }
+                sent.add((String) args[1]);
+                return null;
+            }
+        };
+        coordinator = new ClusterCoordinator();
+        ReflectionTestUtils.setField(coordinator, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(coordinator, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(coordinator, "enabled", true);
+    }
+
+    @Test
+    void failedBroadcastIsSentOnTheNextFlush() throws Exception {
+        coordinator.invalidateAfterCommit("user", 42L);
+        coordinator.increment("login-failures:10.0.0.1", WINDOW_MILLIS);
+        coordinator.increment("login-failures:10.0.0.1", WINDOW_MILLIS);
+
+        databaseDown = true;
+        coordinator.flush();
+        assertTrue(sent.isEmpty());
+        assertEquals(1, coordinator.getMetrics().get("pendingInvalidations"));
+
+        coordinator.increment("login-failures:10.0.0.1", WINDOW_MILLIS);
+        databaseDown = false;
+        coordinator.flush();
+
+        assertEquals(1, sent.size());
+        ClusterCoordinator.Batch batch = objectMapper.readValue(sent.get(0), ClusterCoordinator.Batch.class);
+        assertEquals(Map.of("user", List.of(42L)), batch.invalidations);
+        assertEquals(1, batch.counters.size());
+        assertEquals(3, batch.counters.get(0).count, "counts from the failed flush were lost");
+
+        coordinator.flush();
+        assertEquals(1, sent.size(), "the batch was sent twice");
+    }
+}
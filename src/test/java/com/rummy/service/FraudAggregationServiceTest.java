@@ -0,0 +1,71 @@
+package com.rummy.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the distinct reason and evidence thresholds only count reports
+ * inside the window, the same as the report count does.
+ */
+class FraudAggregationServiceTest {
+    private static final int WINDOW = 60;
+    private static final long USER = 7;
+    private static final long START = 29_000_000;
+
+    private FraudAggregationService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new FraudAggregationService();
+        ReflectionTestUtils.setField(service, "windowMinutes", WINDOW);
+        ReflectionTestUtils.setField(service, "minReports", 20);
+        ReflectionTestUtils.setField(service, "minDistinctReasons", 3);
+        ReflectionTestUtils.setField(service, "minDistinctEvidence", 3);
+    }
+
+    @Test
+    void reportsSpreadBeyondTheWindowNeverEscalate() {
+        for (int i = 0; i < 50; i++) {
+            record("reason " + i, "evidence " + i, START + i * (WINDOW - 1L));
+        }
+        assertTrue(pending().isEmpty(), "reports from past windows added up to an escalation");
+    }
+
+    @Test
+    void distinctReportsInsideTheWindowEscalate() {
+        record("collusion", "hand 1", START);
+        record("chip dumping", "hand 2", START + 20);
+        assertTrue(pending().isEmpty());
+        record("bot play", "hand 3", START + WINDOW - 1);
+        assertEquals(Boolean.TRUE, pending().get(USER));
+    }
+
+    @Test
+    void repeatedEvidenceStaysInTheWindow() {
+        record("collusion", "hand 1", START);
+        record("chip dumping", "hand 2", START + 1);
+        // Seeing the first report's evidence again keeps it in the window
+        record("collusion", "hand 1", START + WINDOW);
+        record("bot play", "hand 3", START + WINDOW + 1);
+        assertFalse(pending().containsKey(USER), "reasons and evidence from outside the window were counted");
+        record("bot play", "hand 2", START + WINDOW + 2);
+        record("chip dumping", "hand 4", START + WINDOW + 3);
+        assertEquals(Boolean.TRUE, pending().get(USER));
+    }
+
+    private void record(String reason, String evidence, long minute) {
+        ReflectionTestUtils.invokeMethod(service, "record", USER, reason, evidence, minute);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Boolean> pending() {
+        return (Map<Long, Boolean>) ReflectionTestUtils.getField(service, "pendingEscalations");
+    }
+}
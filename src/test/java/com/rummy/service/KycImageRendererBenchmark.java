@@ -0,0 +1,127 @@
+package com.rummy.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Documents per second through the renderer for 12 MP phone photos with the
+ * production settings: decode, preview, thumbnail and both encodes. The
+ * four-thread variant matches {@code kyc.images.parallelism} and runs in a
+ * 192 MB heap, which is the memory ceiling being checked: four full-size
+ * decodes alone would need all of it. Add {@code -prof gc} to {@code exec.args}
+ * for the bytes allocated per document. Run with
+ * {@code mvn -Pbench test-compile exec:exec -Dbench=KycImageRenderer}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx192m")
+public class KycImageRendererBenchmark {
+    private static final int PHOTOS = 4;
+
+    @State(Scope.Benchmark)
+    public static class Uploads {
+        final KycImageRenderer renderer = new KycImageRenderer(1600, 320, 0.8f, 0.7f, 100_000_000);
+        final Path[] photos = new Path[PHOTOS];
+        Path directory;
+
+        @Setup
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("kyc-bench");
+            SplittableRandom random = new SplittableRandom(38);
+            for (int i = 0; i < PHOTOS; i++) {
+                photos[i] = directory.resolve("photo-" + i + ".jpg");
+                writePhoto(random, photos[i]);
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+
+        /** A 4000x3000 gradient with sensor-like noise, written at phone-camera quality. */
+        private static void writePhoto(SplittableRandom random, Path target) throws IOException {
+            BufferedImage image = new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    int r = (x * 255 / image.getWidth() + random.nextInt(24)) & 0xFF;
+                    int g = (y * 255 / image.getHeight() + random.nextInt(24)) & 0xFF;
+                    int b = (random.nextInt(48) + 96) & 0xFF;
+                    image.setRGB(x, y, r << 16 | g << 8 | b);
+                }
+            }
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+                writer.setOutput(output);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(0.92f);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Worker {
+        Path preview;
+        Path thumbnail;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(Uploads uploads) throws IOException {
+            preview = Files.createTempFile(uploads.directory, "preview", ".jpg");
+            thumbnail = Files.createTempFile(uploads.directory, "thumb", ".jpg");
+        }
+    }
+
+    @Benchmark
+    public BufferedImage render(Uploads uploads, Worker worker) throws IOException {
+        return process(uploads, worker);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BufferedImage renderOnFourWorkers(Uploads uploads, Worker worker) throws IOException {
+        return process(uploads, worker);
+    }
+
+    private static BufferedImage process(Uploads uploads, Worker worker) throws IOException {
+        KycImageRenderer renderer = uploads.renderer;
+        BufferedImage preview = renderer.decodePreview(uploads.photos[worker.next++ % PHOTOS]);
+        renderer.writePreview(preview, worker.preview);
+        BufferedImage thumbnail = renderer.thumbnail(preview);
+        renderer.writeThumbnail(thumbnail, worker.thumbnail);
+        return thumbnail;
+    }
+}
@@ -0,0 +1,188 @@
+package com.rummy.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Renders JPEGs carrying each EXIF orientation and checks that the preview and
+ * thumbnail come out upright at the configured sizes, and that a photo's
+ * preview is an order of magnitude smaller than the upload.
+ */
+class KycImageRendererTest {
+    private static final int WIDTH = 1200;
+    private static final int HEIGHT = 800;
+    private static final int RED = 0xFF0000;
+    private static final int BLUE = 0x0000FF;
+
+    @TempDir
+    Path directory;
+
+    private final KycImageRenderer renderer = new KycImageRenderer(400, 100, 0.8f, 0.7f, 10_000_000);
+
+    @Test
+    void previewsAreUprightForEveryOrientation() throws IOException {
+        // Where the stored top-left (red) and top-right (blue) corners are shown, for orientations 1-8
+        String[][] corners = {
+                {"TL", "TR"}, {"TR", "TL"}, {"BR", "BL"}, {"BL", "BR"},
+                {"TL", "BL"}, {"TR", "BR"}, {"BR", "TR"}, {"BL", "TL"},
+        };
+        for (int orientation = 1; orientation <= 8; orientation++) {
+            Path source = directory.resolve("oriented-" + orientation + ".jpg");
+            Files.write(source, withOrientation(jpeg(markedImage(), 0.9f), orientation));
+
+            BufferedImage preview = renderer.decodePreview(source);
+            boolean swapped = orientation >= 5;
+            assertEquals(swapped ? 267 : 400, preview.getWidth(), "width for orientation " + orientation);
+            assertEquals(swapped ? 400 : 267, preview.getHeight(), "height for orientation " + orientation);
+            assertColor(RED, preview, corners[orientation - 1][0], orientation);
+            assertColor(BLUE, preview, corners[orientation - 1][1], orientation);
+
+            BufferedImage thumbnail = renderer.thumbnail(preview);
+            assertEquals(100, Math.max(thumbnail.getWidth(), thumbnail.getHeight()));
+            assertColor(RED, thumbnail, corners[orientation - 1][0], orientation);
+        }
+    }
+
+    @Test
+    void photoPreviewIsAFractionOfTheUpload() throws IOException {
+        KycImageRenderer defaults = new KycImageRenderer(1600, 320, 0.8f, 0.7f, 100_000_000);
+        Path source = directory.resolve("photo.jpg");
+        Files.write(source, jpeg(photo(4000, 3000), 0.95f));
+        Path preview = directory.resolve("photo.preview.jpg");
+        Path thumbnail = directory.resolve("photo.thumb.jpg");
+
+        BufferedImage image = defaults.decodePreview(source);
+        defaults.writePreview(image, preview);
+        defaults.writeThumbnail(defaults.thumbnail(image), thumbnail);
+
+        BufferedImage written = ImageIO.read(preview.toFile());
+        assertEquals(1600, written.getWidth());
+        assertEquals(1200, written.getHeight());
+        assertEquals(320, ImageIO.read(thumbnail.toFile()).getWidth());
+        long upload = Files.size(source);
+        assertTrue(Files.size(preview) * 10 < upload,
+                "preview of " + Files.size(preview) + " bytes for an upload of " + upload);
+        assertTrue(Files.size(thumbnail) * 100 < upload,
+                "thumbnail of " + Files.size(thumbnail) + " bytes for an upload of " + upload);
+    }
+
+    @Test
+    void refusesImagesOverThePixelLimitAndIgnoresOtherFiles() throws IOException {
+        Path large = directory.resolve("large.jpg");
+        Files.write(large, jpeg(new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB), 0.5f));
+        assertThrows(IOException.class, () -> renderer.decodePreview(large));
+
+        Path text = directory.resolve("document.pdf");
+        Files.writeString(text, "%PDF-1.4 not an image");
+        assertNull(renderer.decodePreview(text));
+    }
+
+    @Test
+    void orientationIsReadFromBothByteOrders() {
+        assertEquals(6, KycImageRenderer.parseOrientation(exif(6, false)));
+        assertEquals(8, KycImageRenderer.parseOrientation(exif(8, true)));
+        assertEquals(0, KycImageRenderer.parseOrientation("Exif".getBytes()));
+    }
+
+    /** Solid red and blue blocks in the top corners of a grey image. */
+    private static BufferedImage markedImage() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.GRAY);
+        graphics.fillRect(0, 0, WIDTH, HEIGHT);
+        graphics.setColor(new Color(RED));
+        graphics.fillRect(0, 0, WIDTH / 4, HEIGHT / 4);
+        graphics.setColor(new Color(BLUE));
+        graphics.fillRect(WIDTH - WIDTH / 4, 0, WIDTH / 4, HEIGHT / 4);
+        graphics.dispose();
+        return image;
+    }
+
+    /** Gradients with sensor-like noise, which compress about as badly as a phone photo. */
+    private static BufferedImage photo(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(38);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(24)) & 0xFF;
+                int g = (y * 255 / height + random.nextInt(24)) & 0xFF;
+                int b = ((x + y) * 127 / (width + height) + random.nextInt(24)) & 0xFF;
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+        return image;
+    }
+
+    private static void assertColor(int expected, BufferedImage image, String corner, int orientation) {
+        int x = corner.charAt(1) == 'L' ? image.getWidth() / 10 : image.getWidth() - 1 - image.getWidth() / 10;
+        int y = corner.charAt(0) == 'T' ? image.getHeight() / 10 : image.getHeight() - 1 - image.getHeight() / 10;
+        int rgb = image.getRGB(x, y) & 0xFFFFFF;
+        for (int shift = 0; shift <= 16; shift += 8) {
+            int channel = (rgb >> shift) & 0xFF;
+            int wanted = (expected >> shift) & 0xFF;
+            assertTrue(Math.abs(channel - wanted) < 48, String.format(
+                    "orientation %d: %s corner is %06x, expected %06x", orientation, corner, rgb, expected));
+        }
+    }
+
+    private static byte[] jpeg(BufferedImage image, float quality) throws IOException {
+        Path file = Files.createTempFile("kyc-image", ".jpg");
+        try {
+            new KycImageRenderer(1, 1, quality, quality, 1).writePreview(image, file);
+            return Files.readAllBytes(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Inserts an EXIF APP1 segment with the orientation tag after the JFIF APP0 segment. */
+    private static byte[] withOrientation(byte[] jpeg, int orientation) {
+        byte[] exif = exif(orientation, false);
+        int app0End = 4 + ((jpeg[4] & 0xFF) << 8 | (jpeg[5] & 0xFF));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(jpeg.length + exif.length + 4);
+        out.write(jpeg, 0, app0End);
+        out.write(0xFF);
+        out.write(0xE1);
+        out.write((exif.length + 2) >> 8);
+        out.write((exif.length + 2) & 0xFF);
+        out.write(exif, 0, exif.length);
+        out.write(jpeg, app0End, jpeg.length - app0End);
+        return out.toByteArray();
+    }
+
+    /** An APP1 payload holding a TIFF header and one IFD with only the orientation tag. */
+    private static byte[] exif(int orientation, boolean little) {
+        byte[] data = new byte[6 + 8 + 2 + 12 + 4];
+        System.arraycopy("Exif\0\0".getBytes(), 0, data, 0, 6);
+        data[6] = data[7] = (byte) (little ? 'I' : 'M');
+        putShort(data, 8, 42, little);
+        putShort(data, little ? 10 : 12, 8, little);
+        putShort(data, 14, 1, little);
+        putShort(data, 16, 0x0112, little);
+        putShort(data, 18, 3, little);
+        putShort(data, little ? 20 : 22, 1, little);
+        putShort(data, 24, orientation, little);
+        return data;
+    }
+
+    private static void putShort(byte[] data, int offset, int value, boolean little) {
+        data[offset] = (byte) (little ? value : value >> 8);
+        data[offset + 1] = (byte) (little ? value >> 8 : value);
+    }
+}
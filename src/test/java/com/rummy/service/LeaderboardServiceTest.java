@@ -0,0 +1,112 @@
+package com.rummy.service;
+
+import com.rummy.game.DealAuditLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Restarts the winnings leaderboards over a real deal audit log: results
+ * revealed before the restart come back on the daily and weekly boards, an
+ * abandoned table adds nothing and a reveal repeated by a crash is counted once.
+ */
+class LeaderboardServiceTest {
+    private static final long ALICE = 11;
+    private static final long BOB = 12;
+    private static final long CAROL = 13;
+
+    @TempDir
+    Path directory;
+
+    private ShuffleService shuffleService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        shuffleService = shuffleService();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        shuffleService.shutdown();
+    }
+
+    @Test
+    void rebuildsWinningsFromRevealedResults() throws Exception {
+        long[] players = {ALICE, BOB, CAROL};
+        for (long tableId = 1; tableId <= 4; tableId++) {
+            shuffleService.deal(tableId, players);
+        }
+        byte[] seedOfFirst = unrevealedSeeds().get(1L).clone();
+        shuffleService.revealResult(1, ALICE, 200);
+        shuffleService.revealResult(2, BOB, 50);
+        shuffleService.revealResult(3, ALICE, 40);
+        shuffleService.reveal(4);
+        // As if the process died before the seed file recorded the first reveal
+        auditLog().reveal(1, seedOfFirst, ALICE, 200);
+        shuffleService.shutdown();
+
+        shuffleService = shuffleService();
+        assertEquals(4, DealAuditLog.verify(directory.resolve("audit.log")));
+        LeaderboardService leaderboard = leaderboard();
+        leaderboard.loadWinnings();
+
+        for (LeaderboardService.Board board : List.of(LeaderboardService.Board.DAILY_WINNINGS,
+                LeaderboardService.Board.WEEKLY_WINNINGS)) {
+            assertEquals(List.of(ALICE, BOB), userIds(leaderboard.getTop(board, 10)), board.name());
+            Map<String, Object> rank = leaderboard.getRank(board, BOB, 1);
+            assertEquals(2L, rank.get("rank"));
+            assertEquals(50.0, rank.get("score"));
+        }
+
+        leaderboard.creditWinnings(BOB, 500);
+        assertEquals(List.of(BOB, ALICE), userIds(leaderboard.getTop(LeaderboardService.Board.DAILY_WINNINGS, 10)));
+    }
+
+    @Test
+    void aSettledTableIsNotCreditedAgainOnRecovery() {
+        shuffleService.deal(1, new long[] {ALICE, BOB});
+        assertEquals(true, shuffleService.revealResult(1, ALICE, 10));
+        assertEquals(false, shuffleService.revealResult(1, ALICE, 10));
+    }
+
+    private ShuffleService shuffleService() throws Exception {
+        ShuffleService service = new ShuffleService();
+        ReflectionTestUtils.setField(service, "poolSize", 4);
+        ReflectionTestUtils.setField(service, "auditFile", directory.resolve("audit.log").toString());
+        ReflectionTestUtils.setField(service, "seedFile", directory.resolve("seeds.log").toString());
+        service.init();
+        return service;
+    }
+
+    private LeaderboardService leaderboard() {
+        LeaderboardService service = new LeaderboardService();
+        ReflectionTestUtils.setField(service, "shuffleService", shuffleService);
+        ReflectionTestUtils.setField(service, "maxResults", 100);
+        ReflectionTestUtils.setField(service, "zone", "Asia/Kolkata");
+        return service;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, byte[]> unrevealedSeeds() {
+        return (Map<Long, byte[]>) ReflectionTestUtils.getField(shuffleService, "unrevealedSeeds");
+    }
+
+    private DealAuditLog auditLog() {
+        return (DealAuditLog) ReflectionTestUtils.getField(shuffleService, "auditLog");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> userIds(Map<String, Object> top) {
+        return ((List<Map<String, Object>>) top.get("entries")).stream()
+                .map(entry -> (Long) entry.get("userId"))
+                .toList();
+    }
+}
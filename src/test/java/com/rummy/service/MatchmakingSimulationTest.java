@@ -0,0 +1,162 @@
+package com.rummy.service;
+
+import com.rummy.game.SeatedTable;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Simulates 100k players (override with {@code -Dmatchmaking.simulation.players})
+ * joining three stake levels from many threads while the matcher runs every
+ * millisecond. One player in a hundred loses eligibility while waiting, so the
+ * matcher also skips and holds back tickets. Checks that every eligible player
+ * is seated exactly once, oldest first within a stake, at tables of two to six,
+ * and that at most one player per stake is left waiting for an opponent.
+ */
+class MatchmakingSimulationTest {
+    private static final int PLAYERS = Integer.getInteger("matchmaking.simulation.players", 100_000);
+    private static final int JOIN_THREADS = 16;
+    private static final long[] STAKES = {0, 10, 50};
+    private static final long MAX_WAIT_MILLIS = 50;
+
+    @Test
+    void seatsEveryEligiblePlayerOnceWithinTheWaitBound() throws Exception {
+        // First check is at join, the second at seating; every hundredth player fails the second
+        ConcurrentHashMap<Long, Boolean> checkedOnce = new ConcurrentHashMap<>();
+        PlayerEligibilityCache eligibility = new PlayerEligibilityCache() {
+            @Override
+            public boolean canSit(Long userId, double buyIn) {
+                return checkedOnce.putIfAbsent(userId, Boolean.TRUE) == null || userId % 100 != 0;
+            }
+        };
+
+        MatchmakingService service = new MatchmakingService();
+        ReflectionTestUtils.setField(service, "eligibilityCache", eligibility);
+        ReflectionTestUtils.setField(service, "stakes", STAKES);
+        ReflectionTestUtils.setField(service, "shardCount", 8);
+        ReflectionTestUtils.setField(service, "minPlayers", 2);
+        ReflectionTestUtils.setField(service, "maxPlayers", 6);
+        ReflectionTestUtils.setField(service, "maxWaitMillis", MAX_WAIT_MILLIS);
+        service.init();
+
+        ConcurrentLinkedQueue<SeatedTable> tables = new ConcurrentLinkedQueue<>();
+        service.addTableListener(tables::add);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread matcher = new Thread(() -> {
+            while (running.get()) {
+                service.matchAll();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }, "matcher");
+        matcher.start();
+
+        long[] stakeOf = new long[PLAYERS + 1];
+        long[] joinStarted = new long[PLAYERS + 1];
+        long[] joinReturned = new long[PLAYERS + 1];
+        long start = System.nanoTime();
+        CountDownLatch joined = new CountDownLatch(JOIN_THREADS);
+        for (int t = 0; t < JOIN_THREADS; t++) {
+            int thread = t;
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int userId = thread + 1; userId <= PLAYERS; userId += JOIN_THREADS) {
+                    long stake = STAKES[random.nextInt(STAKES.length)];
+                    stakeOf[userId] = stake;
+                    joinStarted[userId] = System.nanoTime();
+                    service.join((long) userId, stake);
+                    joinReturned[userId] = System.nanoTime();
+                    if ((userId / JOIN_THREADS) % 64 == 0) {
+                        // Arrive in bursts rather than all at once
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                    }
+                }
+                joined.countDown();
+            }, "joiner-" + t).start();
+        }
+        assertTrue(joined.await(60, TimeUnit.SECONDS), "joins did not finish");
+
+        int ineligible = PLAYERS / 100;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (seatedOrRejected(service) < PLAYERS - STAKES.length && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        running.set(false);
+        matcher.join();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Map<String, Object> metrics = service.getMetrics();
+        long seatedPlayers = ((Number) metrics.get("playersSeated")).longValue();
+        long rejected = ((Number) metrics.get("rejectedAtSeating")).longValue();
+        long maxSeatMillis = ((Number) metrics.get("maxSeatMillis")).longValue();
+        String summary = String.format("seated %d of %d players at %d tables in %d ms (%d rejected at seating), "
+                        + "avg wait %s ms, max wait %d ms", seatedPlayers, PLAYERS, tables.size(), elapsedMillis,
+                rejected, metrics.get("avgSeatMillis"), maxSeatMillis);
+
+        ConcurrentHashMap<Long, SeatedTable> seatOf = new ConcurrentHashMap<>();
+        for (SeatedTable table : tables) {
+            long[] userIds = table.getUserIds();
+            assertTrue(userIds.length >= 2 && userIds.length <= 6, "table size " + userIds.length);
+            for (long userId : userIds) {
+                assertNull(seatOf.put(userId, table), "player " + userId + " seated twice");
+                assertTrue(userId % 100 != 0, "ineligible player " + userId + " was seated");
+            }
+        }
+        assertEquals(ineligible, rejected, summary);
+        // At most one player per stake can be left without an opponent
+        assertTrue(seatedPlayers >= PLAYERS - ineligible - STAKES.length, summary);
+        assertEquals(seatedPlayers, seatOf.size(), summary);
+        assertOldestFirst(tables, stakeOf, joinStarted, joinReturned);
+
+        List<Long> stillWaiting = new ArrayList<>();
+        for (long userId = 1; userId <= PLAYERS; userId++) {
+            if ("WAITING".equals(service.getStatus(userId).get("status"))) {
+                stillWaiting.add(userId);
+            }
+        }
+        assertTrue(stillWaiting.size() <= STAKES.length, summary + ", still waiting: " + stillWaiting);
+    }
+
+    /**
+     * A player whose join started after another's returned must not get an
+     * earlier table of the same stake. Tables reach the listener in the order the
+     * single matcher formed them.
+     */
+    private static void assertOldestFirst(Iterable<SeatedTable> tables, long[] stakeOf, long[] joinStarted,
+                                          long[] joinReturned) {
+        Map<Long, Long> latestStartSeated = new HashMap<>();
+        for (SeatedTable table : tables) {
+            Long earlierStart = latestStartSeated.get(table.getStake());
+            long latestStart = earlierStart == null ? Long.MIN_VALUE : earlierStart;
+            for (long userId : table.getUserIds()) {
+                int user = (int) userId;
+                assertEquals(table.getStake(), stakeOf[user]);
+                assertTrue(earlierStart == null || earlierStart - joinReturned[user] < 0,
+                        "player " + userId + " was passed over by a player who joined later");
+                latestStart = Math.max(latestStart, joinStarted[user]);
+            }
+            latestStartSeated.put(table.getStake(), latestStart);
+        }
+    }
+
+    private static long seatedOrRejected(MatchmakingService service) {
+        Map<String, Object> metrics = service.getMetrics();
+        return ((Number) metrics.get("playersSeated")).longValue()
+                + ((Number) metrics.get("rejectedAtSeating")).longValue();
+    }
+}
@@ -0,0 +1,244 @@
+package com.rummy.service;
+
+import com.rummy.model.User;
+import com.rummy.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Holds many event streams open against a running server over plain sockets.
+ * Measures the heap each idle stream costs, checks that the streams are
+ * released once clients go away, and checks that clients which stop reading
+ * are disconnected without holding up delivery to the others. Set
+ * {@code -Dpush.soak.connections} for a longer run.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:pushsoak;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class PushSoakTest {
+    private static final int CONNECTIONS = Integer.getInteger("push.soak.connections", 2_000);
+    // Tomcat's buffers for the open request are nearly all of this; the stream itself is well under 1 KB.
+    // server.tomcat.max-connections is sized from it, so a stream that grows needs that ceiling revisited.
+    private static final long MAX_BYTES_PER_CONNECTION = 112 * 1024;
+    private static final String PASSWORD = "secret-password";
+    private static final String EVENT_MARKER = "event:soak";
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PushService pushService;
+
+    @Value("${push.sender-threads}")
+    private int senderThreads;
+
+    private final List<Socket> sockets = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // The stored hash carries its cost, so a cheap one keeps thousands of logins fast
+        BCryptPasswordEncoder cheapEncoder = new BCryptPasswordEncoder(4);
+        String[] usernames = {"idle-player", "slow-player", "fast-player"};
+        for (int i = 0; i < usernames.length; i++) {
+            if (userRepository.findByUsername(usernames[i]).isEmpty()) {
+                User user = new User();
+                user.setUsername(usernames[i]);
+                user.setMobileNumber("900000000" + i);
+                user.setPassword(cheapEncoder.encode(PASSWORD));
+                user.setVerified(true);
+                userRepository.save(user);
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        sockets.clear();
+        awaitConnections(0);
+    }
+
+    @Test
+    void idleStreamsStayCheapAndAreReleased() throws Exception {
+        long before = usedHeap();
+        for (int i = 0; i < CONNECTIONS; i++) {
+            sockets.add(open("idle-player", 0));
+        }
+        awaitConnections(CONNECTIONS);
+        long perConnection = (usedHeap() - before) / CONNECTIONS;
+        assertTrue(perConnection < MAX_BYTES_PER_CONNECTION,
+                CONNECTIONS + " idle streams took " + perConnection + " bytes of heap each");
+
+        long deliveredBefore = metric("eventsDelivered");
+        Long userId = userRepository.findByUsername("idle-player").orElseThrow().getId();
+        pushService.publish(userId, "soak", Map.of("n", 1));
+        for (Socket socket : sockets) {
+            awaitMarker(socket.getInputStream());
+        }
+        assertEquals(CONNECTIONS, metric("eventsDelivered") - deliveredBefore);
+    }
+
+    @Test
+    void clientsThatStopReadingDoNotHoldUpOthers() throws Exception {
+        // More stalled clients than sender threads, which blocking writes would all pin
+        int slow = senderThreads * 2;
+        int fast = 4;
+        int events = 400;
+        for (int i = 0; i < slow; i++) {
+            sockets.add(open("slow-player", 4096));
+        }
+        List<AtomicLong> received = new ArrayList<>();
+        for (int i = 0; i < fast; i++) {
+            Socket socket = open("fast-player", 0);
+            sockets.add(socket);
+            AtomicLong count = new AtomicLong();
+            received.add(count);
+            Thread reader = new Thread(() -> countMarkers(socket, count), "fast-reader-" + i);
+            reader.setDaemon(true);
+            reader.start();
+        }
+        awaitConnections(slow + fast);
+        long disconnectsBefore = metric("overflowDisconnects");
+
+        long[] userIds = {
+                userRepository.findByUsername("slow-player").orElseThrow().getId(),
+                userRepository.findByUsername("fast-player").orElseThrow().getId()
+        };
+        Map<String, Object> payload = Map.of("padding", String.join("", Collections.nCopies(32 * 1024, "x")));
+        for (int n = 1; n <= events; n++) {
+            pushService.publish(userIds, "soak", payload);
+            int sent = n;
+            // A fast client keeps up, so only a few events are ever in flight to it
+            await(() -> received.stream().allMatch(count -> count.get() >= sent - 8),
+                    "fast clients stalled at event " + n + ": " + received);
+        }
+        await(() -> received.stream().allMatch(count -> count.get() == events), "fast clients " + received);
+
+        assertEquals(slow, metric("overflowDisconnects") - disconnectsBefore, "metrics " + pushService.getMetrics());
+        assertEquals(fast, metric("connections"), "metrics " + pushService.getMetrics());
+    }
+
+    private Socket open(String username, int receiveBufferSize) throws IOException {
+        Socket socket = new Socket();
+        if (receiveBufferSize > 0) {
+            socket.setReceiveBufferSize(receiveBufferSize);
+        }
+        socket.connect(new InetSocketAddress("localhost", port));
+        socket.setSoTimeout((int) TIMEOUT_MILLIS);
+        String credentials = Base64.getEncoder()
+                .encodeToString((username + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8));
+        // HTTP/1.0 keeps the body unchunked
+        String request = "GET /api/push/subscribe HTTP/1.0\r\n"
+                + "Host: localhost\r\n"
+                + "Accept: text/event-stream\r\n"
+                + "Authorization: Basic " + credentials + "\r\n\r\n";
+        socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+        String headers = readHeaders(socket.getInputStream());
+        assertTrue(headers.startsWith("HTTP/1.1 200"), headers);
+        return socket;
+    }
+
+    private static String readHeaders(InputStream in) throws IOException {
+        StringBuilder headers = new StringBuilder();
+        while (headers.length() < 4 || !headers.substring(headers.length() - 4).equals("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) {
+                break;
+            }
+            headers.append((char) b);
+        }
+        return headers.toString();
+    }
+
+    private static void awaitMarker(InputStream in) throws IOException {
+        int matched = 0;
+        while (matched < EVENT_MARKER.length()) {
+            int b = in.read();
+            assertTrue(b >= 0, "stream closed before the event");
+            matched = b == EVENT_MARKER.charAt(matched) ? matched + 1 : b == EVENT_MARKER.charAt(0) ? 1 : 0;
+        }
+    }
+
+    private static void countMarkers(Socket socket, AtomicLong count) {
+        byte[] buffer = new byte[64 * 1024];
+        int matched = 0;
+        try {
+            InputStream in = socket.getInputStream();
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer[i];
+                    matched = b == EVENT_MARKER.charAt(matched) ? matched + 1 : b == EVENT_MARKER.charAt(0) ? 1 : 0;
+                    if (matched == EVENT_MARKER.length()) {
+                        count.incrementAndGet();
+                        matched = 0;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Closed by the test
+        }
+    }
+
+    private void awaitConnections(int expected) throws InterruptedException {
+        // Streams whose client went away are only noticed on the next write
+        await(() -> {
+            if (metric("connections") == expected) {
+                return true;
+            }
+            pushService.heartbeat();
+            return false;
+        }, "expected " + expected + " push connections, metrics " + pushService.getMetrics());
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, message);
+            Thread.sleep(10);
+        }
+    }
+
+    private long metric(String name) {
+        return ((Number) pushService.getMetrics().get(name)).longValue();
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
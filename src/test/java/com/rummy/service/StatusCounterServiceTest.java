@@ -0,0 +1,116 @@
+package com.rummy.service;
+
+import com.rummy.model.FraudReportStatus;
+import com.rummy.repository.FraudReportRepository;
+import com.rummy.repository.KycDocumentRepository;
+import com.rummy.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Races reconciliation against a transaction reporting a fraud report
+ * transition, driving the transaction's commit phases by hand around a fake
+ * report table, and checks the transition is counted exactly once.
+ */
+class StatusCounterServiceTest {
+    private final AtomicLong pendingRows = new AtomicLong();
+    private StatusCounterService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new StatusCounterService();
+        ReflectionTestUtils.setField(service, "userRepository", emptyCounts(UserRepository.class));
+        ReflectionTestUtils.setField(service, "kycDocumentRepository", emptyCounts(KycDocumentRepository.class));
+        ReflectionTestUtils.setField(service, "fraudReportRepository",
+                Proxy.newProxyInstance(FraudReportRepository.class.getClassLoader(),
+                        new Class<?>[]{FraudReportRepository.class}, (proxy, method, args) -> {
+                            if (!method.getName().equals("countGroupedByStatus")) {
+                                throw new UnsupportedOperationException(method.getName());
+                            }
+                            List<Object[]> rows = new ArrayList<>();
+                            rows.add(new Object[]{FraudReportStatus.PENDING, pendingRows.get()});
+                            return rows;
+                        }));
+        ReflectionTestUtils.setField(service, "transitionMinutes", 60);
+        service.init();
+        service.reconcile();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void reconcileDuringACommitDoesNotCountItsTransitionTwice() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        service.reportsChangedAfterCommit(null, FraudReportStatus.PENDING, 1);
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        // The row is committed, but the transaction has not reported it yet
+        pendingRows.incrementAndGet();
+
+        Thread reconciler = new Thread(service::reconcile);
+        reconciler.start();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (reconciler.getState() != Thread.State.WAITING && reconciler.isAlive()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.WAITING, reconciler.getState(), "reconcile did not wait for the commit");
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        TransactionSynchronizationManager.clearSynchronization();
+        reconciler.join(10_000);
+
+        assertEquals(1L, pendingCount());
+        assertEquals(0L, service.getMetrics().get("driftCorrected"));
+    }
+
+    @Test
+    void rolledBackTransitionReleasesReconcileWithoutCounting() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        service.reportsChangedAfterCommit(null, FraudReportStatus.PENDING, 1);
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        Thread reconciler = new Thread(service::reconcile);
+        reconciler.start();
+        reconciler.join(10_000);
+        assertFalse(reconciler.isAlive(), "reconcile is still waiting on a rolled back commit");
+        assertEquals(0L, pendingCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    private long pendingCount() {
+        Map<String, Long> reports = (Map<String, Long>) service.getCounts().get("FRAUD_REPORT");
+        return reports.get(FraudReportStatus.PENDING.name());
+    }
+
+    private static <T> T emptyCounts(Class<T> repository) {
+        return repository.cast(Proxy.newProxyInstance(repository.getClassLoader(), new Class<?>[]{repository},
+                (proxy, method, args) -> {
+                    if (!method.getName().startsWith("countGroupedBy")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return List.of();
+                }));
+    }
+}